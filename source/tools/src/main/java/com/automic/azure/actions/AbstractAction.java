@@ -5,6 +5,8 @@ package com.automic.azure.actions;
 
 import java.util.List;
 
+import org.apache.commons.cli.Options;
+
 import com.automic.azure.cli.AzureCli;
 import com.automic.azure.cli.AzureOptions;
 import com.automic.azure.exception.AzureException;
@@ -37,6 +39,27 @@ public abstract class AbstractAction {
         actionOptions.addOption(optionName, isRequired, description);
     }
 
+    /**
+     * This method is used to check whether the action accepts an argument.
+     * 
+     * @param optionName
+     *            argument key
+     * @return true if the argument is accepted
+     */
+    public final boolean supportsOption(String optionName) {
+        return actionOptions.hasOption(optionName);
+    }
+
+    /**
+     * This method is used to retrieve the arguments accepted by the action, e.g. to validate arguments without
+     * executing the action.
+     * 
+     * @return options of the action
+     */
+    public final Options getOptions() {
+        return actionOptions.getOptions();
+    }
+
     /**
      * This method is used to retrieve the value of specified argument.
      * 
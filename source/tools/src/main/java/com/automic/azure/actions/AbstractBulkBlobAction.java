@@ -0,0 +1,292 @@
+package com.automic.azure.actions;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.exception.AzureRuntimeException;
+import com.automic.azure.filter.RequestAuthenticator;
+import com.automic.azure.model.AzureBlobModel;
+import com.automic.azure.storage.BlobBatch;
+import com.automic.azure.storage.BlobLister;
+import com.automic.azure.util.BoundedExecutor;
+import com.automic.azure.util.CommonUtil;
+import com.automic.azure.util.ConsoleWriter;
+import com.automic.azure.util.Validator;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+
+/**
+ * Abstract class for storage actions applied either to a single blob or to many blobs of a container. The blobs are
+ * selected by a name, by a prefix or by a file holding one blob name per line.
+ *
+ * In bulk mode the names are streamed into Blob Batch requests of up to 256 operations, which are sent on up to
+ * -parallelism connections while the names are still being read. Blobs which do not exist any more are skipped, and a
+ * summary of the handled, failed and skipped blobs is written once all blobs have been handled.
+ */
+public abstract class AbstractBulkBlobAction extends AbstractStorageAction {
+
+    private static final Logger LOGGER = LogManager.getLogger(AbstractBulkBlobAction.class);
+
+    // Maximum number of batches sent in parallel
+    private static final int MAX_PARALLELISM = 64;
+
+    protected String containerName;
+
+    /**
+     * Name of the single blob, null in bulk mode
+     */
+    protected String blobName;
+
+    private String prefix;
+    private String blobNameFile;
+    private int parallelism;
+
+    public AbstractBulkBlobAction() {
+        addOption(Constants.CONTAINER_NAME, true, "Name of the storage container");
+        addOption("blobname", false, "Name of the blob");
+        addOption(Constants.PREFIX, false, "Select all the blobs whose name begins with the prefix");
+        addOption("blobnamefile", false, "File holding the names of the blobs, one per line");
+        addOption(Constants.PARALLELISM, false, "Number of batches of blobs sent in parallel");
+    }
+
+    /**
+     * Add the operation on a blob to a batch
+     *
+     * @param batch
+     *            {@link BlobBatch} which is not full
+     * @param name
+     *            name of the blob
+     */
+    protected abstract void addOperation(BlobBatch batch, String name);
+
+    // initialize the blob selection
+    protected void initializeSelection() {
+        containerName = getOptionValue(Constants.CONTAINER_NAME);
+        blobName = emptyToNull(getOptionValue("blobname"));
+        prefix = emptyToNull(getOptionValue(Constants.PREFIX));
+        blobNameFile = emptyToNull(getOptionValue("blobnamefile"));
+        String parallelismArgs = getOptionValue(Constants.PARALLELISM);
+        this.parallelism = Validator.checkNotEmpty(parallelismArgs) ? CommonUtil
+                .getAndCheckUnsignedValue(parallelismArgs) : 1;
+    }
+
+    private static String emptyToNull(String value) {
+        return Validator.checkNotEmpty(value) ? value : null;
+    }
+
+    // validate the blob selection
+    protected void validateSelection() throws AzureException {
+        // validate container name
+        if (!Validator.isStorageContainerNameValid(containerName)) {
+            LOGGER.error(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
+            throw new AzureException(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
+        }
+
+        // exactly one way to select the blobs
+        int selections = (blobName != null ? 1 : 0) + (prefix != null ? 1 : 0) + (blobNameFile != null ? 1 : 0);
+        if (selections != 1) {
+            LOGGER.error(ExceptionConstants.INVALID_BLOB_SELECTION);
+            throw new AzureException(ExceptionConstants.INVALID_BLOB_SELECTION);
+        }
+
+        // validate blob name
+        if (blobName != null && !Validator.isContainerBlobNameValid(blobName)) {
+            LOGGER.error(ExceptionConstants.INVALID_BLOB_NAME);
+            throw new AzureException(ExceptionConstants.INVALID_BLOB_NAME);
+        }
+
+        // validate blob name file
+        if (blobNameFile != null && !Validator.checkFileExists(blobNameFile)) {
+            String msg = String.format(ExceptionConstants.INVALID_FILE, blobNameFile);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+
+        // validate parallelism
+        if (parallelism < 1 || parallelism > MAX_PARALLELISM) {
+            String msg = String.format(ExceptionConstants.INVALID_PARALLELISM, MAX_PARALLELISM);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+    }
+
+    /**
+     * Apply the operation to the selected blobs in batches and write the summary.
+     *
+     * @param storageHttpClient
+     *            client the batches are sent through
+     * @param handledOutput
+     *            name of the output variable holding the number of blobs the operation has succeeded for
+     * @param failedMessage
+     *            format of the message thrown if the operation has failed for some blobs, with the failed and the
+     *            total number of blobs
+     * @throws AzureException
+     */
+    protected void executeBulk(final Client storageHttpClient, String handledOutput, String failedMessage)
+            throws AzureException {
+        final WebResource account = storageHttpClient.resource(storageAccount.blobURL());
+        final RequestAuthenticator authenticator = getRequestAuthenticator(storageHttpClient);
+        final BulkSummary summary = new BulkSummary();
+        final BoundedExecutor executor = new BoundedExecutor(parallelism, ExceptionConstants.ERROR_BLOB_BATCH);
+        try {
+            BlobNameHandler handler = new BlobNameHandler() {
+                private BlobBatch batch = new BlobBatch(account, restapiVersion, authenticator);
+
+                @Override
+                public void handle(String name) throws AzureException {
+                    addOperation(batch, name);
+                    if (batch.isFull()) {
+                        flush();
+                    }
+                }
+
+                @Override
+                public void flush() throws AzureException {
+                    if (batch.size() > 0) {
+                        submit(executor, batch, summary);
+                        batch = new BlobBatch(account, restapiVersion, authenticator);
+                    }
+                }
+            };
+            if (prefix != null) {
+                listBlobs(storageHttpClient, handler);
+            } else {
+                readBlobNames(handler);
+            }
+            handler.flush();
+            executor.awaitCompletion();
+        } finally {
+            executor.shutdown();
+        }
+
+        ConsoleWriter.writeln(handledOutput + " ::=" + summary.handled.get());
+        ConsoleWriter.writeln("UC4RB_AZR_FAILED_BLOBS ::=" + summary.failed.get());
+        ConsoleWriter.writeln("UC4RB_AZR_SKIPPED_BLOBS ::=" + summary.skipped.get());
+        if (summary.failed.get() > 0) {
+            String msg = String.format(failedMessage, summary.failed.get(), summary.total.get());
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+    }
+
+    // send a batch, a failed batch does not stop the others
+    private static void submit(BoundedExecutor executor, final BlobBatch batch, final BulkSummary summary)
+            throws AzureException {
+        executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                try {
+                    summary.add(batch.submit());
+                } catch (AzureException | AzureRuntimeException | ClientHandlerException e) {
+                    LOGGER.error("Batch of [" + batch.size() + "] blobs has failed", e);
+                    summary.addFailed(batch.size());
+                }
+                return null;
+            }
+        });
+    }
+
+    private void listBlobs(Client storageHttpClient, final BlobNameHandler handler) throws AzureException {
+        WebResource container = storageHttpClient.resource(storageAccount.blobURL()).path(containerName);
+        BlobLister lister = new BlobLister(container, restapiVersion, prefix, null);
+        while (lister.hasNextPage()) {
+            lister.nextPage(new BlobLister.BlobHandler() {
+                @Override
+                public void handle(AzureBlobModel blob) throws AzureException {
+                    handler.handle(blob.getName());
+                }
+            });
+        }
+    }
+
+    private void readBlobNames(BlobNameHandler handler) throws AzureException {
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(blobNameFile),
+                    StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String name = line.trim();
+                if (name.isEmpty()) {
+                    continue;
+                }
+                if (!Validator.isContainerBlobNameValid(name)) {
+                    LOGGER.error(ExceptionConstants.INVALID_BLOB_NAME + " [" + name + "]");
+                    throw new AzureException(ExceptionConstants.INVALID_BLOB_NAME);
+                }
+                handler.handle(name);
+            }
+        } catch (IOException e) {
+            String msg = String.format(ExceptionConstants.UNABLE_TO_READ_FILE, blobNameFile);
+            LOGGER.error(msg, e);
+            throw new AzureException(msg);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    LOGGER.error(ExceptionConstants.UNABLE_TO_CLOSE_STREAM, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Receives the names of the selected blobs in bulk mode
+     */
+    private interface BlobNameHandler {
+        void handle(String name) throws AzureException;
+
+        void flush() throws AzureException;
+    }
+
+    /**
+     * Counts the results of the batches, which complete on different threads
+     */
+    private static final class BulkSummary {
+        private final AtomicInteger total = new AtomicInteger();
+        private final AtomicInteger handled = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+
+        void add(List<BlobBatch.Result> results) {
+            for (BlobBatch.Result result : results) {
+                if (result.isSuccess()) {
+                    handled.incrementAndGet();
+                } else if (result.getStatusCode() == ClientResponse.Status.NOT_FOUND.getStatusCode()) {
+                    LOGGER.info("Blob [" + result.getBlobName() + "] does not exist and has been skipped.");
+                    skipped.incrementAndGet();
+                } else {
+                    LOGGER.error("Blob [" + result.getBlobName() + "] has failed with HTTP status ["
+                            + result.getStatusCode() + "] and error code [" + result.getErrorCode() + "]");
+                    failed.incrementAndGet();
+                }
+            }
+            logProgress(total.addAndGet(results.size()));
+        }
+
+        void addFailed(int count) {
+            failed.addAndGet(count);
+            logProgress(total.addAndGet(count));
+        }
+
+        private void logProgress(int count) {
+            LOGGER.info("[" + count + "] blobs handled, [" + handled.get() + "] succeeded so far.");
+        }
+    }
+
+}
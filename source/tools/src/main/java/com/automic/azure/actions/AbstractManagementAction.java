@@ -3,15 +3,18 @@
  */
 package com.automic.azure.actions;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.automic.azure.config.ClientRegistry;
 import com.automic.azure.config.HttpClientConfig;
 import com.automic.azure.constants.Constants;
 import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.constants.HttpTransport;
 import com.automic.azure.exception.AzureException;
 import com.automic.azure.filter.GenericResponseFilter;
 import com.automic.azure.model.AzureErrorResponse;
@@ -31,6 +34,11 @@ public abstract class AbstractManagementAction extends AbstractAction {
     protected String restapiVersion;
     protected String subscriptionId;
 
+    /**
+     * HTTP transport the client sends the requests through
+     */
+    protected HttpTransport httpTransport;
+
     private int connectionTimeOut;
     private int readTimeOut;
     private String keyStore;
@@ -39,6 +47,7 @@ public abstract class AbstractManagementAction extends AbstractAction {
     public AbstractManagementAction() {
         addOption(Constants.READ_TIMEOUT, true, "Read timeout");
         addOption(Constants.CONNECTION_TIMEOUT, true, "connection timeout");
+        addOption(Constants.HTTP_TRANSPORT, false, "HTTP transport POOLED or URLCONNECTION");
         addOption(Constants.X_MS_VERSION_OPT, true, "x-ms-version");
         addOption(Constants.SUBSCRIPTION_ID, true, "Subscription ID");
         addOption(Constants.KEYSTORE_LOCATION, true, "Keystore location");
@@ -61,16 +70,26 @@ public abstract class AbstractManagementAction extends AbstractAction {
         try {
             initialize();
             validate();
-            client = Client.create(getConfig());
-            client.addFilter(new GenericResponseFilter(AzureErrorResponse.class));
+            client = ClientRegistry.getClient(getClientKey(), new ClientRegistry.ClientFactory() {
+                @Override
+                public Client create() throws AzureException {
+                    Client newClient = HttpClientConfig.createClient(getConfig(), httpTransport);
+                    newClient.addFilter(new GenericResponseFilter(AzureErrorResponse.class));
+                    return newClient;
+                }
+            });
             executeSpecific(client);
         } finally {
-            if (client != null) {
-                client.destroy();
-            }
+            ClientRegistry.release(client);
         }
     }
 
+    // everything the client is configured with, a changed keystore file gets a new client
+    private String getClientKey() {
+        return "management|" + httpTransport + "|" + connectionTimeOut + "|" + readTimeOut + "|" + keyStore + "|"
+                + new File(keyStore).lastModified() + "|" + password;
+    }
+
     /**
      * Retrieve the ClientConfig which can be used to create client
      * @return ClientConfig Object
@@ -107,6 +126,8 @@ public abstract class AbstractManagementAction extends AbstractAction {
             throw new AzureException(ExceptionConstants.INVALID_READ_TIMEOUT);
         }
 
+        this.httpTransport = CommonUtil.getHttpTransport(getOptionValue(Constants.HTTP_TRANSPORT));
+
         if (!Validator.checkNotEmpty(restapiVersion)) {
             LOGGER.error(ExceptionConstants.EMPTY_X_MS_VERSION);
             throw new AzureException(ExceptionConstants.EMPTY_X_MS_VERSION);
@@ -9,18 +9,25 @@ import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.automic.azure.config.ClientRegistry;
 import com.automic.azure.config.HttpClientConfig;
 import com.automic.azure.constants.Constants;
 import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.constants.HttpTransport;
 import com.automic.azure.exception.AzureException;
 import com.automic.azure.filter.GenericResponseFilter;
+import com.automic.azure.filter.RequestAuthenticator;
+import com.automic.azure.filter.SasTokenFilter;
+import com.automic.azure.filter.SharedKeySigner;
 import com.automic.azure.filter.StorageAuthenticationFilter;
 import com.automic.azure.model.AzureStorageAccount;
 import com.automic.azure.model.AzureStorageErrorResponse;
 import com.automic.azure.util.CommonUtil;
 import com.automic.azure.util.Validator;
 import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandler;
 import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.filter.ClientFilter;
 
 /**
  * Abstract class provides common functionalities to Azure Storage Service Actions
@@ -36,9 +43,15 @@ public abstract class AbstractStorageAction extends AbstractAction {
      */
     protected AzureStorageAccount storageAccount;
 
+    /**
+     * HTTP transport the client sends the requests through
+     */
+    protected HttpTransport httpTransport;
+
     private int connectionTimeOut;
     private int readTimeOut;
-
+    private String sasToken;
+    private int sasValidity;
 
     /**
      * No-args constructor
@@ -46,14 +59,17 @@ public abstract class AbstractStorageAction extends AbstractAction {
     public AbstractStorageAction() {
         addOption(Constants.READ_TIMEOUT, true, "Read timeout");
         addOption(Constants.CONNECTION_TIMEOUT, true, "connection timeout");
+        addOption(Constants.HTTP_TRANSPORT, false, "HTTP transport POOLED or URLCONNECTION");
         addOption(Constants.X_MS_VERSION_OPT, true, "x-ms-version");
         addOption(Constants.STORAGE, true, "Storage Account Name");
-        addOption(Constants.ACCESS_KEY, true, "Primary Access Key");
+        addOption(Constants.ACCESS_KEY, false, "Primary Access Key");
+        addOption(Constants.SAS_TOKEN, false, "Shared access signature token used instead of the access key");
+        addOption(Constants.SAS_VALIDITY, false, "Minutes an account SAS generated from the access key is valid");
     }
 
     @Override
     protected List<String> noLogging() {
-        return Arrays.asList(new String[] { Constants.ACCESS_KEY });
+        return Arrays.asList(new String[] { Constants.ACCESS_KEY, Constants.SAS_TOKEN });
     }
 
     /**
@@ -75,15 +91,65 @@ public abstract class AbstractStorageAction extends AbstractAction {
         try {
             initialize();
             validate();
-            client = Client.create(getConfig());
-            client.addFilter(new StorageAuthenticationFilter(storageAccount));
-            client.addFilter(new GenericResponseFilter(AzureStorageErrorResponse.class));
+            client = ClientRegistry.getClient(getClientKey(), new ClientRegistry.ClientFactory() {
+                @Override
+                public Client create() throws AzureException {
+                    Client newClient = HttpClientConfig.createClient(getConfig(), httpTransport);
+                    newClient.addFilter(getAuthenticationFilter());
+                    newClient.addFilter(new GenericResponseFilter(AzureStorageErrorResponse.class));
+                    return newClient;
+                }
+            });
             executeSpecific(client);
         } finally {
-            if (client != null) {
-                client.destroy();
+            ClientRegistry.release(client);
+        }
+    }
+
+    // everything the client is configured with
+    private String getClientKey() {
+        String credentials;
+        if (sasToken != null) {
+            credentials = "sas|" + sasToken;
+        } else {
+            credentials = "key|" + sasValidity + "|" + storageAccount.getPrimaryAccessKey();
+        }
+        return "storage|" + httpTransport + "|" + connectionTimeOut + "|" + readTimeOut + "|"
+                + storageAccount.getAccountName() + "|" + credentials;
+    }
+
+    /**
+     * A given SAS token is used as it is. With the access key the requests are either signed or carry an account SAS
+     * generated from the key, which saves signing every request.
+     */
+    private ClientFilter getAuthenticationFilter() {
+        if (sasToken != null) {
+            return new SasTokenFilter(sasToken);
+        } else if (sasValidity > 0) {
+            return new SasTokenFilter(new SharedKeySigner(storageAccount.getAccountName(),
+                    storageAccount.getPrimaryAccessKey()), sasValidity);
+        }
+        return new StorageAuthenticationFilter(storageAccount);
+    }
+
+    /**
+     * Authenticator of the requests which are not sent through the client on their own, such as the subrequests of a
+     * blob batch. It is the authentication filter of the client, so that e.g. a generated account SAS is shared with
+     * the requests of the client rather than generated again.
+     *
+     * @param client
+     *            client of the action
+     * @return {@link RequestAuthenticator}
+     */
+    protected RequestAuthenticator getRequestAuthenticator(Client client) {
+        ClientHandler handler = client.getHeadHandler();
+        while (handler instanceof ClientFilter) {
+            if (handler instanceof RequestAuthenticator) {
+                return (RequestAuthenticator) handler;
             }
+            handler = ((ClientFilter) handler).getNext();
         }
+        throw new IllegalStateException("Client has no authentication filter");
     }
     
     /**
@@ -98,6 +164,10 @@ public abstract class AbstractStorageAction extends AbstractAction {
         this.readTimeOut = CommonUtil.getAndCheckUnsignedValue(getOptionValue(Constants.READ_TIMEOUT));
         this.restapiVersion = getOptionValue(Constants.X_MS_VERSION_OPT);
         this.storageAccount = new AzureStorageAccount(getOptionValue("storage"), getOptionValue("accesskey"));
+        String sasTokenValue = getOptionValue(Constants.SAS_TOKEN);
+        this.sasToken = Validator.checkNotEmpty(sasTokenValue) ? sasTokenValue : null;
+        String sasValidityValue = getOptionValue(Constants.SAS_VALIDITY);
+        this.sasValidity = sasValidityValue != null ? CommonUtil.getAndCheckUnsignedValue(sasValidityValue) : 0;
     }
 
     private void validate() throws AzureException {
@@ -111,6 +181,8 @@ public abstract class AbstractStorageAction extends AbstractAction {
             throw new AzureException(ExceptionConstants.INVALID_READ_TIMEOUT);
         }
 
+        this.httpTransport = CommonUtil.getHttpTransport(getOptionValue(Constants.HTTP_TRANSPORT));
+
         if (!Validator.checkNotEmpty(restapiVersion)) {
             LOGGER.error(ExceptionConstants.EMPTY_X_MS_VERSION);
             throw new AzureException(ExceptionConstants.EMPTY_X_MS_VERSION);
@@ -124,9 +196,15 @@ public abstract class AbstractStorageAction extends AbstractAction {
             throw new AzureException(ExceptionConstants.INVALID_STORAGE_ACC_NAME);
         }
 
-        if (!Validator.checkNotEmpty(storageAccount.getPrimaryAccessKey())) {
-            LOGGER.error(ExceptionConstants.EMPTY_STORAGE_ACCESS_KEY);
-            throw new AzureException(ExceptionConstants.EMPTY_STORAGE_ACCESS_KEY);
+        // a SAS token takes the place of the access key
+        if (sasToken == null && !Validator.checkNotEmpty(storageAccount.getPrimaryAccessKey())) {
+            LOGGER.error(ExceptionConstants.EMPTY_STORAGE_CREDENTIALS);
+            throw new AzureException(ExceptionConstants.EMPTY_STORAGE_CREDENTIALS);
+        }
+
+        if (sasValidity < 0) {
+            LOGGER.error(ExceptionConstants.INVALID_SAS_VALIDITY);
+            throw new AzureException(ExceptionConstants.INVALID_SAS_VALIDITY);
         }
     }
     
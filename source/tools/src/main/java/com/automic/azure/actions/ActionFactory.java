@@ -58,6 +58,21 @@ public final class ActionFactory {
             case PUT_BLOB:
                 action = new PutBlockBlobAction();
                 break;
+            case GET_BLOB:
+                action = new GetBlobAction();
+                break;
+            case COPY_BLOB:
+                action = new CopyBlobAction();
+                break;
+            case LIST_BLOBS:
+                action = new ListBlobsAction();
+                break;
+            case SET_BLOB_TIER:
+                action = new SetBlobTierAction();
+                break;
+            case SYNC_PAGE_BLOB:
+                action = new SyncPageBlobAction();
+                break;
             case DELETE_BLOB:
                 action = new DeleteBlobAction();
                 break;
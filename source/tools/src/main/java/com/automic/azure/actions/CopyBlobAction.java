@@ -0,0 +1,390 @@
+package com.automic.azure.actions;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Strings;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.exception.AzureRuntimeException;
+import com.automic.azure.model.AzureBlobModel;
+import com.automic.azure.storage.BlobLister;
+import com.automic.azure.util.BoundedExecutor;
+import com.automic.azure.util.CommonUtil;
+import com.automic.azure.util.ConsoleWriter;
+import com.automic.azure.util.Validator;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+
+/**
+ * Action class to copy blobs within the storage service. The copy is performed by the service, no content passes
+ * through the agent. The source is either a blob of the account, all blobs of a container sharing a prefix, or the
+ * URL of a blob in any account, which has to carry a SAS token unless the blob is public.
+ *
+ * The copies are started on up to -parallelism connections. Copies the service does not complete at once are polled
+ * in rounds with a growing interval until all of them have ended, and the aggregate progress is logged every round.
+ */
+public final class CopyBlobAction extends AbstractStorageAction {
+
+    private static final Logger LOGGER = LogManager.getLogger(CopyBlobAction.class);
+
+    // Maximum number of requests sent in parallel
+    private static final int MAX_PARALLELISM = 64;
+
+    // interval between two polling rounds, doubled up to the maximum while no copy progresses
+    private static final long MIN_POLL_INTERVAL_MILLIS = 1000;
+    private static final long MAX_POLL_INTERVAL_MILLIS = 30 * 1000;
+
+    private static final String COPY_STATUS_PENDING = "pending";
+    private static final String COPY_STATUS_SUCCESS = "success";
+    private static final String COPY_STATUS_FAILED = "failed";
+
+    /**
+     * Source container name
+     */
+    private String containerName;
+
+    /**
+     * Source blob
+     */
+    private String blobName;
+
+    /**
+     * Prefix of the source blobs
+     */
+    private String prefix;
+
+    /**
+     * URL of a source blob in any account
+     */
+    private String sourceUrl;
+
+    private String targetContainerName;
+
+    private String targetBlobName;
+
+    /**
+     * Replaces the prefix in the names of the target blobs
+     */
+    private String targetPrefix;
+
+    /**
+     * number of requests sent in parallel
+     */
+    private int parallelism;
+
+    private Client storageClient;
+
+    public CopyBlobAction() {
+        addOption(Constants.CONTAINER_NAME, false, "Source Storage Container Name");
+        addOption("blobname", false, "Source Blob Name");
+        addOption(Constants.PREFIX, false, "Copy the blobs of the source container with this name prefix");
+        addOption("sourceurl", false, "URL of the source blob, used instead of the source container and blob");
+        addOption("targetcontainername", true, "Target Storage Container Name");
+        addOption("targetblobname", false, "Target Blob Name, defaults to the source blob name");
+        addOption("targetprefix", false, "Prefix replacing the source prefix in the target blob names");
+        addOption(Constants.PARALLELISM, false, "Number of requests sent in parallel");
+    }
+
+    /**
+     * Method makes PUT request with header x-ms-copy-source to
+     * https://myaccount.blob.core.windows.net/mycontainer/myblob for every target blob and polls the pending copies
+     * with HEAD requests to the same URL.
+     */
+    @Override
+    protected void executeSpecific(Client storageHttpClient) throws AzureException {
+        initialize();
+        validate();
+
+        storageClient = storageHttpClient;
+        List<BlobCopy> copies = getCopies();
+        LOGGER.info("Starting [" + copies.size() + "] blob copies using [" + parallelism
+                + "] parallel connection(s).");
+
+        List<BlobCopy> pending = new ArrayList<BlobCopy>();
+        runConcurrently(copies, true);
+        collectPending(copies, pending);
+
+        long interval = MIN_POLL_INTERVAL_MILLIS;
+        long lastCopiedBytes = -1;
+        while (!pending.isEmpty()) {
+            sleep(interval);
+            runConcurrently(pending, false);
+            collectPending(copies, pending);
+            long copiedBytes = logProgress(copies, pending.size());
+            interval = copiedBytes > lastCopiedBytes ? MIN_POLL_INTERVAL_MILLIS : Math.min(interval * 2,
+                    MAX_POLL_INTERVAL_MILLIS);
+            lastCopiedBytes = copiedBytes;
+        }
+
+        int failed = 0;
+        for (BlobCopy copy : copies) {
+            if (!COPY_STATUS_SUCCESS.equals(copy.status)) {
+                failed++;
+                LOGGER.error("Copy of blob [" + copy.targetName + "] ended with status [" + copy.status + "] "
+                        + copy.statusDescription);
+            }
+        }
+        if (copies.size() == 1) {
+            ConsoleWriter.writeln("UC4RB_AZR_COPY_ID ::=" + copies.get(0).copyId);
+            ConsoleWriter.writeln("UC4RB_AZR_COPY_STATUS ::=" + copies.get(0).status);
+        }
+        ConsoleWriter.writeln("UC4RB_AZR_COPIED_BLOBS ::=" + (copies.size() - failed));
+        ConsoleWriter.writeln("UC4RB_AZR_FAILED_COPIES ::=" + failed);
+        if (failed > 0) {
+            String msg = String.format(ExceptionConstants.BLOB_COPIES_FAILED, failed, copies.size());
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+    }
+
+    // the source and target of every blob to copy
+    private List<BlobCopy> getCopies() throws AzureException {
+        List<BlobCopy> copies = new ArrayList<BlobCopy>();
+        if (sourceUrl != null) {
+            copies.add(new BlobCopy(sourceUrl, targetBlobName));
+        } else if (blobName != null) {
+            copies.add(new BlobCopy(getBlobURI(containerName, blobName), targetBlobName));
+        } else {
+            WebResource container = storageClient.resource(storageAccount.blobURL()).path(containerName);
+            BlobLister lister = new BlobLister(container, restapiVersion, prefix, null);
+            while (lister.hasNextPage()) {
+                for (AzureBlobModel blob : lister.nextPage()) {
+                    String name = blob.getName();
+                    String targetName = targetPrefix != null ? targetPrefix + name.substring(prefix.length()) : name;
+                    // checked before any copy is started
+                    if (!Validator.isContainerBlobNameValid(targetName)) {
+                        String msg = String.format(ExceptionConstants.INVALID_COPY_TARGET_NAME, targetName, name);
+                        LOGGER.error(msg);
+                        throw new AzureException(msg);
+                    }
+                    copies.add(new BlobCopy(getBlobURI(containerName, name), targetName));
+                }
+            }
+            LOGGER.info("[" + copies.size() + "] blob(s) found with prefix [" + prefix + "]");
+        }
+        return copies;
+    }
+
+    private String getBlobURI(String container, String blob) {
+        return storageClient.resource(storageAccount.blobURL()).path(container).path(blob).getURI().toString();
+    }
+
+    // start the copies or poll their status
+    private void runConcurrently(List<BlobCopy> copies, final boolean start) throws AzureException {
+        BoundedExecutor executor = new BoundedExecutor(parallelism, ExceptionConstants.ERROR_BLOB_COPY);
+        try {
+            for (final BlobCopy copy : copies) {
+                executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        // a failed blob does not stop the copies of the other blobs
+                        try {
+                            if (start) {
+                                copy.start();
+                            } else {
+                                copy.poll();
+                            }
+                        } catch (AzureRuntimeException e) {
+                            copy.status = COPY_STATUS_FAILED;
+                            copy.statusDescription = e.getMessage();
+                        }
+                        return null;
+                    }
+                });
+            }
+            executor.awaitCompletion();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void collectPending(List<BlobCopy> copies, List<BlobCopy> pending) {
+        pending.clear();
+        for (BlobCopy copy : copies) {
+            if (COPY_STATUS_PENDING.equals(copy.status)) {
+                pending.add(copy);
+            }
+        }
+    }
+
+    private static long logProgress(List<BlobCopy> copies, int pendingCount) {
+        long copiedBytes = 0;
+        long totalBytes = 0;
+        for (BlobCopy copy : copies) {
+            copiedBytes += copy.copiedBytes;
+            totalBytes += copy.totalBytes;
+        }
+        LOGGER.info("[" + (copies.size() - pendingCount) + "/" + copies.size() + "] blob copies ended, ["
+                + copiedBytes + "/" + totalBytes + "] bytes copied.");
+        return copiedBytes;
+    }
+
+    private static void sleep(long millis) throws AzureException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error(ExceptionConstants.ERROR_BLOB_COPY, e);
+            throw new AzureException(ExceptionConstants.ERROR_BLOB_COPY);
+        }
+    }
+
+    // initialize the parameters
+    private void initialize() {
+        containerName = getOptionValue(Constants.CONTAINER_NAME);
+        blobName = emptyToNull(getOptionValue("blobname"));
+        prefix = emptyToNull(getOptionValue(Constants.PREFIX));
+        sourceUrl = emptyToNull(getOptionValue("sourceurl"));
+        targetContainerName = getOptionValue("targetcontainername");
+        targetBlobName = emptyToNull(getOptionValue("targetblobname"));
+        targetPrefix = emptyToNull(getOptionValue("targetprefix"));
+        if (targetBlobName == null) {
+            targetBlobName = sourceUrl != null ? getLastPathSegment(sourceUrl) : blobName;
+        }
+        String parallelismArgs = getOptionValue(Constants.PARALLELISM);
+        this.parallelism = Validator.checkNotEmpty(parallelismArgs) ? CommonUtil
+                .getAndCheckUnsignedValue(parallelismArgs) : 1;
+    }
+
+    private static String emptyToNull(String value) {
+        return Validator.checkNotEmpty(value) ? value : null;
+    }
+
+    private static String getLastPathSegment(String url) {
+        try {
+            String path = new URI(url).getPath();
+            return path == null ? null : path.substring(path.lastIndexOf('/') + 1);
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    // validate the parameters
+    private void validate() throws AzureException {
+        // exactly one source
+        int sources = (sourceUrl != null ? 1 : 0) + (blobName != null ? 1 : 0) + (prefix != null ? 1 : 0);
+        if (sources != 1) {
+            LOGGER.error(ExceptionConstants.INVALID_COPY_SOURCE);
+            throw new AzureException(ExceptionConstants.INVALID_COPY_SOURCE);
+        }
+
+        if (sourceUrl != null) {
+            validateSourceUrl();
+        } else if (!Validator.isStorageContainerNameValid(containerName)) {
+            LOGGER.error(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
+            throw new AzureException(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
+        }
+
+        if (!Validator.isStorageContainerNameValid(targetContainerName)) {
+            LOGGER.error(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
+            throw new AzureException(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
+        }
+
+        // validate blob names, blobs of a prefix are named by the service
+        if (prefix == null && !Validator.isContainerBlobNameValid(targetBlobName)) {
+            LOGGER.error(ExceptionConstants.INVALID_BLOB_NAME);
+            throw new AzureException(ExceptionConstants.INVALID_BLOB_NAME);
+        }
+        if (blobName != null && !Validator.isContainerBlobNameValid(blobName)) {
+            LOGGER.error(ExceptionConstants.INVALID_BLOB_NAME);
+            throw new AzureException(ExceptionConstants.INVALID_BLOB_NAME);
+        }
+
+        // a blob can not be copied onto itself
+        if (sourceUrl == null && containerName.equals(targetContainerName)
+                && (blobName != null ? blobName.equals(targetBlobName)
+                        : (targetPrefix == null || targetPrefix.equals(prefix)))) {
+            LOGGER.error(ExceptionConstants.INVALID_COPY_TARGET);
+            throw new AzureException(ExceptionConstants.INVALID_COPY_TARGET);
+        }
+
+        // validate parallelism
+        if (parallelism < 1 || parallelism > MAX_PARALLELISM) {
+            String msg = String.format(ExceptionConstants.INVALID_PARALLELISM, MAX_PARALLELISM);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+    }
+
+    private void validateSourceUrl() throws AzureException {
+        URI uri = null;
+        try {
+            uri = new URI(sourceUrl);
+        } catch (URISyntaxException e) {
+            LOGGER.error(ExceptionConstants.INVALID_COPY_SOURCE_URL, e);
+        }
+        if (uri == null || uri.getHost() == null
+                || !("https".equalsIgnoreCase(uri.getScheme()) || "http".equalsIgnoreCase(uri.getScheme()))) {
+            LOGGER.error(ExceptionConstants.INVALID_COPY_SOURCE_URL);
+            throw new AzureException(ExceptionConstants.INVALID_COPY_SOURCE_URL);
+        }
+    }
+
+    /**
+     * State of the copy of one blob. Fields are only written by one worker at a time and read by the action thread
+     * after the workers have completed.
+     */
+    private final class BlobCopy {
+        private final String source;
+        private final String targetName;
+
+        private volatile String copyId;
+        private volatile String status;
+        private volatile String statusDescription;
+        private volatile long copiedBytes;
+        private volatile long totalBytes;
+
+        BlobCopy(String source, String targetName) {
+            this.source = source;
+            this.targetName = targetName;
+        }
+
+        // Copy Blob: PUT https://myaccount.blob.core.windows.net/mycontainer/myblob
+        void start() {
+            WebResource resource = getTargetResource();
+            ClientResponse response = resource.header("x-ms-copy-source", source)
+                    .header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                    .header(Constants.X_MS_VERSION, restapiVersion).entity(Strings.EMPTY, "text/plain")
+                    .put(ClientResponse.class);
+            response.close();
+            copyId = response.getHeaders().getFirst("x-ms-copy-id");
+            status = response.getHeaders().getFirst("x-ms-copy-status");
+            LOGGER.info("Copy [" + copyId + "] of blob [" + targetName + "] started with status [" + status + "]");
+        }
+
+        // Get Blob Properties: HEAD https://myaccount.blob.core.windows.net/mycontainer/myblob
+        void poll() {
+            WebResource resource = getTargetResource();
+            ClientResponse response = resource.header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                    .header(Constants.X_MS_VERSION, restapiVersion).head();
+            String copyStatus = response.getHeaders().getFirst("x-ms-copy-status");
+            statusDescription = response.getHeaders().getFirst("x-ms-copy-status-description");
+            String progress = response.getHeaders().getFirst("x-ms-copy-progress");
+            if (progress != null && progress.indexOf('/') > 0) {
+                copiedBytes = Long.parseLong(progress.substring(0, progress.indexOf('/')));
+                totalBytes = Long.parseLong(progress.substring(progress.indexOf('/') + 1));
+            }
+            // another copy to the same blob has been started meanwhile
+            String currentCopyId = response.getHeaders().getFirst("x-ms-copy-id");
+            if (copyId != null && !copyId.equals(currentCopyId)) {
+                statusDescription = "superseded by copy [" + currentCopyId + "]";
+                copyStatus = "superseded";
+            }
+            status = copyStatus;
+        }
+
+        private WebResource getTargetResource() {
+            return storageClient.resource(storageAccount.blobURL()).path(targetContainerName).path(targetName);
+        }
+    }
+
+}
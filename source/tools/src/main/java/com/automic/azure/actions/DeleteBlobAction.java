@@ -8,6 +8,7 @@ import org.apache.logging.log4j.Logger;
 import com.automic.azure.constants.Constants;
 import com.automic.azure.constants.ExceptionConstants;
 import com.automic.azure.exception.AzureException;
+import com.automic.azure.storage.BlobBatch;
 import com.automic.azure.util.CommonUtil;
 import com.automic.azure.util.ConsoleWriter;
 import com.automic.azure.util.Validator;
@@ -18,22 +19,21 @@ import com.sun.jersey.api.client.WebResource;
 /**
  * Class to delete an existing blob from a storage container. The Delete Blob operation marks the specified blob or
  * snapshot for deletion. The blob is later deleted during garbage collection.
- * 
+ *
+ * In bulk mode the blobs of a prefix or of a file holding one blob name per line are deleted by Blob Batch requests of
+ * up to 256 deletions each.
+ *
  * @author shrutinambiar
- * 
+ *
  */
-public class DeleteBlobAction extends AbstractStorageAction {
+public class DeleteBlobAction extends AbstractBulkBlobAction {
 
     private static final Logger LOGGER = LogManager.getLogger(DeleteBlobAction.class);
 
-    private String containerName;
-    private String blobName;
     private String snapshot;
     private String leaseId;
 
     public DeleteBlobAction() {
-        addOption("containername", true, "Name of the storage container");
-        addOption("blobname", true, "Name of the blob to be deleted");
         addOption("snapshot", false, "Specific date-time snapshot of the Blob to delete");
         addOption("leaseid", false, "Lease ID if blob has an active lease");
     }
@@ -46,60 +46,74 @@ public class DeleteBlobAction extends AbstractStorageAction {
     @Override
     protected void executeSpecific(Client storageHttpClient) throws AzureException {
         initialize();
-        validate();
+        validateSelection();
+
+        if (blobName != null) {
+            ClientResponse response = deleteBlob(storageHttpClient);
+            ConsoleWriter.writeln(getDeletedMessage());
+            prepareOutput(response);
+        } else {
+            executeBulk(storageHttpClient, "UC4RB_AZR_DELETED_BLOBS", ExceptionConstants.BLOB_DELETES_FAILED);
+        }
+    }
+
+    private ClientResponse deleteBlob(Client storageHttpClient) {
         WebResource webResource = storageHttpClient.resource(storageAccount.blobURL()).path(containerName)
                 .path(blobName);
+        if (isSnapshotDate()) {
+            webResource = webResource.queryParam("snapshot", snapshot);
+        }
 
-        WebResource.Builder webBuilder = null;
+        WebResource.Builder webBuilder = webResource.header("x-ms-date",
+                CommonUtil.getCurrentUTCDateForStorageService()).header(Constants.X_MS_VERSION, restapiVersion);
+        String deleteSnapshots = getDeleteSnapshots();
+        if (deleteSnapshots != null) {
+            webBuilder = webBuilder.header("x-ms-delete-snapshots", deleteSnapshots);
+        }
+        if (leaseId != null) {
+            webBuilder = webBuilder.header("x-ms-lease-id", leaseId);
+        }
 
-        /*
-         * If snapshot value is 'only' i.e. user entry is *, it won't delete the blob but its snapshot(s). If snapshot
-         * value is date-time format, it will delete the particular snapshot. If snapshot value is 'include' i.e. when
-         * user doesn't give any input, it will delete the blob along with its snapshot(s).
-         */
+        LOGGER.info("Calling URL:" + webResource.getURI());
+        return webBuilder.delete(ClientResponse.class);
+    }
 
-        String msg = null;
+    @Override
+    protected void addOperation(BlobBatch batch, String name) {
+        batch.addDelete(containerName, name, isSnapshotDate() ? snapshot : null, getDeleteSnapshots(), leaseId);
+    }
 
+    /*
+     * If snapshot value is 'only' i.e. user entry is *, it won't delete the blob but its snapshot(s). If snapshot value
+     * is date-time format, it will delete the particular snapshot. If snapshot value is 'include' i.e. when user
+     * doesn't give any input, it will delete the blob along with its snapshot(s).
+     */
+    private String getDeleteSnapshots() {
         if (Validator.checkNotEmpty(snapshot)) {
-            if (("*").equals(snapshot)) {
-                webBuilder = webResource.header("x-ms-delete-snapshots", "only");
-                msg = "All the snapshots have been deleted for the given blob.";
-            } else {
-                webBuilder = webResource.queryParam("snapshot", snapshot).getRequestBuilder();
-                msg = "Snapshot [" + snapshot + "] has been deleted for the given blob.";
-            }
-        } else {
-            webBuilder = webResource.header("x-ms-delete-snapshots", "include");
-            msg = "Blob [" + blobName + "] has been deleted.";
+            return ("*").equals(snapshot) ? "only" : null;
         }
-
-        webBuilder = webBuilder.header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
-                .header(Constants.X_MS_VERSION, restapiVersion).header("x-ms-lease-id", leaseId);
-
-        LOGGER.info("Calling URL:" + webResource.getURI());
-        ClientResponse response = webBuilder.delete(ClientResponse.class);
-        ConsoleWriter.writeln(msg);
-        prepareOutput(response);
+        return "include";
     }
 
-    private void initialize() {
-        containerName = getOptionValue("containername");
-        blobName = getOptionValue("blobname");
-        snapshot = getOptionValue("snapshot");
+    private boolean isSnapshotDate() {
+        return Validator.checkNotEmpty(snapshot) && !("*").equals(snapshot);
     }
 
-    private void validate() throws AzureException {
-        // validate container name
-        if (!Validator.isStorageContainerNameValid(containerName)) {
-            LOGGER.error(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
-            throw new AzureException(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
+    private String getDeletedMessage() {
+        if (Validator.checkNotEmpty(snapshot)) {
+            if (("*").equals(snapshot)) {
+                return "All the snapshots have been deleted for the given blob.";
+            }
+            return "Snapshot [" + snapshot + "] has been deleted for the given blob.";
         }
+        return "Blob [" + blobName + "] has been deleted.";
+    }
 
-        // validate blob name
-        if (!Validator.isContainerBlobNameValid(blobName)) {
-            LOGGER.error(ExceptionConstants.INVALID_BLOB_NAME);
-            throw new AzureException(ExceptionConstants.INVALID_BLOB_NAME);
-        }
+    private void initialize() {
+        initializeSelection();
+        snapshot = getOptionValue("snapshot");
+        String leaseIdArgs = getOptionValue("leaseid");
+        leaseId = Validator.checkNotEmpty(leaseIdArgs) ? leaseIdArgs : null;
     }
 
     private void prepareOutput(ClientResponse response) {
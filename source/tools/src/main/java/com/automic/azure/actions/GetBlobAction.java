@@ -0,0 +1,350 @@
+package com.automic.azure.actions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.exception.AzureRuntimeException;
+import com.automic.azure.storage.RangeCheckpoint;
+import com.automic.azure.util.BoundedExecutor;
+import com.automic.azure.util.CommonUtil;
+import com.automic.azure.util.ConsoleWriter;
+import com.automic.azure.util.Validator;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.core.util.Base64;
+
+/**
+ * Action class to download a blob from a storage container into a local file. The blob is split into ranges which are
+ * fetched in parallel and written at their position into the preallocated file. Every range is requested for the ETag
+ * of the blob at the start of the download, so a blob modified meanwhile fails the download instead of mixing versions.
+ * The Content-MD5 of the blob is verified if it has one.
+ *
+ * With resume the completed ranges are recorded in a checkpoint keyed by the ETag, and an interrupted download keeps
+ * its partially written file. A rerun only fetches the missing ranges, or starts over if the blob has changed.
+ */
+public final class GetBlobAction extends AbstractStorageAction {
+
+    private static final Logger LOGGER = LogManager.getLogger(GetBlobAction.class);
+
+    // Maximum number of ranges downloaded in parallel
+    private static final int MAX_PARALLELISM = 64;
+
+    // size of the ranges requested 4 MB
+    private static final long RANGE_SIZE = 4L * 1024 * 1024;
+
+    // buffer used to copy a range to the file
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Storage container name
+     */
+    private String containerName;
+
+    /**
+     * Container Blob
+     */
+    private String blobName;
+
+    /**
+     * File the blob is downloaded to
+     */
+    private File blobFile;
+
+    /**
+     * number of ranges downloaded in parallel
+     */
+    private int parallelism;
+
+    /**
+     * keep the ranges written by an interrupted download
+     */
+    private boolean resume;
+
+    private Client storageClient;
+
+    public GetBlobAction() {
+        addOption(Constants.CONTAINER_NAME, true, "Storage Container Name");
+        addOption("blobname", true, "Container Blob Name");
+        addOption("blobfile", true, "File path the blob is downloaded to");
+        addOption(Constants.PARALLELISM, false, "Number of ranges downloaded in parallel");
+        addOption("resume", false, "Resume an interrupted download (YES/NO)");
+    }
+
+    /**
+     * Method makes HEAD request to https://myaccount.blob.core.windows.net/mycontainer/myblob to get the properties of
+     * the blob followed by ranged GET requests to the same URL.
+     */
+    @Override
+    protected void executeSpecific(Client storageHttpClient) throws AzureException {
+        initialize();
+        validate();
+
+        storageClient = storageHttpClient;
+        WebResource resource = storageClient.resource(storageAccount.blobURL()).path(containerName).path(blobName);
+
+        LOGGER.info("Calling URL:" + resource.getURI());
+        ClientResponse properties = resource.header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                .header(Constants.X_MS_VERSION, restapiVersion).head();
+        long blobSize = Long.parseLong(properties.getHeaders().getFirst("Content-Length"));
+        String eTag = properties.getHeaders().getFirst("ETag");
+        String contentMD5 = properties.getHeaders().getFirst("Content-MD5");
+
+        LOGGER.info("Downloading blob [" + blobName + "] of size [" + blobSize + "] bytes.");
+        long start = System.currentTimeMillis();
+
+        RangeCheckpoint checkpoint = null;
+        RandomAccessFile file = null;
+        boolean completed = false;
+        try {
+            if (resume) {
+                checkpoint = openCheckpoint(blobSize, eTag);
+            }
+            file = new RandomAccessFile(blobFile, "rw");
+            file.setLength(blobSize);
+            downloadRanges(resource, file.getChannel(), blobSize, eTag, checkpoint);
+            // all ranges are written, a file failing the verification must not be resumed
+            deleteCheckpoint(checkpoint);
+            checkpoint = null;
+            if (Validator.checkNotEmpty(contentMD5)) {
+                verifyMD5(file.getChannel(), blobSize, contentMD5);
+            }
+            completed = true;
+        } catch (IOException e) {
+            LOGGER.error(ExceptionConstants.ERROR_BLOB_DOWNLOAD, e);
+            throw new AzureException(ExceptionConstants.ERROR_BLOB_DOWNLOAD);
+        } finally {
+            if (!completed) {
+                syncCheckpoint(checkpoint, file);
+            }
+            closeFile(file);
+            if (!completed) {
+                discardIncompleteFile(checkpoint);
+            }
+        }
+
+        long elapsedTime = Math.max(1, (System.currentTimeMillis() - start) / 1000);
+        LOGGER.info("Blob [" + blobName + "] has been downloaded succesfully. Avg. downloading rate (bytes/sec) "
+                + blobSize / elapsedTime);
+        ConsoleWriter.writeln("UC4RB_AZR_BLOB_FILE ::=" + blobFile.getAbsolutePath());
+        ConsoleWriter.writeln("UC4RB_AZR_BLOB_SIZE ::=" + blobSize);
+    }
+
+    // open the checkpoint of completed ranges, which is only valid along with the partially written file
+    private RangeCheckpoint openCheckpoint(long blobSize, String eTag) throws IOException {
+        File checkpointFile = RangeCheckpoint.getCheckpointFile(storageAccount.getAccountName() + "/" + containerName
+                + "/" + blobName + "|" + blobFile.getPath());
+        if (blobFile.length() != blobSize && checkpointFile.isFile() && !checkpointFile.delete()) {
+            LOGGER.error("Unable to delete checkpoint [" + checkpointFile.getPath() + "]");
+        }
+        RangeCheckpoint checkpoint = RangeCheckpoint.open(checkpointFile, eTag + " " + blobSize + " " + RANGE_SIZE,
+                getRangeCount(blobSize));
+        if (checkpoint.size() > 0) {
+            LOGGER.info("[" + checkpoint.size() + "] range(s) downloaded by a previous run will be reused.");
+        }
+        return checkpoint;
+    }
+
+    // record the ranges completed since the last sync while the file is still open
+    private void syncCheckpoint(RangeCheckpoint checkpoint, RandomAccessFile file) {
+        if (checkpoint != null && file != null) {
+            try {
+                checkpoint.sync(file.getChannel());
+            } catch (IOException e) {
+                LOGGER.error("Unable to sync download checkpoint", e);
+            }
+        }
+    }
+
+    // keep the partially written file for the next run if the completed ranges have been recorded
+    private void discardIncompleteFile(RangeCheckpoint checkpoint) {
+        if (checkpoint != null) {
+            closeCheckpoint(checkpoint);
+        } else if (!blobFile.delete()) {
+            LOGGER.error("Unable to delete incomplete file [" + blobFile + "]");
+        }
+    }
+
+    private void closeCheckpoint(RangeCheckpoint checkpoint) {
+        try {
+            checkpoint.close();
+        } catch (IOException e) {
+            LOGGER.error("Unable to close download checkpoint", e);
+        }
+    }
+
+    private void deleteCheckpoint(RangeCheckpoint checkpoint) {
+        if (checkpoint != null) {
+            checkpoint.delete();
+        }
+    }
+
+    private static int getRangeCount(long blobSize) {
+        return (int) ((blobSize + RANGE_SIZE - 1) / RANGE_SIZE);
+    }
+
+    private void downloadRanges(final WebResource resource, final FileChannel channel, long blobSize,
+            final String eTag, final RangeCheckpoint checkpoint) throws AzureException {
+        LOGGER.info("Downloading ranges of [" + RANGE_SIZE + "] bytes using [" + parallelism
+                + "] parallel connection(s).");
+        BoundedExecutor executor = new BoundedExecutor(parallelism, ExceptionConstants.ERROR_BLOB_DOWNLOAD);
+        try {
+            int rangeCount = getRangeCount(blobSize);
+            for (int index = 0; index < rangeCount; index++) {
+                // range written by an interrupted run of the same download
+                if (checkpoint != null && checkpoint.isCompleted(index)) {
+                    continue;
+                }
+                final int rangeIndex = index;
+                final long rangeStart = index * RANGE_SIZE;
+                final long rangeEnd = Math.min(rangeStart + RANGE_SIZE, blobSize);
+                executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        downloadRange(resource, channel, rangeStart, rangeEnd, eTag);
+                        if (checkpoint != null) {
+                            checkpoint.rangeCompleted(rangeIndex, channel);
+                        }
+                        return null;
+                    }
+                });
+            }
+            executor.awaitCompletion();
+        } catch (AzureRuntimeException e) {
+            // If-Match failed, the blob has been modified after the download started
+            if (e.getStatusCode() == ClientResponse.Status.PRECONDITION_FAILED.getStatusCode()) {
+                String msg = String.format(ExceptionConstants.BLOB_MODIFIED_DURING_DOWNLOAD, blobName);
+                LOGGER.error(msg, e);
+                throw new AzureException(msg);
+            }
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Get the bytes [rangeStart, rangeEnd) and write them at the same position of the file
+    private void downloadRange(WebResource resource, FileChannel channel, long rangeStart, long rangeEnd,
+            String eTag) throws IOException {
+        WebResource.Builder builder = resource.header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                .header(Constants.X_MS_VERSION, restapiVersion)
+                .header("x-ms-range", "bytes=" + rangeStart + "-" + (rangeEnd - 1));
+        if (eTag != null) {
+            builder = builder.header("If-Match", eTag);
+        }
+        ClientResponse response = builder.get(ClientResponse.class);
+        try {
+            InputStream in = response.getEntityInputStream();
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            long position = rangeStart;
+            int read;
+            while (position < rangeEnd
+                    && (read = in.read(buffer, 0, (int) Math.min(buffer.length, rangeEnd - position))) != -1) {
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                while (bytes.hasRemaining()) {
+                    position += channel.write(bytes, position);
+                }
+            }
+            if (position != rangeEnd) {
+                throw new IOException("Range [" + rangeStart + "-" + (rangeEnd - 1) + "] ended after ["
+                        + (position - rangeStart) + "] bytes");
+            }
+        } finally {
+            response.close();
+        }
+    }
+
+    private void verifyMD5(FileChannel channel, long blobSize, String contentMD5) throws IOException,
+            AzureException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        long position = 0;
+        while (position < blobSize) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                break;
+            }
+            position += read;
+            buffer.flip();
+            digest.update(buffer);
+        }
+        String actualMD5 = new String(Base64.encode(digest.digest()), "UTF-8");
+        if (!actualMD5.equals(contentMD5)) {
+            String msg = String.format(ExceptionConstants.BLOB_MD5_MISMATCH, blobName, contentMD5, actualMD5);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+        LOGGER.info("Content-MD5 [" + contentMD5 + "] of the blob has been verified.");
+    }
+
+    private void closeFile(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                LOGGER.error(ExceptionConstants.UNABLE_TO_CLOSE_STREAM, e);
+            }
+        }
+    }
+
+    // initialize the parameters
+    private void initialize() {
+        containerName = getOptionValue(Constants.CONTAINER_NAME);
+        blobName = getOptionValue("blobname");
+        String blobFileArgs = getOptionValue("blobfile");
+        blobFile = Validator.checkNotEmpty(blobFileArgs) ? new File(blobFileArgs).getAbsoluteFile() : null;
+        String parallelismArgs = getOptionValue(Constants.PARALLELISM);
+        this.parallelism = Validator.checkNotEmpty(parallelismArgs) ? CommonUtil
+                .getAndCheckUnsignedValue(parallelismArgs) : 1;
+        this.resume = CommonUtil.convert2Bool(getOptionValue("resume"));
+    }
+
+    // validate the parameters
+    private void validate() throws AzureException {
+        // validate storage container name
+        if (!Validator.isStorageContainerNameValid(containerName)) {
+            LOGGER.error(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
+            throw new AzureException(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
+        }
+
+        // validate blob name
+        if (!Validator.isContainerBlobNameValid(blobName)) {
+            LOGGER.error(ExceptionConstants.INVALID_BLOB_NAME);
+            throw new AzureException(ExceptionConstants.INVALID_BLOB_NAME);
+        }
+
+        // validate the directory of the target file
+        if (blobFile == null || blobFile.isDirectory() || !Validator.checkFileDirectoryExists(blobFile.getPath())) {
+            String msg = String.format(ExceptionConstants.INVALID_DOWNLOAD_FILE, blobFile);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+
+        // validate parallelism
+        if (parallelism < 1 || parallelism > MAX_PARALLELISM) {
+            String msg = String.format(ExceptionConstants.INVALID_PARALLELISM, MAX_PARALLELISM);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+    }
+
+}
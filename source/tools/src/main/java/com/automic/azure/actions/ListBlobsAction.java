@@ -0,0 +1,158 @@
+package com.automic.azure.actions;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.model.AzureBlobModel;
+import com.automic.azure.storage.BlobLister;
+import com.automic.azure.util.ByteWriter;
+import com.automic.azure.util.ConsoleWriter;
+import com.automic.azure.util.Validator;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.WebResource;
+
+/**
+ * Action class to list the blobs of a storage container. Every blob is written as one tab separated line of name,
+ * size, last modified time, blob type and Content-MD5, either to a file or to the console. With a delimiter the blobs
+ * sharing the prefix up to the next delimiter are written as a single line holding the common prefix.
+ *
+ * Entries are written while the pages of the listing are read, so the memory used does not grow with the number of
+ * blobs.
+ */
+public final class ListBlobsAction extends AbstractStorageAction {
+
+    private static final Logger LOGGER = LogManager.getLogger(ListBlobsAction.class);
+
+    private static final String FIELD_SEPARATOR = "\t";
+
+    private String containerName;
+
+    /**
+     * Only list blobs whose name begins with the prefix
+     */
+    private String prefix;
+
+    /**
+     * Group the blobs at the next delimiter after the prefix
+     */
+    private String delimiter;
+
+    /**
+     * File the listing is written to, the console if not set
+     */
+    private String outputFile;
+
+    public ListBlobsAction() {
+        addOption(Constants.CONTAINER_NAME, true, "Storage Container Name");
+        addOption(Constants.PREFIX, false, "List only the blobs whose name begins with the prefix");
+        addOption("delimiter", false, "Group the blobs by their name up to the next delimiter after the prefix");
+        addOption("outputfile", false, "File the listing is written to instead of the console");
+    }
+
+    /**
+     * Method makes GET requests to https://myaccount.blob.core.windows.net/mycontainer?restype=container&comp=list
+     * until the last page has been read
+     */
+    @Override
+    protected void executeSpecific(Client storageHttpClient) throws AzureException {
+        initialize();
+        validate();
+
+        WebResource container = storageHttpClient.resource(storageAccount.blobURL()).path(containerName);
+        BlobLister lister = new BlobLister(container, restapiVersion, prefix, delimiter);
+
+        final ByteWriter writer = outputFile != null ? openOutputFile() : null;
+        final long[] counts = new long[2];
+        try {
+            while (lister.hasNextPage()) {
+                lister.nextPage(new BlobLister.BlobHandler() {
+                    @Override
+                    public void handle(AzureBlobModel blob) throws AzureException {
+                        String line = format(blob);
+                        if (writer != null) {
+                            writer.write(line);
+                            writer.writeNewLine();
+                        } else {
+                            ConsoleWriter.writeln(line);
+                        }
+                        counts[blob.isPrefix() ? 1 : 0]++;
+                    }
+                });
+                LOGGER.info("[" + counts[0] + "] blob(s) and [" + counts[1] + "] prefix(es) listed so far.");
+            }
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+
+        ConsoleWriter.writeln("UC4RB_AZR_BLOB_COUNT ::=" + counts[0]);
+        if (delimiter != null) {
+            ConsoleWriter.writeln("UC4RB_AZR_PREFIX_COUNT ::=" + counts[1]);
+        }
+        if (outputFile != null) {
+            ConsoleWriter.writeln("UC4RB_AZR_LIST_FILE ::=" + outputFile);
+        }
+    }
+
+    private static String format(AzureBlobModel blob) {
+        if (blob.isPrefix()) {
+            return blob.getName();
+        }
+        StringBuilder line = new StringBuilder(blob.getName());
+        line.append(FIELD_SEPARATOR).append(blob.getContentLength());
+        line.append(FIELD_SEPARATOR).append(nullToEmpty(blob.getLastModified()));
+        line.append(FIELD_SEPARATOR).append(nullToEmpty(blob.getBlobType()));
+        line.append(FIELD_SEPARATOR).append(nullToEmpty(blob.getContentMD5()));
+        return line.toString();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private ByteWriter openOutputFile() throws AzureException {
+        try {
+            return new ByteWriter(new FileOutputStream(outputFile));
+        } catch (FileNotFoundException e) {
+            String msg = String.format(ExceptionConstants.INVALID_FILE, outputFile);
+            LOGGER.error(msg, e);
+            throw new AzureException(msg);
+        }
+    }
+
+    // initialize the parameters
+    private void initialize() {
+        containerName = getOptionValue(Constants.CONTAINER_NAME);
+        String prefixArgs = getOptionValue(Constants.PREFIX);
+        prefix = Validator.checkNotEmpty(prefixArgs) ? prefixArgs : null;
+        String delimiterArgs = getOptionValue("delimiter");
+        delimiter = Validator.checkNotEmpty(delimiterArgs) ? delimiterArgs : null;
+        String outputFileArgs = getOptionValue("outputfile");
+        outputFile = Validator.checkNotEmpty(outputFileArgs) ? outputFileArgs : null;
+    }
+
+    // validate the parameters
+    private void validate() throws AzureException {
+        // validate storage container name
+        if (!Validator.isStorageContainerNameValid(containerName)) {
+            LOGGER.error(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
+            throw new AzureException(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
+        }
+
+        // validate the directory of the output file
+        if (outputFile != null && !Validator.checkFileDirectoryExists(new File(outputFile).getAbsolutePath())) {
+            String msg = String.format(ExceptionConstants.INVALID_FILE, outputFile);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+    }
+
+}
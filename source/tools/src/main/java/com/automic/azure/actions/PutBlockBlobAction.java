@@ -4,17 +4,8 @@
 package com.automic.azure.actions;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.nio.ByteBuffer;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
-import java.util.TimeZone;
 
 import javax.ws.rs.core.MediaType;
 
@@ -24,33 +15,70 @@ import org.apache.logging.log4j.Logger;
 import com.automic.azure.constants.Constants;
 import com.automic.azure.constants.ExceptionConstants;
 import com.automic.azure.exception.AzureException;
-import com.automic.azure.util.ByteWriter;
+import com.automic.azure.filter.RequestAuthenticator;
+import com.automic.azure.filter.StorageAuthenticationFilter;
+import com.automic.azure.storage.BlockBlobWriter;
+import com.automic.azure.storage.BlockListUploader;
+import com.automic.azure.storage.BlockSizePolicy;
+import com.automic.azure.storage.ContentDefinedChunker;
+import com.automic.azure.storage.DeltaUploader;
+import com.automic.azure.storage.FileBlobUploader;
+import com.automic.azure.storage.MultiFileUploader;
+import com.automic.azure.storage.PageBlobUploader;
+import com.automic.azure.storage.PageBlobWriter;
+import com.automic.azure.storage.PageRangeScanner;
+import com.automic.azure.storage.SingleBlobUploader;
+import com.automic.azure.storage.StreamUploader;
+import com.automic.azure.storage.UnchangedBlobCheck;
+import com.automic.azure.storage.UploadIndex;
 import com.automic.azure.util.CommonUtil;
 import com.automic.azure.util.ConsoleWriter;
+import com.automic.azure.util.LocalFileSet;
 import com.automic.azure.util.Validator;
 import com.sun.jersey.api.client.Client;
-import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.WebResource;
-import com.sun.jersey.core.util.Base64;
 
 /**
- * Action class to create a Container in Azure Storage
+ * Action class to upload a file as a blob. A block blob is uploaded in a single request or as a list of blocks. A page
+ * blob is created at the size of the file and only the pages of the file holding data are written, so the zero
+ * regions of a sparse disk image are never sent.
+ * 
+ * With ifchanged the blob is looked up first and the upload is skipped if the blob has the type, the size and the
+ * Content-MD5 of the file. The Content-MD5 of the file is set on the uploaded blob, so the next comparison takes a
+ * single request. Uploads are recorded in an index of the files, so that a file which has kept its size and
+ * modification time is not read again: its recorded Content-MD5 is used, and the blob is known to be unchanged if it
+ * still has the recorded ETag.
+ * 
+ * With delta a block blob is cut into blocks at content defined boundaries and every block is named after the hash of
+ * its content. Blocks the blob already has, committed or uncommitted, are not uploaded again, so uploading a new
+ * version of a large file sends the changed regions only.
+ * 
+ * If the blob file is a directory or a glob pattern, every file selected is uploaded to a blob named after its
+ * relative path below the blob name given, all the files sharing the same parallel connections.
+ * 
+ * If the blob file is -, the standard input is uploaded to a block blob, e.g. a backup piped into the action, without
+ * its length being known in advance. Blocks are staged as soon as they have been read into one of a few reusable
+ * buffers and the block list is committed at the end of the input.
  * 
  */
 public final class PutBlockBlobAction extends AbstractStorageAction {
 
-    private static final String UT8_ENCODING = "UTF-8";
+    // blob file read from the standard input
+    private static final String STDIN = "-";
 
     private static final Logger LOGGER = LogManager.getLogger(PutBlockBlobAction.class);
 
-    // size of block blob 4 MB
-    private static final int BLOCK_SIZE = 4 * 1024 * 1024;
+    // Maximum number of blocks uploaded in parallel
+    private static final int MAX_PARALLELISM = 64;
+
+    // requests in flight by default for a directory or glob pattern, which mostly holds small files
+    private static final int DEFAULT_FILE_SET_PARALLELISM = 16;
 
-    // Maximum Blocks
-    private static final int MAX_BLOCKS = 50000;
+    // default memory budget for blocks in flight 256 MB
+    private static final int DEFAULT_MEMORY_BUDGET_MB = 256;
 
-    // min size of blob to be uploaded as a block blob 64 MB
-    private static final long FILE_SIZE_FOR_BLOCK_UPLOAD = 64L * 1024 * 1024;
+    private static final String BLOCK_BLOB = "BlockBlob";
+    private static final String PAGE_BLOB = "PageBlob";
 
     /**
      * Storage container name
@@ -69,18 +97,68 @@ public final class PutBlockBlobAction extends AbstractStorageAction {
 
     private String contentType;
 
+    /**
+     * upload the file as a page blob instead of a block blob
+     */
+    private boolean pageBlob;
+
     /**
      * size of blob file
      */
     private long fileSize;
 
-    private Client storageClient;
+    /**
+     * number of blocks uploaded in parallel
+     */
+    private int parallelism;
+
+    /**
+     * reuse the blocks staged by an interrupted upload
+     */
+    private boolean resume;
+
+    /**
+     * skip the upload if the blob already has the content of the file
+     */
+    private boolean ifChanged;
+
+    /**
+     * modification time of the file before it is read
+     */
+    private long fileLastModified;
+
+    /**
+     * upload only the blocks of the file which the blob does not have yet
+     */
+    private boolean delta;
+
+    /**
+     * chunk sizes of a delta upload
+     */
+    private ContentDefinedChunker chunker;
+
+    /**
+     * memory in MB which may be held by blocks in flight
+     */
+    private int memoryBudget;
+
+    /**
+     * block size and single request threshold chosen for the file
+     */
+    private BlockSizePolicy blockSizePolicy;
 
     public PutBlockBlobAction() {
         addOption(Constants.CONTAINER_NAME, true, "Storage Container Name");
         addOption("blobname", false, "Container Blob Name");
-        addOption("blobfile", true, "Blob file path");
+        addOption("blobfile", true, "Blob file path, directory, glob pattern or - for the standard input");
         addOption(Constants.CONTENT_TYPE, false, "Content-Type of the blob file");
+        addOption(Constants.PARALLELISM, false, "Number of blocks or files uploaded in parallel");
+        addOption("resume", false, "Resume an interrupted upload (YES/NO)");
+        addOption("memorybudget", false, "Memory in MB which may be used for blocks in flight");
+        addOption("blobtype", false, "Type of the blob BlockBlob or PageBlob");
+        addOption("ifchanged", false, "Upload only if the blob differs in size or Content-MD5 (YES/NO)");
+        addOption("uploadindex", false, "Index file of the uploaded files used with ifchanged");
+        addOption("delta", false, "Upload only the blocks the blob does not have yet (YES/NO)");
     }
 
     /**
@@ -91,130 +169,174 @@ public final class PutBlockBlobAction extends AbstractStorageAction {
     public void executeSpecific(Client storageHttpClient) throws AzureException {
         initialize();
 
+        if (STDIN.equals(getOptionValue("blobfile"))) {
+            validateStream();
+            putStream(storageHttpClient);
+            LOGGER.info("Blob [" + blobName + "] has been uploaded succesfully.");
+            ConsoleWriter.writeln("UC4RB_AZR_BLOB_NAME ::=" + blobName);
+            return;
+        }
+
+        if (LocalFileSet.isFileSet(getOptionValue("blobfile"))) {
+            validateFileSet();
+            putFileSet(storageHttpClient);
+            return;
+        }
+
         validate();
 
         LOGGER.info("Uploading file of size [" + fileSize + "] bytes.");
 
-        storageClient = storageHttpClient;
+        WebResource blobResource = storageHttpClient.resource(storageAccount.blobURL()).path(containerName)
+                .path(blobName);
+        UnchangedBlobCheck check = null;
+        try {
+            String contentMD5 = null;
+            if (ifChanged) {
+                check = new UnchangedBlobCheck(blobResource, restapiVersion, pageBlob ? PAGE_BLOB : BLOCK_BLOB,
+                        getBlobKey(), blobFile, fileSize, fileLastModified);
+                String indexArgs = getOptionValue("uploadindex");
+                check.openIndex(Validator.checkNotEmpty(indexArgs) ? new File(indexArgs) : UploadIndex
+                        .getDefaultIndexFile());
+                if (check.isUnchanged()) {
+                    LOGGER.info("Blob [" + blobName + "] has the content of the file and is not uploaded.");
+                    ConsoleWriter.writeln("UC4RB_AZR_BLOB_NAME ::=" + blobName);
+                    ConsoleWriter.writeln("UC4RB_AZR_UPLOAD_SKIPPED ::=YES");
+                    return;
+                }
+                contentMD5 = check.getContentMD5();
+            }
 
-        // if file size is greater than 64MB, we upload using put block list.
-        if (this.fileSize > FILE_SIZE_FOR_BLOCK_UPLOAD) {
-            putBlockList();
-        } else {
-            putBlock();
+            FileBlobUploader uploader = createUploader(blobResource);
+            uploader.upload(contentMD5);
+            ConsoleWriter.writeln("Request ID : " + uploader.getRequestId());
+            if (pageBlob || delta) {
+                ConsoleWriter.writeln("UC4RB_AZR_UPLOADED_BYTES ::=" + uploader.getUploadedBytes());
+            }
+            if (check != null) {
+                check.recordUpload(uploader.getETag());
+            }
+        } finally {
+            if (check != null) {
+                check.close();
+            }
         }
 
         LOGGER.info("Blob [" + blobName + "] has been uploaded succesfully.");
         ConsoleWriter.writeln("UC4RB_AZR_BLOB_NAME ::=" + blobName);
+        if (ifChanged) {
+            ConsoleWriter.writeln("UC4RB_AZR_UPLOAD_SKIPPED ::=NO");
+        }
     }
 
-    // upload blob as a single entity
-    private void putBlock() {
-        WebResource resource = storageClient.resource(storageAccount.blobURL()).path(containerName).path(blobName);
+    // a file larger than the single request threshold is uploaded as a list of blocks
+    private FileBlobUploader createUploader(WebResource blobResource) {
+        if (pageBlob) {
+            return new PageBlobUploader(new PageBlobWriter(blobResource, restapiVersion), blobFile, fileSize,
+                    contentType, parallelism);
+        }
+        BlockBlobWriter writer = new BlockBlobWriter(blobResource, blobName, restapiVersion, contentType);
+        if (delta) {
+            return new DeltaUploader(writer, blobFile, fileSize, chunker, parallelism);
+        }
+        if (fileSize > blockSizePolicy.getSinglePutThreshold()) {
+            BlockListUploader uploader = new BlockListUploader(writer, blobFile, fileSize,
+                    blockSizePolicy.getBlockSize(), parallelism);
+            if (resume) {
+                uploader.setResumeKey(getBlobKey());
+            }
+            return uploader;
+        }
+        return new SingleBlobUploader(writer, blobFile, fileSize);
+    }
 
-        WebResource.Builder builder = resource.header("Content-Length", fileSize)
-                .header("x-ms-version", restapiVersion).header("x-ms-blob-type", "BlockBlob")
-                .header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService());
+    // upload the standard input, its length not being known in advance
+    private void putStream(Client storageHttpClient) throws AzureException {
+        WebResource blobResource = storageHttpClient.resource(storageAccount.blobURL()).path(containerName)
+                .path(blobName);
+        BlockSizePolicy policy = BlockSizePolicy.forStream(restapiVersion, memoryBudget * 1024L * 1024, parallelism,
+                httpTransport.getMaxStreamedEntitySize());
+        StreamUploader uploader = new StreamUploader(new BlockBlobWriter(blobResource, blobName, restapiVersion,
+                contentType), policy, parallelism);
+        uploader.upload(System.in);
+        ConsoleWriter.writeln("Request ID : " + uploader.getRequestId());
+        ConsoleWriter.writeln("UC4RB_AZR_UPLOADED_BYTES ::=" + uploader.getUploadedBytes());
+    }
 
-        ClientResponse response = builder.entity(blobFile, contentType).put(ClientResponse.class);
-        List<String> tokenid = response.getHeaders().get(Constants.REQUEST_TOKENID_KEY);
-        ConsoleWriter.writeln("Request ID : " + tokenid.get(0));
+    private String getBlobKey() {
+        return storageAccount.getAccountName() + "/" + containerName + "/" + blobName;
     }
 
-    // Upload the blob in chunks
-    private void putBlockList() throws AzureException {
-        ByteWriter bw = null;
+    // upload the files of a directory or matching a glob pattern, named after their relative paths
+    private void putFileSet(Client storageHttpClient) throws AzureException {
+        String source = getOptionValue("blobfile");
+        List<LocalFileSet.LocalFile> files;
         try {
-            // Create the temp file to write the block list information.
-            File blockIdListFile = File.createTempFile("BlockList", ".xml");
-            LOGGER.info("Temporary Block List File [" + blockIdListFile.getPath() + "] has been created.");
-            blockIdListFile.deleteOnExit();
-
-            bw = new ByteWriter(new FileOutputStream(blockIdListFile));
-            bw.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>");
-            bw.write("<BlockList>");
-
-            uploadBlocks(bw);
-
-            bw.write("</BlockList>");
-            bw.close();
-            commitBlockList(blockIdListFile);
+            files = LocalFileSet.select(source);
         } catch (IOException e) {
-            LOGGER.error(ExceptionConstants.ERROR_BLOCK_BLOB_UPLOAD, e);
-            throw new AzureException(ExceptionConstants.ERROR_BLOCK_BLOB_UPLOAD);
-        } finally {
-            // close stream for block Id xml
-            if (bw != null) {
-                try {
-                    bw.close();
-                } catch (AzureException e) {
-                }
-            }
+            String msg = String.format(ExceptionConstants.ERROR_SELECTING_FILES, source);
+            LOGGER.error(msg, e);
+            throw new AzureException(msg);
+        }
+        if (files.isEmpty()) {
+            String msg = String.format(ExceptionConstants.NO_FILES_SELECTED, source);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
         }
-    }
 
-    private void uploadBlocks(ByteWriter bw) throws IOException, AzureException {
-        BlockIdGenerator generator = new BlockIdGenerator();
-        DateHeader dateHeader = new DateHeader();
+        // blob name given is the virtual directory of the blobs
+        String prefix = getOptionValue("blobname");
+        if (!Validator.checkNotEmpty(prefix)) {
+            prefix = "";
+        } else if (!prefix.endsWith("/")) {
+            prefix += "/";
+        }
 
-        WebResource resource = storageClient.resource(this.storageAccount.blobURL()).path(containerName).path(blobName)
-                .queryParam("comp", "block");
+        MultiFileUploader uploader = new MultiFileUploader(storageHttpClient.resource(storageAccount.blobURL())
+                .path(containerName), restapiVersion, contentType, parallelism, memoryBudget * 1024L * 1024,
+                httpTransport.getMaxStreamedEntitySize());
+        RequestAuthenticator authenticator = getRequestAuthenticator(storageHttpClient);
+        if (authenticator instanceof StorageAuthenticationFilter) {
+            uploader.setPutBlobSigner(((StorageAuthenticationFilter) authenticator).createPutBlobSigner(
+                    restapiVersion, contentType));
+        }
+        int failed = 0;
+        for (LocalFileSet.LocalFile file : files) {
+            String name = prefix + file.getRelativeName();
+            if (Validator.isContainerBlobNameValid(name)) {
+                uploader.add(file.getFile(), file.getSize(), name);
+            } else {
+                LOGGER.error(ExceptionConstants.INVALID_BLOB_NAME + " [" + name + "] for file [" + file.getFile()
+                        + "]");
+                failed++;
+            }
+        }
 
-        long temp = fileSize;
-        long minutes = 0;
-        BlockInputStream inputStream = null;
         long start = System.currentTimeMillis();
-
-        try {
-            inputStream = new BlockInputStream(blobFile, fileSize);
-            while (temp > 0) {
-                String blockId = generator.generateBlockIdBase64encoded();
-                // add blockid to xml file to commit later
-                bw.write("<Uncommitted>");
-                bw.write(blockId);
-                bw.write("</Uncommitted>");
-
-                long blockSize = BLOCK_SIZE;
-                if (temp < BLOCK_SIZE) {
-                    blockSize = temp;
-                }
-                temp = temp - blockSize;
-                resource.queryParam("blockid", blockId).header("Content-Length", blockSize)
-                        .header("x-ms-version", PutBlockBlobAction.this.restapiVersion)
-                        .header("x-ms-blob-type", "BlockBlob").header("x-ms-date", dateHeader.getCurrentDate())
-                        .entity(inputStream, contentType).put(ClientResponse.class);
-
-                // Log the information to see the upload progress every minute.
-                long elapsedTime = (System.currentTimeMillis() - start) / 1000;
-                if ((elapsedTime / 60) > minutes) {
-                    minutes++;
-                    long avgRate = (fileSize - temp) / elapsedTime;
-                    LOGGER.info("Avg. uploading rate (bytes/sec) " + avgRate);
-                    LOGGER.info("Remaining bytes to upload " + temp + ". Estimated time(seconds) " + temp / avgRate);
-                }
-            }
-        } finally {
-            if (inputStream != null) {
-                try {
-                    inputStream.closeNow();
-                } catch (IOException e) {
-                    LOGGER.error(ExceptionConstants.ERROR_BLOCK_BLOB_UPLOAD, e);
-                }
+        int uploaded = 0;
+        long uploadedBytes = 0;
+        for (MultiFileUploader.Result result : uploader.upload()) {
+            if (result.isSuccess()) {
+                uploaded++;
+                uploadedBytes += result.getSize();
+            } else {
+                failed++;
             }
         }
-    }
-
-    //
-    private void commitBlockList(File file) {
-        LOGGER.info("Uploading block list to commit");
-        WebResource resource = storageClient.resource(this.storageAccount.blobURL()).path(containerName).path(blobName)
-                .queryParam("comp", "blocklist");
-        WebResource.Builder builder = resource.header("Content-Length", file.length())
-                .header("x-ms-version", this.restapiVersion)
-                .header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService());
-        ClientResponse response = builder.entity(file, MediaType.APPLICATION_XML).put(ClientResponse.class);
-        List<String> tokenid = response.getHeaders().get(Constants.REQUEST_TOKENID_KEY);
-        ConsoleWriter.writeln("Request ID : " + tokenid.get(0));
+        long elapsedTime = Math.max(System.currentTimeMillis() - start, 1);
+        long rate = uploadedBytes * 1000 / elapsedTime;
+        LOGGER.info("[" + uploaded + "] of [" + files.size() + "] files with [" + uploadedBytes
+                + "] bytes have been uploaded in [" + elapsedTime + "] ms, avg. uploading rate (bytes/sec) " + rate);
+
+        ConsoleWriter.writeln("UC4RB_AZR_UPLOADED_BLOBS ::=" + uploaded);
+        ConsoleWriter.writeln("UC4RB_AZR_FAILED_BLOBS ::=" + failed);
+        ConsoleWriter.writeln("UC4RB_AZR_UPLOADED_BYTES ::=" + uploadedBytes);
+        ConsoleWriter.writeln("UC4RB_AZR_UPLOAD_RATE ::=" + rate);
+        if (failed > 0) {
+            String msg = String.format(ExceptionConstants.BLOB_UPLOADS_FAILED, failed, files.size());
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
     }
 
     // initialize the parameters
@@ -228,15 +350,24 @@ public final class PutBlockBlobAction extends AbstractStorageAction {
         String contentTypeArgs = getOptionValue(Constants.CONTENT_TYPE);
         this.contentType = Validator.checkNotEmpty(contentTypeArgs) ? contentTypeArgs
                 : MediaType.APPLICATION_OCTET_STREAM;
+        String parallelismArgs = getOptionValue(Constants.PARALLELISM);
+        if (Validator.checkNotEmpty(parallelismArgs)) {
+            this.parallelism = CommonUtil.getAndCheckUnsignedValue(parallelismArgs);
+        } else {
+            this.parallelism = LocalFileSet.isFileSet(getOptionValue("blobfile")) ? DEFAULT_FILE_SET_PARALLELISM : 1;
+        }
+        this.resume = CommonUtil.convert2Bool(getOptionValue("resume"));
+        String memoryBudgetArgs = getOptionValue("memorybudget");
+        this.memoryBudget = Validator.checkNotEmpty(memoryBudgetArgs) ? CommonUtil
+                .getAndCheckUnsignedValue(memoryBudgetArgs) : DEFAULT_MEMORY_BUDGET_MB;
+        this.pageBlob = PAGE_BLOB.equalsIgnoreCase(getOptionValue("blobtype"));
+        this.ifChanged = CommonUtil.convert2Bool(getOptionValue("ifchanged"));
+        this.delta = CommonUtil.convert2Bool(getOptionValue("delta"));
     }
 
     // validate the parameters
     private void validate() throws AzureException {
-        // validate storage container name
-        if (!Validator.isStorageContainerNameValid(containerName)) {
-            LOGGER.error(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
-            throw new AzureException(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
-        }
+        validateCommon();
 
         // validate blob file
         if (!Validator.checkFileExists(getOptionValue("blobfile"))) {
@@ -244,23 +375,45 @@ public final class PutBlockBlobAction extends AbstractStorageAction {
             throw new AzureException(ExceptionConstants.INVALID_BLOB_FILE);
         }
 
-        // validate content-type
-        try {
-            MediaType.valueOf(contentType);
-        } catch (IllegalArgumentException e) {
-            LOGGER.error(ExceptionConstants.INVALID_BLOB_CONTENT_TYPE);
-            throw new AzureException(ExceptionConstants.INVALID_BLOB_CONTENT_TYPE);
-        }
-
         // validate blob name
         if (!Validator.isContainerBlobNameValid(this.blobName)) {
             LOGGER.error(ExceptionConstants.INVALID_BLOB_NAME);
             throw new AzureException(ExceptionConstants.INVALID_BLOB_NAME);
         }
 
+        // validate blob type
+        String blobType = getOptionValue("blobtype");
+        if (Validator.checkNotEmpty(blobType) && !pageBlob && !BLOCK_BLOB.equalsIgnoreCase(blobType)) {
+            String msg = String.format(ExceptionConstants.INVALID_BLOB_TYPE, blobType);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+
+        // validate the directory of the upload index
+        String indexArgs = getOptionValue("uploadindex");
+        if (Validator.checkNotEmpty(indexArgs)
+                && !Validator.checkFileDirectoryExists(new File(indexArgs).getAbsolutePath())) {
+            String msg = String.format(ExceptionConstants.INVALID_FILE, indexArgs);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+
         // validate the max file size
         fileSize = blobFile.length();
-        long maxBlobSize = 1L * BLOCK_SIZE * MAX_BLOCKS;
+        fileLastModified = blobFile.lastModified();
+        if (pageBlob) {
+            validatePageBlobSize();
+            return;
+        }
+        blockSizePolicy = BlockSizePolicy.forUpload(fileSize, restapiVersion, memoryBudget * 1024L * 1024,
+                parallelism, httpTransport.getMaxStreamedEntitySize());
+        long maxBlobSize = blockSizePolicy.getMaxBlobSize();
+        if (delta) {
+            chunker = ContentDefinedChunker.forFile(fileSize, Math.min(BlockSizePolicy.getMaxBlockSize(restapiVersion),
+                    httpTransport.getMaxStreamedEntitySize()));
+            // every block but the last holds at least the minimum chunk size
+            maxBlobSize = (long) chunker.getMinSize() * (BlockSizePolicy.MAX_BLOCKS - 1);
+        }
         if (fileSize > maxBlobSize) {
             String msg = String.format(ExceptionConstants.ERROR_BLOB_MAX_SIZE, maxBlobSize, fileSize);
             LOGGER.error(msg);
@@ -268,94 +421,98 @@ public final class PutBlockBlobAction extends AbstractStorageAction {
         }
     }
 
-    /**
-     * Utility class to generate the date header
-     */
-    private static class DateHeader {
-        private final DateFormat rfc1123Format;
+    // validate the parameters of an upload of several files
+    private void validateFileSet() throws AzureException {
+        validateCommon();
 
-        public DateHeader() {
-            rfc1123Format = new SimpleDateFormat(Constants.STORAGE_DATE_PATTERN);
-            rfc1123Format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        // options applying to a single file only
+        for (String option : new String[] { "resume", "ifchanged", "delta" }) {
+            if (CommonUtil.convert2Bool(getOptionValue(option))) {
+                String msg = String.format(ExceptionConstants.INVALID_FILE_SET_OPTION, option);
+                LOGGER.error(msg);
+                throw new AzureException(msg);
+            }
         }
-
-        public String getCurrentDate() {
-            return rfc1123Format.format(new Date());
+        if (pageBlob) {
+            String msg = String.format(ExceptionConstants.INVALID_FILE_SET_OPTION, "blobtype");
+            LOGGER.error(msg);
+            throw new AzureException(msg);
         }
     }
 
-    /**
-     * Utility class to generate blockid
-     */
-    private static class BlockIdGenerator {
-        private short blockId = 0;
-        private ByteBuffer buffer = ByteBuffer.allocate(Short.SIZE);
+    // validate the parameters of an upload from the standard input
+    private void validateStream() throws AzureException {
+        validateCommon();
 
-        public String generateBlockIdBase64encoded() throws UnsupportedEncodingException {
-            buffer.putShort(0, blockId++);
-            byte[] blockIdBase64 = Base64.encode(buffer.array());
-            return new String(blockIdBase64, UT8_ENCODING);
+        // the name of the file can not be taken instead
+        if (!Validator.checkNotEmpty(getOptionValue("blobname"))) {
+            LOGGER.error(ExceptionConstants.MISSING_STREAM_BLOB_NAME);
+            throw new AzureException(ExceptionConstants.MISSING_STREAM_BLOB_NAME);
         }
-    }
-
-    /**
-     * Override the FileInputStream functionality for reading bytes.
-     */
-    private static class BlockInputStream extends FileInputStream {
-
-        private long size;
-        private int temp;
-
-        public BlockInputStream(File f, long sz) throws FileNotFoundException {
-            super(f);
-            size = sz;
-            setMaxRead();
+        if (!Validator.isContainerBlobNameValid(this.blobName)) {
+            LOGGER.error(ExceptionConstants.INVALID_BLOB_NAME);
+            throw new AzureException(ExceptionConstants.INVALID_BLOB_NAME);
         }
 
-        private void setMaxRead() {
-            if (size > BLOCK_SIZE) {
-                temp = BLOCK_SIZE;
-            } else {
-                temp = (int) size;
+        // options which need the length or the content of the file up front
+        for (String option : new String[] { "resume", "ifchanged", "delta" }) {
+            if (CommonUtil.convert2Bool(getOptionValue(option))) {
+                String msg = String.format(ExceptionConstants.INVALID_STREAM_OPTION, option);
+                LOGGER.error(msg);
+                throw new AzureException(msg);
             }
         }
-
-        public int read() throws IOException {
-            throw new IOException("System Error: Implementation not supported");
+        if (pageBlob) {
+            String msg = String.format(ExceptionConstants.INVALID_STREAM_OPTION, "blobtype");
+            LOGGER.error(msg);
+            throw new AzureException(msg);
         }
+    }
 
-        public int read(byte[] b) throws IOException {
-            return read(b, 0, b.length);
+    // validate the parameters shared by the upload of a single file and of several files
+    private void validateCommon() throws AzureException {
+        // validate storage container name
+        if (!Validator.isStorageContainerNameValid(containerName)) {
+            LOGGER.error(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
+            throw new AzureException(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
         }
 
-        public int read(byte[] b, int off, int len) throws IOException {
-            int i;
-
-            if (temp == 0) {
-                i = -1;
-            } else if (temp >= len) {
-                i = super.read(b, off, len);
-            } else {
-                i = super.read(b, off, temp);
-            }
-
-            if (i == -1) {
-                temp = 0;
-            } else {
-                temp = temp - i;
-                size = size - i;
-            }
-            return i;
+        // validate content-type
+        try {
+            MediaType.valueOf(contentType);
+        } catch (IllegalArgumentException e) {
+            LOGGER.error(ExceptionConstants.INVALID_BLOB_CONTENT_TYPE);
+            throw new AzureException(ExceptionConstants.INVALID_BLOB_CONTENT_TYPE);
         }
 
-        public void close() {
-            setMaxRead();
+        // validate parallelism
+        if (parallelism < 1 || parallelism > MAX_PARALLELISM) {
+            String msg = String.format(ExceptionConstants.INVALID_PARALLELISM, MAX_PARALLELISM);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
         }
 
-        public void closeNow() throws IOException {
-            super.close();
+        // validate memory budget
+        if (memoryBudget < 1) {
+            LOGGER.error(ExceptionConstants.INVALID_MEMORY_BUDGET);
+            throw new AzureException(ExceptionConstants.INVALID_MEMORY_BUDGET);
         }
+    }
 
+    // a page blob is made of whole pages
+    private void validatePageBlobSize() throws AzureException {
+        if (fileSize % PageRangeScanner.PAGE_SIZE != 0) {
+            String msg = String.format(ExceptionConstants.INVALID_PAGE_BLOB_SIZE, fileSize,
+                    PageRangeScanner.PAGE_SIZE);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+        if (fileSize > PageBlobWriter.MAX_PAGE_BLOB_SIZE) {
+            String msg = String.format(ExceptionConstants.ERROR_BLOB_MAX_SIZE, PageBlobWriter.MAX_PAGE_BLOB_SIZE,
+                    fileSize);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
     }
 
 }
@@ -0,0 +1,102 @@
+package com.automic.azure.actions;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Strings;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.storage.BlobBatch;
+import com.automic.azure.util.CommonUtil;
+import com.automic.azure.util.ConsoleWriter;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+
+/**
+ * Action class to set the access tier of a blob. Block blobs are moved between the Hot, Cool, Cold and Archive tiers,
+ * page blobs of a premium account are given a performance tier P4 to P80. Moving a blob out of the Archive tier
+ * rehydrates it in the background. The Cold tier requires x-ms-version 2021-12-02, an older version is raised to it.
+ *
+ * In bulk mode the tier of the blobs of a prefix or of a file holding one blob name per line is set by Blob Batch
+ * requests of up to 256 blobs each.
+ */
+public final class SetBlobTierAction extends AbstractBulkBlobAction {
+
+    private static final Logger LOGGER = LogManager.getLogger(SetBlobTierAction.class);
+
+    private static final String[] ACCESS_TIERS = { "Hot", "Cool", "Cold", "Archive", "P4", "P6", "P10", "P15",
+            "P20", "P30", "P40", "P50", "P60", "P70", "P80" };
+
+    private static final String COLD_TIER = "Cold";
+    // first service version supporting the Cold tier
+    private static final String MIN_COLD_VERSION = "2021-12-02";
+
+    private String tier;
+
+    public SetBlobTierAction() {
+        addOption("tier", true, "Access tier e.g. Hot, Cool, Cold or Archive");
+    }
+
+    /**
+     * Method makes PUT request to https://myaccount.blob.core.windows.net/mycontainer/myblob?comp=tier
+     */
+    @Override
+    protected void executeSpecific(Client storageHttpClient) throws AzureException {
+        initialize();
+        validate();
+
+        if (blobName != null) {
+            WebResource resource = storageHttpClient.resource(storageAccount.blobURL()).path(containerName)
+                    .path(blobName).queryParam("comp", "tier");
+            LOGGER.info("Calling URL:" + resource.getURI());
+            ClientResponse response = resource.header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                    .header(Constants.X_MS_VERSION, restapiVersion).header("x-ms-access-tier", tier)
+                    .entity(Strings.EMPTY, "text/plain").put(ClientResponse.class);
+            response.close();
+            // 202 Accepted while an archived blob is rehydrated
+            if (response.getStatus() == ClientResponse.Status.ACCEPTED.getStatusCode()) {
+                ConsoleWriter.writeln("Blob [" + blobName + "] is being rehydrated to tier [" + tier + "].");
+            } else {
+                ConsoleWriter.writeln("Access tier of blob [" + blobName + "] has been set to [" + tier + "].");
+            }
+            ConsoleWriter.writeln("UC4RB_AZR_ACCESS_TIER ::=" + tier);
+        } else {
+            executeBulk(storageHttpClient, "UC4RB_AZR_TIERED_BLOBS", ExceptionConstants.BLOB_TIER_CHANGES_FAILED);
+        }
+    }
+
+    @Override
+    protected void addOperation(BlobBatch batch, String name) {
+        batch.addSetTier(containerName, name, tier);
+    }
+
+    // initialize the parameters
+    private void initialize() {
+        initializeSelection();
+        String tierArgs = getOptionValue("tier");
+        tier = null;
+        for (String accessTier : ACCESS_TIERS) {
+            if (accessTier.equalsIgnoreCase(tierArgs)) {
+                tier = accessTier;
+                break;
+            }
+        }
+        if (COLD_TIER.equals(tier) && restapiVersion.compareTo(MIN_COLD_VERSION) < 0) {
+            restapiVersion = MIN_COLD_VERSION;
+        }
+    }
+
+    // validate the parameters
+    private void validate() throws AzureException {
+        validateSelection();
+
+        if (tier == null) {
+            String msg = String.format(ExceptionConstants.INVALID_ACCESS_TIER, getOptionValue("tier"));
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+    }
+
+}
@@ -0,0 +1,438 @@
+package com.automic.azure.actions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.core.MediaType;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.exception.AzureRuntimeException;
+import com.automic.azure.storage.PageBlobWriter;
+import com.automic.azure.storage.PageRangeLister;
+import com.automic.azure.storage.PageRangeScanner;
+import com.automic.azure.storage.PageSyncState;
+import com.automic.azure.util.BoundedExecutor;
+import com.automic.azure.util.CommonUtil;
+import com.automic.azure.util.ConsoleWriter;
+import com.automic.azure.util.FileBlock;
+import com.automic.azure.util.FileBlockSource;
+import com.automic.azure.util.Validator;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+
+/**
+ * Action class to synchronize a page blob with a local disk image. Only the regions which differ between the file and
+ * the blob are written, so a regular refresh costs in proportion to the changes rather than to the size of the disk.
+ *
+ * A region differs if the file has changed there since the previous synchronization, known from the chunk hashes
+ * kept in a state file, or if the blob has changed there since the snapshot taken after the previous synchronization,
+ * known from the page ranges of the blob which differ from the snapshot. Without a usable state every chunk of the
+ * file holding data and every range of the blob holding data is written. A snapshot of the synchronized blob is taken
+ * at the end and kept with the chunk hashes for the next run, the snapshot of the previous run is deleted then.
+ */
+public final class SyncPageBlobAction extends AbstractStorageAction {
+
+    private static final Logger LOGGER = LogManager.getLogger(SyncPageBlobAction.class);
+
+    // Maximum number of ranges written in parallel
+    private static final int MAX_PARALLELISM = 64;
+
+    // smallest chunk compared by its hash, doubled for large files to bound the size of the state
+    private static final int MIN_CHUNK_SIZE = 512 * 1024;
+    private static final int MAX_CHUNKS = 256 * 1024;
+
+    // section of the blob whose page ranges are listed by one request
+    private static final long SECTION_SIZE = 1024L * 1024 * 1024;
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private String containerName;
+    private String blobName;
+    private File blobFile;
+    private File stateFile;
+    private int parallelism;
+
+    private long fileSize;
+    private int chunkSize;
+
+    public SyncPageBlobAction() {
+        addOption(Constants.CONTAINER_NAME, true, "Storage Container Name");
+        addOption("blobname", false, "Name of the page blob");
+        addOption("blobfile", true, "Disk image file path");
+        addOption("statefile", false, "File keeping the state of the synchronization for the next run");
+        addOption(Constants.PARALLELISM, false, "Number of ranges written in parallel");
+    }
+
+    /**
+     * Method makes PUT requests to https://myaccount.blob.core.windows.net/mycontainer/myblob?comp=page for the ranges
+     * which differ and takes a snapshot of the blob afterwards
+     */
+    @Override
+    protected void executeSpecific(Client storageHttpClient) throws AzureException {
+        initialize();
+        validate();
+
+        WebResource blob = storageHttpClient.resource(storageAccount.blobURL()).path(containerName).path(blobName);
+        PageBlobWriter writer = new PageBlobWriter(blob, restapiVersion);
+        int chunkCount = (int) ((fileSize + chunkSize - 1) / chunkSize);
+        String syncId = getSyncKey() + " " + fileSize + " " + chunkSize + " " + HASH_ALGORITHM;
+
+        long blobSize = getBlobSize(blob);
+        PageSyncState state = null;
+        if (blobSize < 0) {
+            LOGGER.info("Blob [" + blobName + "] does not exist and is created.");
+            writer.create(fileSize, MediaType.APPLICATION_OCTET_STREAM);
+        } else if (blobSize != fileSize) {
+            // the state was taken for a disk of a different size
+            writer.resize(fileSize);
+        } else {
+            state = readState(syncId, chunkCount);
+        }
+        String previousSnapshot = state != null ? state.getSnapshot() : null;
+
+        RemoteChanges remoteChanges = null;
+        if (blobSize >= 0) {
+            remoteChanges = openRemoteChanges(blob, state);
+            if (remoteChanges == null) {
+                state = null;
+                remoteChanges = new RemoteChanges(new PageRangeLister(blob, restapiVersion, null), fileSize);
+            }
+        }
+        if (state == null) {
+            LOGGER.info("No state of a previous synchronization, all the regions holding data are written.");
+        }
+
+        byte[] hashes = new byte[chunkCount * getDigest().getDigestLength()];
+        long uploadedBytes = synchronize(writer, state, remoteChanges, blobSize >= 0, hashes);
+
+        String snapshot = writer.createSnapshot();
+        try {
+            PageSyncState.write(stateFile, syncId, snapshot, hashes);
+            if (previousSnapshot != null) {
+                deleteSnapshot(writer, previousSnapshot);
+            }
+        } catch (IOException e) {
+            // the next run writes all the regions holding data
+            LOGGER.error("Unable to write synchronization state [" + stateFile + "]", e);
+        }
+
+        LOGGER.info("Blob [" + blobName + "] has been synchronized.");
+        ConsoleWriter.writeln("UC4RB_AZR_BLOB_NAME ::=" + blobName);
+        ConsoleWriter.writeln("UC4RB_AZR_SNAPSHOT ::=" + snapshot);
+        ConsoleWriter.writeln("UC4RB_AZR_UPLOADED_BYTES ::=" + uploadedBytes);
+    }
+
+    // the previous snapshot is no longer referenced by the state, it would otherwise keep its pages forever
+    private void deleteSnapshot(PageBlobWriter writer, String snapshot) {
+        try {
+            writer.deleteSnapshot(snapshot);
+        } catch (AzureRuntimeException | ClientHandlerException e) {
+            LOGGER.error("Unable to delete snapshot [" + snapshot + "] of blob [" + blobName + "]", e);
+        }
+    }
+
+    // Get Blob Properties: HEAD https://myaccount.blob.core.windows.net/mycontainer/myblob, -1 if there is no blob
+    private long getBlobSize(WebResource blob) throws AzureException {
+        ClientResponse properties;
+        try {
+            properties = blob.header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                    .header(Constants.X_MS_VERSION, restapiVersion).head();
+        } catch (AzureRuntimeException e) {
+            if (e.getStatusCode() == ClientResponse.Status.NOT_FOUND.getStatusCode()) {
+                return -1;
+            }
+            throw e;
+        }
+        if (!"PageBlob".equals(properties.getHeaders().getFirst("x-ms-blob-type"))) {
+            String msg = String.format(ExceptionConstants.NOT_A_PAGE_BLOB, blobName);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+        return Long.parseLong(properties.getHeaders().getFirst("Content-Length"));
+    }
+
+    private PageSyncState readState(String syncId, int chunkCount) {
+        try {
+            return PageSyncState.read(stateFile, syncId, chunkCount, getDigest().getDigestLength());
+        } catch (IOException e) {
+            LOGGER.error("Unable to read synchronization state [" + stateFile + "]", e);
+            return null;
+        }
+    }
+
+    // changes of the blob since the snapshot of the state, null if the snapshot can not be compared against
+    private RemoteChanges openRemoteChanges(WebResource blob, PageSyncState state) throws AzureException {
+        if (state == null) {
+            return null;
+        }
+        RemoteChanges remoteChanges = new RemoteChanges(new PageRangeLister(blob, restapiVersion,
+                state.getSnapshot()), fileSize);
+        try {
+            remoteChanges.overlaps(0, 0);
+            return remoteChanges;
+        } catch (AzureRuntimeException e) {
+            // snapshot deleted or not comparable
+            int status = e.getStatusCode();
+            if (status == ClientResponse.Status.NOT_FOUND.getStatusCode()
+                    || status == ClientResponse.Status.CONFLICT.getStatusCode()
+                    || status == ClientResponse.Status.BAD_REQUEST.getStatusCode()) {
+                LOGGER.info("Snapshot [" + state.getSnapshot() + "] can not be compared against.");
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Read the file chunk by chunk and write the runs of chunks which have changed locally or on the service
+     *
+     * @return number of bytes written
+     */
+    private long synchronize(final PageBlobWriter writer, PageSyncState state, RemoteChanges remoteChanges,
+            final boolean blobExisted, byte[] hashes) throws AzureException {
+        final AtomicLong uploadedBytes = new AtomicLong();
+        long changedBytes = 0;
+        MessageDigest digest = getDigest();
+        int hashLength = digest.getDigestLength();
+        byte[] chunk = new byte[chunkSize];
+
+        LOGGER.info("Comparing chunks of [" + chunkSize + "] bytes using [" + parallelism
+                + "] parallel connection(s).");
+        FileBlockSource blockSource = null;
+        final BoundedExecutor executor = new BoundedExecutor(parallelism, ExceptionConstants.ERROR_PAGE_BLOB_SYNC);
+        try {
+            blockSource = new FileBlockSource(blobFile);
+            final FileBlockSource source = blockSource;
+            InputStream in = source.block(0, fileSize).openStream();
+            long maxSpan = Math.max(PageRangeScanner.MAX_RANGE_SIZE, chunkSize);
+            long spanStart = -1;
+            long spanEnd = 0;
+            for (int i = 0; i * (long) chunkSize < fileSize; i++) {
+                long start = i * (long) chunkSize;
+                int length = (int) Math.min(chunkSize, fileSize - start);
+                readFully(in, chunk, length);
+                digest.update(chunk, 0, length);
+                byte[] hash = digest.digest();
+                System.arraycopy(hash, 0, hashes, i * hashLength, hashLength);
+
+                boolean changed = state != null ? !state.isUnchanged(i, hash) : !PageRangeScanner.isZero(chunk, 0,
+                        length);
+                if (!changed && (remoteChanges == null || !remoteChanges.overlaps(start, start + length))) {
+                    continue;
+                }
+                changedBytes += length;
+                if (spanStart >= 0 && (spanEnd != start || spanEnd + length - spanStart > maxSpan)) {
+                    submitSpan(executor, writer, source, spanStart, spanEnd - spanStart, blobExisted,
+                            uploadedBytes);
+                    spanStart = -1;
+                }
+                if (spanStart < 0) {
+                    spanStart = start;
+                }
+                spanEnd = start + length;
+            }
+            if (spanStart >= 0) {
+                submitSpan(executor, writer, source, spanStart, spanEnd - spanStart, blobExisted, uploadedBytes);
+            }
+            executor.awaitCompletion();
+        } catch (IOException e) {
+            LOGGER.error(ExceptionConstants.ERROR_PAGE_BLOB_SYNC, e);
+            throw new AzureException(ExceptionConstants.ERROR_PAGE_BLOB_SYNC);
+        } finally {
+            executor.shutdown();
+            closeBlockSource(blockSource);
+        }
+        LOGGER.info("[" + changedBytes + "] of [" + fileSize + "] bytes differ, [" + uploadedBytes.get()
+                + "] bytes holding data have been written.");
+        return uploadedBytes.get();
+    }
+
+    /**
+     * Write a run of changed chunks. The pages holding data are put, the run is cleared first if it also holds zero
+     * pages, which may hold data on the service.
+     */
+    private static void submitSpan(BoundedExecutor executor, final PageBlobWriter writer,
+            final FileBlockSource source, final long offset, final long length, final boolean blobExisted,
+            final AtomicLong uploadedBytes) throws AzureException {
+        executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException, AzureException {
+                final List<FileBlock> ranges = new ArrayList<FileBlock>();
+                long dataBytes = new PageRangeScanner().scan(source.block(offset, length).openStream(),
+                        new PageRangeScanner.RangeHandler() {
+                            @Override
+                            public void handle(long rangeOffset, long rangeLength) {
+                                ranges.add(source.block(offset + rangeOffset, rangeLength));
+                            }
+                        });
+                if (blobExisted && dataBytes < length) {
+                    writer.clearPages(offset, length);
+                }
+                for (FileBlock range : ranges) {
+                    writer.putPages(range);
+                    uploadedBytes.addAndGet(range.getLength());
+                }
+                return null;
+            }
+        });
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int filled = 0;
+        while (filled < length) {
+            int n = in.read(buffer, filled, length - filled);
+            if (n == -1) {
+                throw new IOException("Unexpected end of file");
+            }
+            filled += n;
+        }
+    }
+
+    private void closeBlockSource(FileBlockSource blockSource) {
+        if (blockSource != null) {
+            try {
+                blockSource.close();
+            } catch (IOException e) {
+                LOGGER.error(ExceptionConstants.UNABLE_TO_CLOSE_STREAM, e);
+            }
+        }
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private String getSyncKey() {
+        String path;
+        try {
+            path = blobFile.getCanonicalPath();
+        } catch (IOException e) {
+            path = blobFile.getAbsolutePath();
+        }
+        return storageAccount.getAccountName() + "/" + containerName + "/" + blobName + "|" + path;
+    }
+
+    // initialize the parameters
+    private void initialize() {
+        containerName = getOptionValue(Constants.CONTAINER_NAME);
+        blobFile = new File(getOptionValue("blobfile"));
+        blobName = getOptionValue("blobname");
+        if (!Validator.checkNotEmpty(blobName)) {
+            blobName = blobFile.getName();
+        }
+        String parallelismArgs = getOptionValue(Constants.PARALLELISM);
+        parallelism = Validator.checkNotEmpty(parallelismArgs) ? CommonUtil.getAndCheckUnsignedValue(parallelismArgs)
+                : 1;
+        fileSize = blobFile.length();
+        chunkSize = MIN_CHUNK_SIZE;
+        while (fileSize / chunkSize > MAX_CHUNKS) {
+            chunkSize *= 2;
+        }
+        String stateFileArgs = getOptionValue("statefile");
+        stateFile = Validator.checkNotEmpty(stateFileArgs) ? new File(stateFileArgs) : PageSyncState
+                .getStateFile(getSyncKey());
+    }
+
+    // validate the parameters
+    private void validate() throws AzureException {
+        // validate storage container name
+        if (!Validator.isStorageContainerNameValid(containerName)) {
+            LOGGER.error(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
+            throw new AzureException(ExceptionConstants.INVALID_STORAGE_CONTAINER_NAME);
+        }
+
+        // validate blob name
+        if (!Validator.isContainerBlobNameValid(blobName)) {
+            LOGGER.error(ExceptionConstants.INVALID_BLOB_NAME);
+            throw new AzureException(ExceptionConstants.INVALID_BLOB_NAME);
+        }
+
+        // validate blob file
+        if (!Validator.checkFileExists(blobFile.getPath())) {
+            LOGGER.error(ExceptionConstants.INVALID_BLOB_FILE);
+            throw new AzureException(ExceptionConstants.INVALID_BLOB_FILE);
+        }
+
+        // a page blob is made of whole pages
+        if (fileSize % PageRangeScanner.PAGE_SIZE != 0) {
+            String msg = String.format(ExceptionConstants.INVALID_PAGE_BLOB_SIZE, fileSize,
+                    PageRangeScanner.PAGE_SIZE);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+        if (fileSize > PageBlobWriter.MAX_PAGE_BLOB_SIZE) {
+            String msg = String.format(ExceptionConstants.ERROR_BLOB_MAX_SIZE, PageBlobWriter.MAX_PAGE_BLOB_SIZE,
+                    fileSize);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+
+        // validate the directory of the state file
+        if (!Validator.checkFileDirectoryExists(stateFile.getAbsolutePath())) {
+            String msg = String.format(ExceptionConstants.INVALID_FILE, stateFile);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+
+        // validate parallelism
+        if (parallelism < 1 || parallelism > MAX_PARALLELISM) {
+            String msg = String.format(ExceptionConstants.INVALID_PARALLELISM, MAX_PARALLELISM);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+    }
+
+    /**
+     * Page ranges of the blob listed one section at a time, while the chunks are looked at in file order
+     */
+    private static final class RemoteChanges {
+
+        private final PageRangeLister lister;
+        private final long blobSize;
+        private List<long[]> ranges = Collections.emptyList();
+        private int next;
+        private long sectionEnd;
+
+        RemoteChanges(PageRangeLister lister, long blobSize) {
+            this.lister = lister;
+            this.blobSize = blobSize;
+        }
+
+        /**
+         * Check if a range of the blob overlaps one of the page ranges. Ranges have to be checked in ascending order
+         * and must not span two sections.
+         */
+        boolean overlaps(long start, long end) throws AzureException {
+            while (start >= sectionEnd && sectionEnd < blobSize) {
+                long length = Math.min(SECTION_SIZE, blobSize - sectionEnd);
+                ranges = lister.list(sectionEnd, length);
+                next = 0;
+                sectionEnd += length;
+            }
+            while (next < ranges.size() && ranges.get(next)[1] <= start) {
+                next++;
+            }
+            return next < ranges.size() && ranges.get(next)[0] < end;
+        }
+    }
+
+}
@@ -1,5 +1,8 @@
 package com.automic.azure.cli;
 
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
@@ -14,6 +17,7 @@ import org.apache.logging.log4j.Logger;
 
 import com.automic.azure.constants.ExceptionConstants;
 import com.automic.azure.exception.AzureException;
+import com.automic.azure.util.ConsoleWriter;
 
 /**
  * This class is used to parse the arguments against provided options using apache cli library. Further this class
@@ -52,7 +56,11 @@ public class AzureCli {
 
     private void printHelp(Options options) {
         HelpFormatter formater = new HelpFormatter();
-        formater.printHelp("Usage ", options);
+        // print to the console of the action, which is not the standard output when run by the daemon
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(ConsoleWriter.getStream(), StandardCharsets.UTF_8));
+        formater.printHelp(writer, formater.getWidth(), "Usage ", null, options, formater.getLeftPadding(),
+                formater.getDescPadding(), null);
+        writer.flush();
     }
 
 }
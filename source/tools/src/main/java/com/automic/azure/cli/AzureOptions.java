@@ -33,7 +33,23 @@ public final class AzureOptions {
         azureOpts.addOption(Option.builder(optionName).required(isRequired).hasArg().desc(description).build());
     }
     
-    Options getOptions() {
+    /**
+     * Method to check if an option is known
+     * 
+     * @param optionName
+     *            name of the option
+     * @return true if the option has been added
+     */
+    public boolean hasOption(String optionName) {
+        return azureOpts.hasOption(optionName);
+    }
+
+    /**
+     * Method to get the options to parse arguments against
+     * 
+     * @return the options
+     */
+    public Options getOptions() {
         return azureOpts;
     }
     
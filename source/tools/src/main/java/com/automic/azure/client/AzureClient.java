@@ -35,6 +35,18 @@ public final class AzureClient {
      *            array of Arguments
      */
     public static void main(String[] args) {
+        System.exit(execute(args));
+    }
+
+    /**
+     * Method to execute an action and handle the failed scenario without leaving the JVM, so that it can also be used
+     * to run several actions one after another.
+     * 
+     * @param args
+     *            array of Arguments
+     * @return response code of the action
+     */
+    public static int execute(String[] args) {
         int responseCode = RESPONSE_OK;
         try {
             AzureClientHelper.executeAction(args);
@@ -44,7 +56,7 @@ public final class AzureClient {
             ConsoleWriter.flush();
         }
         LOGGER.info("@@@@@@@ Execution ends for action  with response code : " + responseCode);
-        System.exit(responseCode);
+        return responseCode;
     }
 
 }
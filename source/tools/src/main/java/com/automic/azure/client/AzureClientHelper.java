@@ -26,12 +26,17 @@ public final class AzureClientHelper {
 
     /**
      * Method to delegate parameters to an instance of {@link AbstractAction} based on the value of Action parameter.
+     * With -batchfile the actions listed in the file are run instead, see {@link BatchRunner}.
      * 
      * @param map
      *            of options with key as option name and value is option value
      * @throws AzureException
      */
     public static void executeAction(String[] args) throws AzureException {
+        if (BatchRunner.isBatch(args)) {
+            new BatchRunner(args).run();
+            return;
+        }
         String action = new AzureCli(new AzureOptions(), args).getOptionValue(Constants.ACTION).toUpperCase();
         LOGGER.info("Execution starts for action [" + action + "]...");
         AbstractAction useraction = ActionFactory.getAction(Action.valueOf(action));
@@ -0,0 +1,237 @@
+package com.automic.azure.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.config.ClientRegistry;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.exception.util.ExceptionHandler;
+import com.automic.azure.util.CommonUtil;
+import com.automic.azure.util.ConsoleWriter;
+
+/**
+ * Long running process executing actions sent by the {@link AzureLauncher}. Actions run in this JVM one per
+ * connection, so class loading, logging and JAXB setup happen once, and HTTP clients with their SSL context and open
+ * connections are reused through the {@link ClientRegistry}.
+ *
+ * The daemon only listens on the loopback interface. A random token is written to a file created readable by the
+ * current user only, in a directory only this user can access, and a launcher has to present it before an action is
+ * run. The daemon does not start if the file can not be created that way, see {@link DaemonProtocol}.
+ *
+ * Usage: java -cp azure-tool.jar com.automic.azure.client.AzureDaemon -daemonport &lt;port&gt; [-daemonthreads &lt;n&gt;]
+ */
+public final class AzureDaemon {
+
+    private static final Logger LOGGER = LogManager.getLogger(AzureDaemon.class);
+
+    private static final String DAEMON_THREADS = "daemonthreads";
+    private static final int DEFAULT_THREADS = 16;
+    private static final int BACKLOG = 50;
+
+    // time a launcher has to send its request
+    private static final int REQUEST_TIMEOUT = 30000;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions;
+    private final Path tokenFile;
+    private final byte[] token;
+
+    private AzureDaemon(int port, int threads) throws IOException {
+        this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        this.token = DaemonProtocol.createNonce().getBytes(StandardCharsets.UTF_8);
+        try {
+            this.tokenFile = DaemonProtocol.createTokenFile(serverSocket.getLocalPort(), token);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+        tokenFile.toFile().deleteOnExit();
+        this.sessions = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Main method
+     *
+     * @param args
+     *            array of Arguments
+     */
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(Option.builder(DaemonProtocol.DAEMON_PORT).required().hasArg().desc("Loopback port")
+                .build());
+        options.addOption(Option.builder(DAEMON_THREADS).hasArg().desc("Number of actions run in parallel").build());
+
+        final AzureDaemon daemon;
+        try {
+            CommandLine cmd = new DefaultParser().parse(options, args);
+            int port = CommonUtil.getAndCheckUnsignedValue(cmd.getOptionValue(DaemonProtocol.DAEMON_PORT));
+            int threads = cmd.hasOption(DAEMON_THREADS) ? CommonUtil.getAndCheckUnsignedValue(cmd
+                    .getOptionValue(DAEMON_THREADS)) : DEFAULT_THREADS;
+            if (port < 1 || threads < 1) {
+                throw new ParseException("Port and number of threads should be positive values");
+            }
+            daemon = new AzureDaemon(port, threads);
+        } catch (ParseException | IOException e) {
+            LOGGER.error("Unable to start the daemon", e);
+            System.err.println(CommonUtil.formatErrorMessage("Unable to start the daemon: " + e.getMessage()));
+            System.exit(1);
+            return;
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                daemon.stop();
+            }
+        });
+        daemon.run();
+    }
+
+    private void run() {
+        ClientRegistry.enable();
+        LOGGER.info("Daemon listening on port " + serverSocket.getLocalPort());
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                sessions.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                });
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    LOGGER.error("Error while accepting a connection", e);
+                }
+            }
+        }
+    }
+
+    private void stop() {
+        LOGGER.info("Stopping daemon");
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            LOGGER.error("Error while closing the server socket", e);
+        }
+        sessions.shutdownNow();
+        ClientRegistry.destroyAll();
+        try {
+            Files.deleteIfExists(tokenFile);
+        } catch (IOException e) {
+            LOGGER.error("Unable to delete token file " + tokenFile, e);
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setSoTimeout(REQUEST_TIMEOUT);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            String challenge = DaemonProtocol.readString(in);
+            DaemonProtocol.writeString(out, DaemonProtocol.answerChallenge(token, challenge));
+            out.flush();
+            byte[] clientToken = DaemonProtocol.readString(in).getBytes(StandardCharsets.UTF_8);
+            if (!MessageDigest.isEqual(token, clientToken)) {
+                LOGGER.error("Rejected connection with invalid token from " + socket.getRemoteSocketAddress());
+                return;
+            }
+            int argCount = in.readInt();
+            if (argCount < 0 || argCount > DaemonProtocol.MAX_ARGS) {
+                LOGGER.error("Rejected request with " + argCount + " arguments");
+                return;
+            }
+            String[] args = new String[argCount];
+            for (int i = 0; i < argCount; i++) {
+                args[i] = DaemonProtocol.readString(in);
+            }
+            socket.setSoTimeout(0);
+
+            ConsoleWriter.redirect(new FrameOutputStream(out));
+            int responseCode;
+            try {
+                if (DaemonProtocol.readsStandardInput(args)) {
+                    // its standard input is not the one of the caller
+                    LOGGER.error(ExceptionConstants.STDIN_NOT_AVAILABLE);
+                    responseCode = ExceptionHandler.handleException(new AzureException(
+                            ExceptionConstants.STDIN_NOT_AVAILABLE));
+                } else {
+                    responseCode = AzureClient.execute(args);
+                }
+            } finally {
+                ConsoleWriter.flush();
+                ConsoleWriter.reset();
+            }
+            out.writeByte(DaemonProtocol.FRAME_EXIT);
+            out.writeInt(responseCode);
+            out.flush();
+        } catch (IOException e) {
+            LOGGER.error("Error while serving " + socket.getRemoteSocketAddress(), e);
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                LOGGER.error("Error while closing connection", e);
+            }
+        }
+    }
+
+    /**
+     * Stream sending everything written to it as output frames
+     */
+    private static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+
+        FrameOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                out.writeByte(DaemonProtocol.FRAME_OUTPUT);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+}
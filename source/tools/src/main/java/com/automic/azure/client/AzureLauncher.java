@@ -0,0 +1,154 @@
+package com.automic.azure.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thin entry point which runs an action on a running {@link AzureDaemon} instead of in its own JVM. It takes the same
+ * arguments as {@link AzureClient} plus the port of the daemon, prints the console output of the action and exits with
+ * its response code. Paths of local files are made absolute first, as the daemon has another working directory.
+ *
+ * If no daemon is reachable, the action is run in this JVM as {@link AzureClient} would. So is an upload from the
+ * standard input, which the daemon can not read, and a batch file. Nothing is sent to a daemon whose token file is
+ * accessible by another user or which does not answer the challenge with its token, see {@link DaemonProtocol}.
+ *
+ * Usage: java -cp azure-tool.jar com.automic.azure.client.AzureLauncher -daemonport &lt;port&gt; -action ...
+ *
+ * The launcher must stay free of logging, JAXB and HTTP classes, they are only loaded when falling back.
+ */
+public final class AzureLauncher {
+
+    private static final int RESPONSE_NOT_OK = 1;
+
+    private static final int CONNECT_TIMEOUT = 2000;
+
+    private AzureLauncher() {
+    }
+
+    /**
+     * Main method
+     *
+     * @param args
+     *            array of Arguments
+     */
+    public static void main(String[] args) {
+        List<String> actionArgs = new ArrayList<String>();
+        int port = -1;
+        for (int i = 0; i < args.length; i++) {
+            if (("-" + DaemonProtocol.DAEMON_PORT).equals(args[i]) && i + 1 < args.length) {
+                port = parsePort(args[++i]);
+            } else {
+                actionArgs.add(args[i]);
+            }
+        }
+        String[] forwardedArgs = actionArgs.toArray(new String[actionArgs.size()]);
+
+        boolean onDaemon = port > 0 && !DaemonProtocol.readsStandardInput(forwardedArgs)
+                && !DaemonProtocol.isBatch(forwardedArgs);
+        Integer responseCode = onDaemon ? runOnDaemon(port, DaemonProtocol.resolvePaths(forwardedArgs)) : null;
+        if (responseCode == null) {
+            responseCode = AzureClient.execute(forwardedArgs);
+        }
+        System.exit(responseCode);
+    }
+
+    /**
+     * Run the action on the daemon.
+     *
+     * @return response code of the action or null if the daemon could not be reached or is not trusted
+     */
+    private static Integer runOnDaemon(int port, String[] args) {
+        Socket socket = new Socket();
+        try {
+            String token;
+            try {
+                token = DaemonProtocol.readToken(port);
+                socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT);
+                socket.setSoTimeout(CONNECT_TIMEOUT);
+                if (!authenticateDaemon(socket, token)) {
+                    return null;
+                }
+                socket.setSoTimeout(0);
+            } catch (IOException e) {
+                // no daemon running or not the one of the token file
+                return null;
+            }
+            return exchange(socket, token, args);
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore, nothing left to read
+            }
+        }
+    }
+
+    // nothing has been sent to the daemon yet, so the action can still be run in this JVM on failure
+    private static boolean authenticateDaemon(Socket socket, String token) throws IOException {
+        String challenge = DaemonProtocol.createNonce();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        DaemonProtocol.writeString(out, challenge);
+        out.flush();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        String answer = DaemonProtocol.readString(in);
+        String expected = DaemonProtocol.answerChallenge(token.getBytes(StandardCharsets.UTF_8), challenge);
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                answer.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int exchange(Socket socket, String token, String[] args) {
+        PrintStream console = System.out;
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DaemonProtocol.writeString(out, token);
+            out.writeInt(args.length);
+            for (String arg : args) {
+                DaemonProtocol.writeString(out, arg);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            byte[] buffer = new byte[0];
+            while (true) {
+                byte frame = in.readByte();
+                if (frame == DaemonProtocol.FRAME_EXIT) {
+                    console.flush();
+                    return in.readInt();
+                } else if (frame != DaemonProtocol.FRAME_OUTPUT) {
+                    throw new IOException("Unknown frame " + frame);
+                }
+                int length = in.readInt();
+                if (buffer.length < length) {
+                    buffer = new byte[length];
+                }
+                in.readFully(buffer, 0, length);
+                console.write(buffer, 0, length);
+            }
+        } catch (IOException e) {
+            // the action may have been started, it must not be run a second time
+            console.println("ERROR | Connection to the daemon lost: " + e.getMessage());
+            console.flush();
+            return RESPONSE_NOT_OK;
+        }
+    }
+
+    private static int parsePort(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+}
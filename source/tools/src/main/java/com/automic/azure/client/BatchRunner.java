@@ -0,0 +1,394 @@
+package com.automic.azure.client;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.actions.AbstractAction;
+import com.automic.azure.actions.ActionFactory;
+import com.automic.azure.config.ClientRegistry;
+import com.automic.azure.constants.Action;
+import com.automic.azure.constants.Constants;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.exception.util.ExceptionHandler;
+import com.automic.azure.util.BoundedExecutor;
+import com.automic.azure.util.CommonUtil;
+import com.automic.azure.util.ConsoleWriter;
+import com.automic.azure.util.Validator;
+
+/**
+ * Runs the entries of a batch file in one JVM. Each line of the file holds the arguments of one action, as they would
+ * be passed to {@link AzureClient}. Empty lines and lines starting with # are skipped, arguments containing blanks are
+ * enclosed in double quotes. The arguments passed along with -batchfile, typically credentials, timeouts and
+ * x-ms-version, are added to every entry whose action accepts them and which does not set them itself. Arguments are
+ * parsed by commons-cli as on the command line, and every entry is checked against the options of its action before
+ * the first entry runs.
+ *
+ * Entries run on up to -batchconcurrency threads and share their HTTP clients. The output of an entry is printed as one
+ * block once the entry completes. Its UC4RB_ variables are suffixed with the entry number and followed by the response
+ * code of the entry.
+ */
+final class BatchRunner {
+
+    private static final Logger LOGGER = LogManager.getLogger(BatchRunner.class);
+
+    private static final int MAX_CONCURRENCY = 64;
+
+    private static final String COMMENT = "#";
+
+    private static final Pattern VARIABLE = Pattern.compile("^(UC4RB_\\w+?)(\\s*::=)", Pattern.MULTILINE);
+
+    private final Options batchOptions;
+    private final String batchFile;
+    private final int concurrency;
+    private final Map<String, String> commonArgs = new LinkedHashMap<String, String>();
+
+    /**
+     * @param args
+     *            arguments with -batchfile, -batchconcurrency and the arguments common to all entries
+     * @throws AzureException
+     */
+    BatchRunner(String[] args) throws AzureException {
+        this.batchOptions = createBatchOptions();
+        CommandLine cmd = parseArgs(batchOptions, args, 0);
+        this.batchFile = cmd.getOptionValue(Constants.BATCH_FILE);
+        String concurrencyValue = cmd.getOptionValue(Constants.BATCH_CONCURRENCY);
+        this.concurrency = concurrencyValue != null ? CommonUtil.getAndCheckUnsignedValue(concurrencyValue) : 1;
+        for (Option option : cmd.getOptions()) {
+            String name = option.getOpt();
+            if (!Constants.BATCH_FILE.equals(name) && !Constants.BATCH_CONCURRENCY.equals(name)
+                    && !Constants.ACTION.equals(name)) {
+                commonArgs.put(name, option.getValue());
+            }
+        }
+        validate();
+    }
+
+    /**
+     * Check if the arguments ask for a batch
+     *
+     * @param args
+     *            command line arguments
+     * @return true if -batchfile is given
+     */
+    static boolean isBatch(String[] args) {
+        return Arrays.asList(args).contains("-" + Constants.BATCH_FILE);
+    }
+
+    /**
+     * Run all the entries of the batch file
+     *
+     * @throws AzureException
+     *             if the batch file is invalid or any entry failed
+     */
+    void run() throws AzureException {
+        List<BatchEntry> entries = readEntries();
+        LOGGER.info("Execution starts for batch [" + batchFile + "] with [" + entries.size() + "] entries...");
+
+        final OutputStream console = ConsoleWriter.getStream();
+        final AtomicInteger failed = new AtomicInteger();
+        // share the clients between the entries unless a daemon already does
+        boolean shareClients = !ClientRegistry.isEnabled();
+        if (shareClients) {
+            ClientRegistry.enable();
+        }
+        BoundedExecutor executor = new BoundedExecutor(concurrency, ExceptionConstants.ERROR_RUNNING_BATCH);
+        try {
+            for (final BatchEntry entry : entries) {
+                executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        if (entry.run() != 0) {
+                            failed.incrementAndGet();
+                        }
+                        entry.report(console);
+                        return null;
+                    }
+                });
+            }
+            executor.awaitCompletion();
+        } finally {
+            executor.shutdown();
+            if (shareClients) {
+                ClientRegistry.destroyAll();
+            }
+        }
+
+        ConsoleWriter.writeln("UC4RB_AZR_BATCH_ENTRIES ::= " + entries.size());
+        ConsoleWriter.writeln("UC4RB_AZR_BATCH_FAILED ::= " + failed.get());
+        if (failed.get() > 0) {
+            String msg = String.format(ExceptionConstants.BATCH_ENTRIES_FAILED, failed.get(), entries.size());
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+    }
+
+    private void validate() throws AzureException {
+        if (!Validator.checkFileExists(batchFile)) {
+            String msg = String.format(ExceptionConstants.INVALID_FILE, batchFile);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+        if (concurrency < 1 || concurrency > MAX_CONCURRENCY) {
+            String msg = String.format(ExceptionConstants.INVALID_BATCH_CONCURRENCY, MAX_CONCURRENCY);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+    }
+
+    private List<BatchEntry> readEntries() throws AzureException {
+        List<BatchEntry> entries = new ArrayList<BatchEntry>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(batchFile), StandardCharsets.UTF_8));
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith(COMMENT)) {
+                    entries.add(parseEntry(entries.size() + 1, lineNumber, line));
+                }
+            }
+        } catch (IOException e) {
+            String msg = String.format(ExceptionConstants.UNABLE_TO_READ_FILE, batchFile);
+            LOGGER.error(msg, e);
+            throw new AzureException(msg);
+        } finally {
+            closeReader(reader);
+        }
+
+        if (entries.isEmpty()) {
+            String msg = String.format(ExceptionConstants.EMPTY_BATCH_FILE, batchFile);
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+        return entries;
+    }
+
+    private BatchEntry parseEntry(int number, int lineNumber, String line) throws AzureException {
+        List<String> args = tokenize(line, lineNumber);
+        CommandLine cmd = parseArgs(batchOptions, args.toArray(new String[args.size()]), lineNumber);
+        if (cmd.hasOption(Constants.BATCH_FILE) || cmd.hasOption(Constants.BATCH_CONCURRENCY)) {
+            throw invalidEntry(lineNumber, "Batch files can not be nested");
+        }
+        String actionName = cmd.getOptionValue(Constants.ACTION);
+        if (!Validator.checkNotEmpty(actionName)) {
+            throw invalidEntry(lineNumber, "Missing action");
+        }
+        Action action;
+        AbstractAction useraction;
+        try {
+            action = Action.valueOf(actionName.trim().toUpperCase());
+            useraction = ActionFactory.getAction(action);
+        } catch (IllegalArgumentException | AzureException e) {
+            throw invalidEntry(lineNumber, "Unknown action [" + actionName + "], valid actions are "
+                    + Action.getActionNames());
+        }
+
+        List<String> merged = new ArrayList<String>(args);
+        for (Map.Entry<String, String> common : commonArgs.entrySet()) {
+            if (!cmd.hasOption(common.getKey()) && useraction.supportsOption(common.getKey())) {
+                merged.add("-" + common.getKey());
+                if (common.getValue() != null) {
+                    merged.add(common.getValue());
+                }
+            }
+        }
+        String[] entryArgs = merged.toArray(new String[merged.size()]);
+        if (DaemonProtocol.readsStandardInput(entryArgs)) {
+            throw invalidEntry(lineNumber, "The standard input can not be read by a batch entry");
+        }
+        // fail before anything runs if the action would reject its arguments
+        parseArgs(useraction.getOptions(), entryArgs, lineNumber);
+        return new BatchEntry(number, lineNumber, action, entryArgs);
+    }
+
+    /**
+     * Options of all the actions and of the batch, none of them required. Arguments for any action parse against
+     * them, so they tell the options from their values.
+     */
+    private static Options createBatchOptions() throws AzureException {
+        Options options = new Options();
+        for (Action action : Action.values()) {
+            // VERSION is not implemented by an action
+            if (action != Action.VERSION) {
+                for (Option option : ActionFactory.getAction(action).getOptions().getOptions()) {
+                    Option copy = (Option) option.clone();
+                    copy.setRequired(false);
+                    options.addOption(copy);
+                }
+            }
+        }
+        options.addOption(Option.builder(Constants.BATCH_FILE).hasArg().desc("Batch file").build());
+        options.addOption(Option.builder(Constants.BATCH_CONCURRENCY).hasArg()
+                .desc("Number of batch entries run in parallel").build());
+        return options;
+    }
+
+    /**
+     * Split a line into arguments at blanks. Double quotes group an argument, two double quotes within a quoted
+     * argument stand for one.
+     */
+    private static List<String> tokenize(String line, int lineNumber) throws AzureException {
+        List<String> tokens = new ArrayList<String>();
+        StringBuilder current = null;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    current.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append(c);
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (Character.isWhitespace(c)) {
+                if (current != null) {
+                    tokens.add(current.toString());
+                    current = null;
+                }
+            } else {
+                if (current == null) {
+                    current = new StringBuilder();
+                }
+                if (c == '"') {
+                    quoted = true;
+                } else {
+                    current.append(c);
+                }
+            }
+        }
+        if (quoted) {
+            throw invalidEntry(lineNumber, "Missing closing quote");
+        }
+        if (current != null) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * Parse the arguments the same way {@link AzureClient} does, so that values starting with a dash and - itself are
+     * accepted as values
+     */
+    private static CommandLine parseArgs(Options options, String[] args, int lineNumber) throws AzureException {
+        String cause;
+        try {
+            CommandLine cmd = new DefaultParser().parse(options, args);
+            if (cmd.getArgList().isEmpty()) {
+                return cmd;
+            }
+            cause = "Unexpected argument [" + cmd.getArgList().get(0) + "]";
+        } catch (ParseException e) {
+            cause = e.getMessage();
+        }
+        if (lineNumber > 0) {
+            throw invalidEntry(lineNumber, cause);
+        }
+        LOGGER.error(cause);
+        throw new AzureException(String.format(ExceptionConstants.INVALID_ARGS, cause));
+    }
+
+    private static AzureException invalidEntry(int lineNumber, String cause) {
+        String msg = String.format(ExceptionConstants.INVALID_BATCH_ENTRY, lineNumber, cause);
+        LOGGER.error(msg);
+        return new AzureException(msg);
+    }
+
+    private void closeReader(BufferedReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                LOGGER.error(ExceptionConstants.UNABLE_TO_CLOSE_STREAM, e);
+            }
+        }
+    }
+
+    /**
+     * An action of the batch file with its captured output and response code
+     */
+    private final class BatchEntry {
+
+        private final int number;
+        private final int lineNumber;
+        private final Action action;
+        private final String[] args;
+
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private int responseCode;
+
+        BatchEntry(int number, int lineNumber, Action action, String[] args) {
+            this.number = number;
+            this.lineNumber = lineNumber;
+            this.action = action;
+            this.args = args;
+        }
+
+        /**
+         * Run the action with the output of the current thread captured
+         *
+         * @return response code
+         */
+        int run() {
+            LOGGER.info("Execution starts for batch entry [" + number + "] action [" + action + "]...");
+            ConsoleWriter.redirect(output);
+            try {
+                AbstractAction useraction = ActionFactory.getAction(action);
+                useraction.executeAction(args);
+                responseCode = 0;
+            } catch (Exception e) {
+                responseCode = ExceptionHandler.handleException(e);
+            } finally {
+                ConsoleWriter.flush();
+                ConsoleWriter.reset();
+            }
+            LOGGER.info("Execution ends for batch entry [" + number + "] with response code : " + responseCode);
+            return responseCode;
+        }
+
+        /**
+         * Write the captured output and response code as one block
+         */
+        void report(OutputStream console) throws IOException {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Batch entry ").append(number).append(" (line ").append(lineNumber).append(") ")
+                    .append(action).append(System.lineSeparator());
+            Matcher matcher = VARIABLE.matcher(new String(output.toByteArray(), StandardCharsets.UTF_8));
+            sb.append(matcher.replaceAll("$1_" + number + "$2"));
+            sb.append("UC4RB_AZR_BATCH_RC_").append(number).append(" ::= ").append(responseCode)
+                    .append(System.lineSeparator());
+            byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+            synchronized (console) {
+                console.write(bytes);
+                console.flush();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,275 @@
+package com.automic.azure.client;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Wire format between the {@link AzureLauncher} and the {@link AzureDaemon}. Only depends on the JDK so that the
+ * launcher stays cheap to start.
+ *
+ * The launcher sends a random challenge, which the daemon answers with the HMAC of the challenge keyed with its token,
+ * so that the launcher does not send anything to a process which merely listens on the port. The launcher then sends
+ * the token of the daemon, the number of arguments and the arguments. The daemon answers with any number of output
+ * frames, each holding a chunk of the console output, followed by a single exit frame with the response code. Strings
+ * are sent as their length followed by the UTF-8 bytes.
+ *
+ * The token is kept in a directory of the temp directory which belongs to the user running the daemon. The directory
+ * and the token file must only be accessible by this user, which requires a POSIX file system.
+ */
+final class DaemonProtocol {
+
+    /**
+     * Option naming the loopback port of the daemon
+     */
+    static final String DAEMON_PORT = "daemonport";
+
+    static final byte FRAME_EXIT = 0;
+    static final byte FRAME_OUTPUT = 1;
+
+    static final int MAX_ARGS = 1024;
+    private static final int MAX_STRING_LENGTH = 1024 * 1024;
+
+    private static final int NONCE_LENGTH = 32;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final Set<PosixFilePermission> DIRECTORY_PERMISSIONS = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> TOKEN_FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-------");
+
+    // options naming local files, relative paths are resolved against the working directory of the launcher
+    private static final List<String> PATH_OPTIONS = Arrays.asList("-blobfile", "-blobnamefile", "-configfilepath",
+            "-filepath", "-keystore", "-outputfile", "-parameterfile", "-statefile", "-uploadindex");
+
+    // PUT_BLOB option which names - for the standard input
+    private static final String BLOB_FILE = "-blobfile";
+    private static final String STDIN = "-";
+
+    // option of the BatchRunner
+    private static final String BATCH_FILE = "-batchfile";
+
+    private DaemonProtocol() {
+    }
+
+    /**
+     * Get the file holding the token of the daemon listening on a port.
+     *
+     * @param port
+     *            port of the daemon
+     * @return token file
+     */
+    static Path getTokenFile(int port) {
+        return getTokenDirectory().resolve("daemon-" + port + ".token");
+    }
+
+    private static Path getTokenDirectory() {
+        return Paths.get(System.getProperty("java.io.tmpdir"), "azure-tool-" + System.getProperty("user.name"));
+    }
+
+    /**
+     * Create the token file of the daemon listening on a port, readable and writable by the current user only from
+     * the start.
+     *
+     * @param port
+     *            port of the daemon
+     * @param token
+     *            token of the daemon
+     * @return token file
+     * @throws IOException
+     *             if the file can not be created with these permissions
+     */
+    static Path createTokenFile(int port, byte[] token) throws IOException {
+        Path directory = getTokenDirectory();
+        if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+            try {
+                Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(DIRECTORY_PERMISSIONS));
+            } catch (UnsupportedOperationException e) {
+                throw new IOException("Token directory " + directory + " requires a POSIX file system", e);
+            }
+        }
+        checkPrivate(directory, DIRECTORY_PERMISSIONS);
+
+        Path tokenFile = getTokenFile(port);
+        Files.deleteIfExists(tokenFile);
+        Files.createFile(tokenFile, PosixFilePermissions.asFileAttribute(TOKEN_FILE_PERMISSIONS));
+        checkPrivate(tokenFile, TOKEN_FILE_PERMISSIONS);
+        Files.write(tokenFile, token);
+        return tokenFile;
+    }
+
+    /**
+     * Read the token of the daemon listening on a port. Neither the token file nor its directory may be accessible by
+     * another user, else that user could have planted them.
+     *
+     * @param port
+     *            port of the daemon
+     * @return token
+     * @throws IOException
+     *             if there is no token file or it is accessible by another user
+     */
+    static String readToken(int port) throws IOException {
+        Path tokenFile = getTokenFile(port);
+        checkPrivate(tokenFile.getParent(), DIRECTORY_PERMISSIONS);
+        checkPrivate(tokenFile, TOKEN_FILE_PERMISSIONS);
+        return new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8).trim();
+    }
+
+    // check that a file belongs to the current user and has exactly the given permissions
+    private static void checkPrivate(Path file, Set<PosixFilePermission> permissions) throws IOException {
+        PosixFileAttributes attributes;
+        UserPrincipal currentUser;
+        try {
+            attributes = Files.readAttributes(file, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            currentUser = file.getFileSystem().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+        } catch (UnsupportedOperationException e) {
+            throw new IOException("Permissions of " + file + " can not be checked without a POSIX file system", e);
+        }
+        if (attributes.isSymbolicLink() || !currentUser.equals(attributes.owner())) {
+            throw new IOException(file + " does not belong to " + currentUser.getName());
+        }
+        if (!permissions.equals(attributes.permissions())) {
+            throw new IOException(file + " has permissions " + PosixFilePermissions.toString(attributes.permissions())
+                    + " instead of " + PosixFilePermissions.toString(permissions));
+        }
+    }
+
+    /**
+     * Create a random value usable as token or challenge
+     *
+     * @return random hexadecimal string
+     */
+    static String createNonce() {
+        byte[] bytes = new byte[NONCE_LENGTH];
+        new SecureRandom().nextBytes(bytes);
+        return toHex(bytes);
+    }
+
+    /**
+     * Compute the answer of the daemon to a challenge of the launcher
+     *
+     * @param token
+     *            token of the daemon
+     * @param challenge
+     *            challenge sent by the launcher
+     * @return HMAC of the challenge keyed with the token
+     * @throws IOException
+     *             if HMAC-SHA256 is not available
+     */
+    static String answerChallenge(byte[] token, String challenge) throws IOException {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(token, HMAC_ALGORITHM));
+            return toHex(mac.doFinal(challenge.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Unable to answer the challenge", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        String hex = new BigInteger(1, bytes).toString(16);
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (int i = hex.length(); i < bytes.length * 2; i++) {
+            result.append('0');
+        }
+        return result.append(hex).toString();
+    }
+
+    /**
+     * Make the paths of local files absolute, so that the daemon does not resolve them against its own working
+     * directory.
+     *
+     * @param args
+     *            arguments of the action
+     * @return arguments with absolute paths
+     */
+    static String[] resolvePaths(String[] args) {
+        String[] resolved = args.clone();
+        for (int i = 0; i < resolved.length; i++) {
+            String arg = resolved[i].trim();
+            int separator = arg.indexOf('=');
+            if (separator > 0 && PATH_OPTIONS.contains(arg.substring(0, separator))) {
+                resolved[i] = arg.substring(0, separator + 1) + resolvePath(arg.substring(separator + 1));
+            } else if (PATH_OPTIONS.contains(arg) && i + 1 < resolved.length) {
+                i++;
+                resolved[i] = resolvePath(resolved[i]);
+            }
+        }
+        return resolved;
+    }
+
+    private static String resolvePath(String path) {
+        String trimmed = path.trim();
+        if (trimmed.isEmpty() || STDIN.equals(trimmed) || new File(trimmed).isAbsolute()) {
+            return path;
+        }
+        return new File(trimmed).getAbsolutePath();
+    }
+
+    /**
+     * Check if the arguments run a batch file. Its entries may name local files relative to the working directory of
+     * the caller, so a batch is run in the process of the caller, which already runs all its entries in one JVM.
+     *
+     * @param args
+     *            arguments of the action
+     * @return true if a batch file is given
+     */
+    static boolean isBatch(String[] args) {
+        return Arrays.asList(args).contains(BATCH_FILE);
+    }
+
+    /**
+     * Check if an action reads the standard input of the process running it. Only the arguments are sent to the
+     * daemon, so such an action has to run in the process of the caller.
+     *
+     * @param args
+     *            arguments of the action
+     * @return true if the blob file is -
+     */
+    static boolean readsStandardInput(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (BLOB_FILE.equals(args[i]) && i + 1 < args.length && STDIN.equals(args[i + 1].trim())) {
+                return true;
+            }
+            if ((BLOB_FILE + "=" + STDIN).equals(args[i].trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
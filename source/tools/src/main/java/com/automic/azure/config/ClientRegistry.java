@@ -0,0 +1,107 @@
+package com.automic.azure.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.exception.AzureException;
+import com.sun.jersey.api.client.Client;
+
+/**
+ * Registry of the HTTP clients kept warm between actions run in the same JVM. Once enabled, a client created for a key
+ * is handed out to every later action with the same key together with its SSL context, filters and open connections.
+ * While disabled, which is the default, every action gets a new client which is destroyed after the action.
+ *
+ * The key has to cover everything the client was configured with, such as timeouts, transport and credentials.
+ */
+public final class ClientRegistry {
+
+    private static final Logger LOGGER = LogManager.getLogger(ClientRegistry.class);
+
+    private static final Map<String, Client> CLIENTS = new HashMap<String, Client>();
+
+    private static boolean enabled;
+
+    private ClientRegistry() {
+    }
+
+    /**
+     * Factory of the client for a key
+     */
+    public interface ClientFactory {
+
+        /**
+         * Create a fully configured client
+         *
+         * @return {@link Client}
+         * @throws AzureException
+         */
+        Client create() throws AzureException;
+    }
+
+    /**
+     * Keep the clients after the actions from now on
+     */
+    public static synchronized void enable() {
+        enabled = true;
+    }
+
+    /**
+     * Check whether clients are kept after the actions
+     *
+     * @return true if enabled
+     */
+    public static synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the client registered for a key, creating it if needed. Clients must be given back with
+     * {@link #release(Client)}.
+     *
+     * @param key
+     *            key describing the client configuration
+     * @param factory
+     *            factory to create the client if none is registered
+     * @return {@link Client}
+     * @throws AzureException
+     */
+    public static synchronized Client getClient(String key, ClientFactory factory) throws AzureException {
+        if (!enabled) {
+            return factory.create();
+        }
+        Client client = CLIENTS.get(key);
+        if (client == null) {
+            LOGGER.info("Creating a new client for reuse");
+            client = factory.create();
+            CLIENTS.put(key, client);
+        }
+        return client;
+    }
+
+    /**
+     * Give back a client after an action. The client is destroyed unless it is kept in the registry.
+     *
+     * @param client
+     *            client returned by {@link #getClient(String, ClientFactory)}
+     */
+    public static synchronized void release(Client client) {
+        if (client != null && !CLIENTS.containsValue(client)) {
+            client.destroy();
+        }
+    }
+
+    /**
+     * Destroy all the registered clients and stop keeping new ones
+     */
+    public static synchronized void destroyAll() {
+        enabled = false;
+        for (Client client : CLIENTS.values()) {
+            client.destroy();
+        }
+        CLIENTS.clear();
+    }
+
+}
@@ -1,6 +1,14 @@
 package com.automic.azure.config;
 
+import java.io.IOException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.constants.HttpTransport;
 import com.automic.azure.exception.AzureException;
+import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.config.ClientConfig;
 import com.sun.jersey.api.client.config.DefaultClientConfig;
 import com.sun.jersey.client.urlconnection.HTTPSProperties;
@@ -12,6 +20,8 @@ import com.sun.jersey.client.urlconnection.HTTPSProperties;
 
 public final class HttpClientConfig {
 
+    private static final Logger LOGGER = LogManager.getLogger(HttpClientConfig.class);
+
     private HttpClientConfig() {
     }
 
@@ -35,6 +45,8 @@ public final class HttpClientConfig {
 
         config.getProperties().put(ClientConfig.PROPERTY_CONNECT_TIMEOUT, connectionTimeOut);
         config.getProperties().put(ClientConfig.PROPERTY_READ_TIMEOUT, readTimeOut);
+        // stream request bodies of known length instead of buffering them
+        config.getSingletons().add(new StreamingEntityProvider());
 
         if (keyStore != null && password != null) {
             AzureCertificatesManagement acm = new AzureCertificatesManagement(keyStore, password);
@@ -59,4 +71,33 @@ public final class HttpClientConfig {
         return getClientConfig(null, null, connectionTimeOut, readTimeOut);
     }
 
+    /**
+     * Method to create HTTP client on the given transport. A pooled client keeps its connections open till the client
+     * is destroyed.
+     * 
+     * @param config
+     *            client config
+     * @param transport
+     *            HTTP transport
+     * @return {@link Client}
+     */
+    public static Client createClient(ClientConfig config, HttpTransport transport) {
+        if (transport == HttpTransport.URLCONNECTION) {
+            return Client.create(config);
+        }
+
+        final PooledClientHandler handler = new PooledClientHandler(config);
+        return new Client(handler, config) {
+            @Override
+            public void destroy() {
+                super.destroy();
+                try {
+                    handler.close();
+                } catch (IOException e) {
+                    LOGGER.error(ExceptionConstants.UNABLE_TO_CLOSE_STREAM, e);
+                }
+            }
+        };
+    }
+
 }
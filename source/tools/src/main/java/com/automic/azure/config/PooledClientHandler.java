@@ -0,0 +1,225 @@
+package com.automic.azure.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ProxySelector;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
+import org.apache.http.util.EntityUtils;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.TerminatingClientHandler;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.client.urlconnection.HTTPSProperties;
+import com.sun.jersey.core.header.InBoundHeaders;
+
+/**
+ * Jersey client handler sending the requests through a pool of keep-alive connections of the Apache HTTP client.
+ * Requests made by the same client reuse the connections, and with it the TCP and TLS handshakes, of the previous
+ * ones. Timeouts and the SSL context are taken from the {@link ClientConfig} as for the default handler, proxies from
+ * the default {@link ProxySelector} of the JVM, so http(s).proxyHost, http(s).proxyPort and http.nonProxyHosts apply
+ * as they do for URLConnection.
+ *
+ * A connection is given back to the pool once the response entity has been read or the response closed.
+ */
+public final class PooledClientHandler extends TerminatingClientHandler implements Closeable {
+
+    // enough for the maximum parallelism of the actions, connections are only opened when needed
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 64;
+    private static final int MAX_TOTAL_CONNECTIONS = 128;
+
+    // connections idle for longer are likely to be closed by the server side
+    private static final long MAX_IDLE_TIME_SECONDS = 30;
+
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * @param config
+     *            client config with timeouts and optional {@link HTTPSProperties}
+     */
+    public PooledClientHandler(ClientConfig config) {
+        Registry<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory> create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", getSslSocketFactory(config)).build();
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                socketFactories);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        connectionManager.setMaxTotal(MAX_TOTAL_CONNECTIONS);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(getIntProperty(config, ClientConfig.PROPERTY_CONNECT_TIMEOUT, 0))
+                .setSocketTimeout(getIntProperty(config, ClientConfig.PROPERTY_READ_TIMEOUT, 0))
+                .setRedirectsEnabled(false).build();
+
+        this.httpClient = HttpClients.custom().setConnectionManager(connectionManager)
+                .setRoutePlanner(new SystemDefaultRoutePlanner(ProxySelector.getDefault()))
+                .setDefaultRequestConfig(requestConfig).evictExpiredConnections()
+                .evictIdleConnections(MAX_IDLE_TIME_SECONDS, TimeUnit.SECONDS).build();
+    }
+
+    @Override
+    public ClientResponse handle(ClientRequest cr) {
+        CloseableHttpResponse response;
+        try {
+            response = httpClient.execute(buildRequest(cr));
+        } catch (IOException e) {
+            throw new ClientHandlerException(e);
+        }
+
+        try {
+            InBoundHeaders headers = new InBoundHeaders();
+            for (Header header : response.getAllHeaders()) {
+                headers.add(header.getName(), header.getValue());
+            }
+            return new ClientResponse(response.getStatusLine().getStatusCode(), headers, getEntityStream(response),
+                    getMessageBodyWorkers());
+        } catch (IOException e) {
+            closeQuietly(response);
+            throw new ClientHandlerException(e);
+        }
+    }
+
+    /**
+     * Close the pooled connections
+     */
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    private HttpUriRequest buildRequest(ClientRequest cr) throws IOException {
+        RequestBuilder builder = RequestBuilder.create(cr.getMethod()).setUri(cr.getURI());
+        for (Map.Entry<String, List<Object>> header : cr.getHeaders().entrySet()) {
+            // the length is taken from the entity
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getKey())) {
+                continue;
+            }
+            for (Object value : header.getValue()) {
+                builder.addHeader(header.getKey(), ClientRequest.getHeaderValue(value));
+            }
+        }
+
+        if (cr.getEntity() != null) {
+            builder.setEntity(new RequestEntity(getRequestEntityWriter(cr)));
+        } else if ("PUT".equals(cr.getMethod()) || "POST".equals(cr.getMethod())) {
+            builder.setEntity(new ByteArrayEntity(new byte[0]));
+        }
+        return builder.build();
+    }
+
+    private static InputStream getEntityStream(CloseableHttpResponse response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity == null || entity.getContentLength() == 0) {
+            // give the connection back to the pool right away, callers do not always close empty responses
+            EntityUtils.consume(entity);
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        return entity.getContent();
+    }
+
+    private static SSLConnectionSocketFactory getSslSocketFactory(ClientConfig config) {
+        HTTPSProperties props = (HTTPSProperties) config.getProperty(HTTPSProperties.PROPERTY_HTTPS_PROPERTIES);
+        if (props == null || props.getSSLContext() == null) {
+            return SSLConnectionSocketFactory.getSocketFactory();
+        }
+        HostnameVerifier verifier = props.getHostnameVerifier();
+        SSLContext sslContext = props.getSSLContext();
+        return verifier != null ? new SSLConnectionSocketFactory(sslContext, verifier)
+                : new SSLConnectionSocketFactory(sslContext);
+    }
+
+    private static int getIntProperty(ClientConfig config, String name, int defaultValue) {
+        Object value = config.getProperty(name);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    private static void closeQuietly(CloseableHttpResponse response) {
+        try {
+            response.close();
+        } catch (IOException e) {
+            // connection is discarded anyway
+        }
+    }
+
+    /**
+     * Entity writing the request body through the Jersey message body writers. Entities of unknown length are
+     * buffered so that the request is always sent with a Content-Length, only those can be read back.
+     */
+    private static final class RequestEntity extends AbstractHttpEntity {
+
+        private final RequestEntityWriter writer;
+        private byte[] buffered;
+
+        RequestEntity(RequestEntityWriter writer) throws IOException {
+            this.writer = writer;
+            if (writer.getSize() < 0) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                writer.writeRequestEntity(bos);
+                this.buffered = bos.toByteArray();
+            }
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return buffered != null;
+        }
+
+        @Override
+        public long getContentLength() {
+            return buffered != null ? buffered.length : writer.getSize();
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            if (buffered == null) {
+                throw new IOException("Streamed request entity can only be written");
+            }
+            return new ByteArrayInputStream(buffered);
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            if (buffered != null) {
+                out.write(buffered);
+            } else {
+                writer.writeRequestEntity(out);
+            }
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.automic.azure.config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import com.automic.azure.util.StreamingEntity;
+
+/**
+ * Message body writer for {@link StreamingEntity}. Reporting the size of the entity lets the HTTP client stream the
+ * body with a fixed Content-Length rather than buffer the whole body to find out its length.
+ */
+@Provider
+@Produces(MediaType.WILDCARD)
+public final class StreamingEntityProvider implements MessageBodyWriter<StreamingEntity> {
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return StreamingEntity.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(StreamingEntity entity, Class<?> type, Type genericType, Annotation[] annotations,
+            MediaType mediaType) {
+        return entity.getContentLength();
+    }
+
+    @Override
+    public void writeTo(StreamingEntity entity, Class<?> type, Type genericType, Annotation[] annotations,
+            MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+            throws IOException {
+        entity.writeTo(entityStream);
+    }
+
+}
@@ -8,7 +8,8 @@ public enum Action {
 
     VERSION, GET_SUBSCRIPTION_INFO, VM_STATE, CHECK_REQUEST_STATUS, DELETE_VM, CREATE_VM_DEPLOYMENT, 
     CREATE_STORAGE_CONTAINER, DELETE_STORAGE_CONTAINER, CREATE_CLOUD_SERVICE, DELETE_FILE, DELETE_BLOB,
-    PUT_BLOB, SET_VIRTUAL_NETWORK, DELETE_CLOUD_SERVICE, CREATE_DEPLOYMENT, DELETE_DEPLOYMENT;
+    PUT_BLOB, SET_VIRTUAL_NETWORK, DELETE_CLOUD_SERVICE, CREATE_DEPLOYMENT, DELETE_DEPLOYMENT,
+    GET_BLOB, COPY_BLOB, LIST_BLOBS, SET_BLOB_TIER, SYNC_PAGE_BLOB;
 
     public static String getActionNames() {
         Action[] actions = Action.values();
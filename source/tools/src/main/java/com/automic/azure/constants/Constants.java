@@ -21,12 +21,19 @@ public final class Constants {
     public static final String SUBSCRIPTION_ID = "subscriptionid";
     public static final String STORAGE = "storage";
     public static final String ACCESS_KEY = "accesskey";
+    public static final String SAS_TOKEN = "sastoken";
+    public static final String SAS_VALIDITY = "sasvalidity";
     public static final String CONTAINER_NAME = "containername";
     public static final String CONTENT_TYPE = "contenttype";
+    public static final String PARALLELISM = "parallelism";
+    public static final String PREFIX = "prefix";
     public static final String OPTION_X_MS_VERSION = "xmsversion";
     public static final String CONNECTION_TIMEOUT = "connectiontimeout";
     public static final String READ_TIMEOUT = "readtimeout";
+    public static final String HTTP_TRANSPORT = "httptransport";
     public static final String ACTION = "action";
+    public static final String BATCH_FILE = "batchfile";
+    public static final String BATCH_CONCURRENCY = "batchconcurrency";
     public static final String OPERATIONTYPE_SHUTDOWN = "ShutdownRoleOperation";
     public static final String OPERATIONTYPE_RESTART = "RestartRoleOperation";
     public static final String OPERATIONTYPE_START = "StartRoleOperation";
@@ -13,6 +13,9 @@ public final class ExceptionConstants {
     // URL/Http Errors
     public static final String INVALID_CONNECTION_TIMEOUT = "Connection timeout should be positive value";
     public static final String INVALID_READ_TIMEOUT = "Read timeout should be positive value";
+    public static final String INVALID_HTTP_TRANSPORT = "HTTP transport should be one of %s";
+
+    public static final String HTTP_STATUS_ERROR = "Request failed with HTTP status [%s]";
 
     public static final String INVALID_KEYSTORE = "Invalid KeyStore.";
     public static final String SSLCONTEXT_ERROR = "Unable to build secured context.";
@@ -24,11 +27,17 @@ public final class ExceptionConstants {
     public static final String UNABLE_TO_CLOSE_STREAM = "Error while closing stream";
     public static final String UNABLE_TO_FLUSH_STREAM = "Error while flushing stream";
     public static final String UNABLE_TO_COPY_DATA = "Error while copy data on file [%s]";
+    public static final String UNABLE_TO_READ_FILE = "Error while reading file [%s]";
 
     public static final String EMPTY_SUBSCRIPTION_ID = "Subscription id must not be empty";
     public static final String EMPTY_PASSWORD = "Password cannot be empty";
     public static final String OPTION_VALUE_MISSING = "Value for option %s [%s]is missing";
     public static final String INVALID_ARGS = "Improper Args. Possible cause : %s";
+    public static final String INVALID_BATCH_ENTRY = "Invalid batch file entry at line %s. Possible cause : %s";
+    public static final String EMPTY_BATCH_FILE = "Batch file [%s] does not contain any entry";
+    public static final String INVALID_BATCH_CONCURRENCY = "Batch concurrency should be a value between 1 and %s";
+    public static final String BATCH_ENTRIES_FAILED = "%s of %s batch entries failed";
+    public static final String ERROR_RUNNING_BATCH = "Error while running the batch entries";
 
     public static final String EMPTY_SERVICE_NAME = "Service name should not be empty";
     public static final String EMPTY_DEPLOYMENT_NAME = "Deployment name should not be empty";
@@ -45,6 +54,9 @@ public final class ExceptionConstants {
     public static final String INVALID_STORAGE_ACC_NAME = "Storage account name length: 3 to 24 characters, numbers "
             + "and lowercase letters only. Must match [0-9a-z]{3,24}";
     public static final String EMPTY_STORAGE_ACCESS_KEY = "Storage account access key should not be empty";
+    public static final String EMPTY_STORAGE_CREDENTIALS = "Either storage account access key or SAS token should "
+            + "be provided";
+    public static final String INVALID_SAS_VALIDITY = "SAS validity should be a positive value in minutes";
     public static final String INVALID_STORAGE_CONTAINER_NAME = "Invalid Storage container name length: "
             + "3 to 63 characters, numbers, lower-case letters and - only. "
             + "Dash (-) must be immediately preceded and followed by a letter or number";
@@ -57,6 +69,51 @@ public final class ExceptionConstants {
     public static final String INVALID_BLOB_CONTENT_TYPE = "Content-Type of blob should be valid";
     public static final String ERROR_BLOB_MAX_SIZE = "Blob size is exceeded.Expected [<=%s] and actual [%s] bytes";
     public static final String ERROR_BLOCK_BLOB_UPLOAD = "Error while uploading blob as a Block blob";
+    public static final String FOREIGN_UNCOMMITTED_BLOCKS = "Blob [%s] has uncommitted blocks of another tool "
+            + "whose block ids differ in length. They are discarded when the blob is committed or deleted, or after "
+            + "a week";
+    public static final String ERROR_PAGE_BLOB_UPLOAD = "Error while uploading blob as a Page blob";
+    public static final String INVALID_BLOB_TYPE = "Invalid blob type [%s]. Possible values are BlockBlob and PageBlob";
+    public static final String INVALID_PAGE_BLOB_SIZE = "File size [%s] is not a multiple of the page size [%s] bytes";
+    public static final String ERROR_PAGE_BLOB_SYNC = "Error while synchronizing the Page blob";
+    public static final String ERROR_LISTING_PAGE_RANGES = "Error while listing the page ranges of the blob";
+    public static final String NOT_A_PAGE_BLOB = "Blob [%s] exists but is not a Page blob";
+    public static final String INVALID_PARALLELISM = "Parallelism should be a value between 1 and %s";
+    public static final String INVALID_MEMORY_BUDGET = "Memory budget should be a positive value in MB";
+    public static final String ERROR_BLOB_DOWNLOAD = "Error while downloading blob";
+    public static final String INVALID_DOWNLOAD_FILE = "File [%s] is invalid. Directory of the file does not exist";
+    public static final String BLOB_MODIFIED_DURING_DOWNLOAD = "Blob [%s] has been modified during the download";
+    public static final String ERROR_COMPUTING_MD5 = "Error while computing the Content-MD5 of the file";
+    public static final String BLOB_MD5_MISMATCH = "Content-MD5 of blob [%s] does not match. Expected [%s] and "
+            + "actual [%s]";
+    public static final String ERROR_LISTING_BLOBS = "Error while listing blobs";
+    public static final String ERROR_BLOB_COPY = "Error while copying blobs";
+    public static final String INVALID_COPY_SOURCE = "Exactly one of source blob name, prefix or source URL should be "
+            + "provided";
+    public static final String INVALID_COPY_SOURCE_URL = "Source URL should be a valid http or https URL";
+    public static final String INVALID_COPY_TARGET = "A blob can not be copied onto itself";
+    public static final String INVALID_COPY_TARGET_NAME = "Invalid target blob name [%s] for blob [%s]. Should not "
+            + "end with . or / character. Should not contain \\ character. Max 1024 characters";
+    public static final String BLOB_COPIES_FAILED = "%s of %s blob copies failed";
+    public static final String INVALID_BLOB_SELECTION = "Exactly one of blob name, prefix or blob name file should "
+            + "be given";
+    public static final String BLOB_DELETES_FAILED = "%s of %s blob deletions failed";
+    public static final String ERROR_BLOB_BATCH = "Error while sending a batch of blob operations";
+    public static final String MISSING_BATCH_RESULT = "Batch response holds no result for blob [%s]";
+    public static final String INVALID_ACCESS_TIER = "Invalid access tier [%s]. Possible values are Hot, Cool, Cold, "
+            + "Archive and P4 to P80";
+    public static final String BLOB_TIER_CHANGES_FAILED = "%s of %s blob tier changes failed";
+    public static final String INVALID_FILE_SET_OPTION = "Option [%s] is not supported when uploading several files";
+    public static final String ERROR_SELECTING_FILES = "Error while selecting the files of [%s]";
+    public static final String NO_FILES_SELECTED = "No file found for [%s]";
+    public static final String BLOB_UPLOADS_FAILED = "%s of %s file uploads failed";
+    public static final String INVALID_STREAM_OPTION = "Option [%s] is not supported when uploading from the "
+            + "standard input";
+    public static final String MISSING_STREAM_BLOB_NAME = "Blob name is required when uploading from the standard "
+            + "input";
+    public static final String ERROR_READING_STREAM = "Error while reading the standard input";
+    public static final String STDIN_NOT_AVAILABLE = "The standard input of the caller is not available to the "
+            + "daemon. Upload from the standard input without the daemon";
     public static final String ERROR_COMMITING_BLOCK_BLOB = "Error while commiting block blob";
     public static final String ERROR_STORAGE_AUTHENTICATION = "Error in Creating "
             + "Authentication Signature for Storage Service";
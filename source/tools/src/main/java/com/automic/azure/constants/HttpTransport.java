@@ -0,0 +1,32 @@
+package com.automic.azure.constants;
+
+/**
+ * Enum for the HTTP transport used by the actions. Could be either POOLED or URLCONNECTION
+ *
+ */
+public enum HttpTransport {
+    /**
+     * keep-alive connections of the Apache HTTP client shared by all the requests of an action
+     */
+    POOLED(Long.MAX_VALUE),
+    /**
+     * connections of the JDK URLConnection
+     */
+    URLCONNECTION((Integer.MAX_VALUE / (1024L * 1024)) * 1024L * 1024);
+
+    private final long maxStreamedEntitySize;
+
+    private HttpTransport(long maxStreamedEntitySize) {
+        this.maxStreamedEntitySize = maxStreamedEntitySize;
+    }
+
+    /**
+     * get largest request body which is streamed with a fixed length, larger bodies get buffered in memory
+     * 
+     * @return size in bytes
+     */
+    public long getMaxStreamedEntitySize() {
+        return this.maxStreamedEntitySize;
+    }
+
+}
@@ -14,12 +14,32 @@ public class AzureRuntimeException extends RuntimeException {
 
     private static final long serialVersionUID = 8908847435912088181L;
 
+    private final int statusCode;
+
     /**
      * @param message
      */
     public AzureRuntimeException(String message) {
+        this(message, 0);
+    }
+
+    /**
+     * @param message
+     * @param statusCode
+     *            HTTP status code of the failed response
+     */
+    public AzureRuntimeException(String message, int statusCode) {
         super(message);
+        this.statusCode = statusCode;
+    }
 
+    /**
+     * get HTTP status code of the failed response
+     * 
+     * @return status code or 0 if the error is not caused by a response
+     */
+    public int getStatusCode() {
+        return statusCode;
     }
 
 }
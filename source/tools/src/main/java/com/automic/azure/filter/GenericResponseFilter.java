@@ -3,6 +3,7 @@ package com.automic.azure.filter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.automic.azure.constants.ExceptionConstants;
 import com.automic.azure.exception.AzureRuntimeException;
 import com.automic.azure.model.ErrorResponse;
 import com.sun.jersey.api.client.ClientRequest;
@@ -32,9 +33,16 @@ public class GenericResponseFilter extends ClientFilter {
         ClientResponse response = getNext().handle(arg0);        
         if (!(response.getStatus() >= HTTP_SUCCESS_START && response.getStatus() <= HTTP_SUCCESS_END)) {
             LOGGER.error("Response code for " + arg0.getURI() + " is " + response.getStatus());
-            String errorMsg = response.getEntity(errorHandler).toString();
+            String errorMsg;
+            // responses to HEAD requests and some errors do not carry an error body
+            if (!"HEAD".equals(arg0.getMethod()) && response.hasEntity()) {
+                errorMsg = response.getEntity(errorHandler).toString();
+            } else {
+                response.close();
+                errorMsg = String.format(ExceptionConstants.HTTP_STATUS_ERROR, response.getStatus());
+            }
             LOGGER.error(errorMsg);
-            throw new AzureRuntimeException(errorMsg);
+            throw new AzureRuntimeException(errorMsg, response.getStatus());
         }
         return response;
     }
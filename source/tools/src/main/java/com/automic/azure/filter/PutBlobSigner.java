@@ -0,0 +1,73 @@
+package com.automic.azure.filter;
+
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Computes the Authorization header of Put Blob requests uploading block blobs of one content type with one service
+ * version. Such requests only differ in the blob, the length and the date, so everything else of the string to sign
+ * is built once and a request only appends its own parts between the constant ones. The string to sign equals the
+ * one {@link SharedKeySigner} builds for a request carrying the headers Content-Length, Content-Type,
+ * x-ms-blob-type, x-ms-date and x-ms-version and nothing else. The content type is signed the way Jersey sends it,
+ * e.g. text/html;charset=UTF-8 as text/html; charset=UTF-8.
+ *
+ * Instances are thread safe.
+ */
+public final class PutBlobSigner {
+
+    private static final String BLOB_TYPE = "BlockBlob";
+
+    // VERB, Content-Encoding, Content-Language
+    private static final String BEFORE_LENGTH = "PUT\n\n\n";
+
+    private final SharedKeySigner signer;
+    private final String headerPrefix;
+    private final String beforeDate;
+    private final String beforePath;
+    private final boolean zeroLengthEmpty;
+
+    /**
+     * @param signer
+     *            signer of the account
+     * @param headerPrefix
+     *            Authorization header up to the signature e.g. "SharedKey myaccount:"
+     * @param restapiVersion
+     *            x-ms-version of the requests
+     * @param contentType
+     *            Content-Type of the requests
+     * @throws IllegalArgumentException
+     *             if the content type is not a valid media type
+     */
+    PutBlobSigner(SharedKeySigner signer, String headerPrefix, String restapiVersion, String contentType) {
+        this.signer = signer;
+        this.headerPrefix = headerPrefix;
+        // Content-MD5, Content-Type, Date, If-Modified-Since, If-Match, If-None-Match, If-Unmodified-Since, Range
+        // followed by the sorted x-ms- headers
+        this.beforeDate = "\n\n" + MediaType.valueOf(contentType).toString()
+                + "\n\n\n\n\n\n\nx-ms-blob-type:" + BLOB_TYPE + "\nx-ms-date:";
+        this.beforePath = "\nx-ms-version:" + restapiVersion + "\n/" + signer.getAccountName();
+        this.zeroLengthEmpty = SharedKeySigner.signsZeroLengthEmpty(restapiVersion);
+    }
+
+    /**
+     * Compute the Authorization header of a request.
+     *
+     * @param contentLength
+     *            Content-Length of the request
+     * @param date
+     *            x-ms-date of the request
+     * @param path
+     *            decoded path of the request URI e.g. /mycontainer/myblob
+     * @return Authorization header value
+     */
+    public String authorize(long contentLength, String date, String path) {
+        StringBuilder sb = new StringBuilder(BEFORE_LENGTH.length() + beforeDate.length() + beforePath.length()
+                + date.length() + path.length() + 20);
+        sb.append(BEFORE_LENGTH);
+        if (contentLength != 0 || !zeroLengthEmpty) {
+            sb.append(contentLength);
+        }
+        sb.append(beforeDate).append(date).append(beforePath).append(path);
+        return headerPrefix.concat(signer.sign(sb.toString()));
+    }
+
+}
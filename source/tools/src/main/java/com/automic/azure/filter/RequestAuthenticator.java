@@ -0,0 +1,26 @@
+package com.automic.azure.filter;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Authenticates a storage service request. Filters use it for the requests sent through the client, and it is used
+ * directly for requests which are never sent on their own, such as the subrequests of a blob batch.
+ */
+public interface RequestAuthenticator {
+
+    /**
+     * Authenticate a request by adding to its headers or its query.
+     *
+     * @param method
+     *            HTTP method
+     * @param headers
+     *            request headers, headers needed for the authentication are added
+     * @param uri
+     *            request URI
+     * @return URI the request has to be sent to
+     */
+    URI authenticate(String method, Map<String, List<Object>> headers, URI uri);
+
+}
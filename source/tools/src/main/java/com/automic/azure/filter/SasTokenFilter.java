@@ -0,0 +1,149 @@
+package com.automic.azure.filter;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Filter Class to authenticate Storage service requests with a shared access signature. The SAS token is appended to
+ * the query of every request, so no request has to be signed.
+ *
+ * The token is either given or generated from the access key as an account SAS for the blob service. A generated token
+ * is valid for a limited time and renewed once half of it has passed.
+ *
+ * The source of a Copy Blob request in the same account is read by the service with the token as well.
+ */
+public class SasTokenFilter extends ClientFilter implements RequestAuthenticator {
+
+    // service version of the generated account SAS
+    private static final String ACCOUNT_SAS_VERSION = "2018-03-28";
+    // read, write, delete, list, add, create, update and process
+    private static final String ACCOUNT_SAS_PERMISSIONS = "rwdlacup";
+    private static final String ACCOUNT_SAS_SERVICES = "b";
+    // service, container and object
+    private static final String ACCOUNT_SAS_RESOURCE_TYPES = "sco";
+    private static final String ACCOUNT_SAS_PROTOCOL = "https";
+
+    private static final String ISO_8601_PATTERN = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    // tolerated difference between the local clock and the one of the service
+    private static final long CLOCK_SKEW_MILLIS = 5 * 60 * 1000L;
+
+    private static final String COPY_SOURCE_HEADER = "x-ms-copy-source";
+
+    private final SharedKeySigner signer;
+    private final long validityMillis;
+
+    private volatile String token;
+    private volatile long renewAt;
+
+    /**
+     * Authenticate with a given SAS token
+     *
+     * @param sasToken
+     *            SAS token, with or without leading ?
+     */
+    public SasTokenFilter(String sasToken) {
+        this.signer = null;
+        this.validityMillis = 0;
+        this.token = sasToken.startsWith("?") ? sasToken.substring(1) : sasToken;
+        this.renewAt = Long.MAX_VALUE;
+    }
+
+    /**
+     * Authenticate with account SAS tokens generated from the access key
+     *
+     * @param signer
+     *            signer holding the access key of the account
+     * @param validityMinutes
+     *            minutes a generated token is valid
+     */
+    public SasTokenFilter(SharedKeySigner signer, int validityMinutes) {
+        this.signer = signer;
+        this.validityMillis = validityMinutes * 60 * 1000L;
+        renewToken();
+    }
+
+    @Override
+    public ClientResponse handle(ClientRequest request) {
+        request.setURI(authenticate(request.getMethod(), request.getHeaders(), request.getURI()));
+
+        Object copySource = request.getHeaders().getFirst(COPY_SOURCE_HEADER);
+        if (copySource != null) {
+            URI uri = request.getURI();
+            URI sourceUri = URI.create(copySource.toString());
+            if (uri.getHost().equalsIgnoreCase(sourceUri.getHost()) && sourceUri.getRawQuery() == null) {
+                request.getHeaders().putSingle(COPY_SOURCE_HEADER, appendToken(sourceUri));
+            }
+        }
+
+        return getNext().handle(request);
+    }
+
+    @Override
+    public URI authenticate(String method, Map<String, List<Object>> headers, URI uri) {
+        if (System.currentTimeMillis() >= renewAt) {
+            renewToken();
+        }
+        return URI.create(appendToken(uri));
+    }
+
+    private String appendToken(URI uri) {
+        String separator = uri.getRawQuery() == null ? "?" : "&";
+        return uri.toString() + separator + token;
+    }
+
+    private synchronized void renewToken() {
+        long now = System.currentTimeMillis();
+        if (now < renewAt) {
+            return;
+        }
+        token = createAccountSas(new Date(now - CLOCK_SKEW_MILLIS), new Date(now + validityMillis));
+        renewAt = now + validityMillis / 2;
+    }
+
+    /**
+     * Create an account SAS. StringToSign = accountname + "\n" + signedpermissions + "\n" + signedservice + "\n" +
+     * signedresourcetype + "\n" + signedstart + "\n" + signedexpiry + "\n" + signedIP + "\n" + signedProtocol + "\n" +
+     * signedversion + "\n"
+     */
+    private String createAccountSas(Date start, Date expiry) {
+        DateFormat iso8601 = new SimpleDateFormat(ISO_8601_PATTERN);
+        iso8601.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String signedStart = iso8601.format(start);
+        String signedExpiry = iso8601.format(expiry);
+
+        StringBuilder stringToSign = new StringBuilder();
+        stringToSign.append(signer.getAccountName()).append("\n").append(ACCOUNT_SAS_PERMISSIONS).append("\n")
+                .append(ACCOUNT_SAS_SERVICES).append("\n").append(ACCOUNT_SAS_RESOURCE_TYPES).append("\n")
+                .append(signedStart).append("\n").append(signedExpiry).append("\n").append("\n")
+                .append(ACCOUNT_SAS_PROTOCOL).append("\n").append(ACCOUNT_SAS_VERSION).append("\n");
+        String signature = signer.sign(stringToSign.toString());
+
+        StringBuilder sas = new StringBuilder();
+        sas.append("sv=").append(ACCOUNT_SAS_VERSION).append("&ss=").append(ACCOUNT_SAS_SERVICES).append("&srt=")
+                .append(ACCOUNT_SAS_RESOURCE_TYPES).append("&sp=").append(ACCOUNT_SAS_PERMISSIONS).append("&st=")
+                .append(encode(signedStart)).append("&se=").append(encode(signedExpiry)).append("&spr=")
+                .append(ACCOUNT_SAS_PROTOCOL).append("&sig=").append(encode(signature));
+        return sas.toString();
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex);
+        }
+    }
+
+}
@@ -0,0 +1,569 @@
+package com.automic.azure.filter;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * Computes the SharedKey signature of storage service requests for one account. The access key is decoded once and
+ * every thread keeps its own initialized {@link Mac} together with the buffers used to build and encode the string to
+ * sign, so signing a request only allocates the resulting signature.
+ *
+ * Query parameters are decoded as URLEncodedUtils of the Apache HTTP client decodes them, the way requests have been
+ * signed before, except for characters which are neither ASCII nor escaped.
+ *
+ * The string to sign is built as follows. StringToSign = VERB + "\n" + Content-Encoding + "\n" + Content-Language +
+ * "\n" + Content-Length + "\n" + Content-MD5 + "\n" + Content-Type + "\n" + Date + "\n" + If-Modified-Since + "\n" +
+ * If-Match + "\n" + If-None-Match + "\n" + If-Unmodified-Since + "\n" + Range + "\n" + CanonicalizedHeaders +
+ * CanonicalizedResource;
+ *
+ * From x-ms-version 2015-02-21 on, a Content-Length of 0 is signed as an empty string.
+ *
+ * Instances are thread safe.
+ */
+public final class SharedKeySigner {
+
+    private static final String HMAC_SHA256 = "hmacSHA256";
+
+    private static final String[] STANDARD_HEADERS = { "Content-Encoding", "Content-Language", "Content-Length",
+            "Content-MD5", "Content-Type", "Date", "If-Modified-Since", "If-Match", "If-None-Match",
+            "If-Unmodified-Since", "Range" };
+
+    private static final String MS_HEADER_PREFIX = "x-ms-";
+    private static final String VERSION_HEADER = "x-ms-version";
+
+    private static final int CONTENT_LENGTH_INDEX = 2;
+
+    // first service version expecting an empty Content-Length in the string to sign for a zero length
+    private static final String EMPTY_ZERO_LENGTH_VERSION = "2015-02-21";
+
+    private static final char[] BASE64_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+            .toCharArray();
+
+    private final String accountName;
+    private final SecretKeySpec signingKey;
+
+    private final ThreadLocal<SigningContext> contexts = new ThreadLocal<SigningContext>() {
+        @Override
+        protected SigningContext initialValue() {
+            return new SigningContext();
+        }
+    };
+
+    /**
+     * @param accountName
+     *            storage account name
+     * @param accessKey
+     *            Base64 encoded access key of the account
+     */
+    public SharedKeySigner(String accountName, String accessKey) {
+        this.accountName = accountName;
+        this.signingKey = new SecretKeySpec(Base64.decodeBase64(accessKey), HMAC_SHA256);
+    }
+
+    /**
+     * get Account name
+     *
+     * @return account name
+     */
+    public String getAccountName() {
+        return accountName;
+    }
+
+    /**
+     * Compute the signature of a request.
+     *
+     * @param method
+     *            HTTP method
+     * @param headers
+     *            request headers
+     * @param uri
+     *            request URI
+     * @return Base64 encoded signature
+     * @throws IllegalArgumentException
+     *             if the key can not be used
+     */
+    public String sign(String method, Map<String, List<Object>> headers, URI uri) {
+        SigningContext context = contexts.get();
+        StringBuilder sb = context.stringToSign;
+        sb.setLength(0);
+
+        int msHeaderCount = context.collectHeaders(headers);
+        sb.append(method).append('\n');
+        Object[] standardValues = context.standardValues;
+        if (isZero(standardValues[CONTENT_LENGTH_INDEX]) && signsZeroLengthEmpty(context.getVersion(msHeaderCount))) {
+            standardValues[CONTENT_LENGTH_INDEX] = null;
+        }
+        for (int i = 0; i < standardValues.length; i++) {
+            if (standardValues[i] != null) {
+                sb.append(standardValues[i]);
+                standardValues[i] = null;
+            }
+            sb.append('\n');
+        }
+        appendCanonicalizedHeaders(context, msHeaderCount);
+        appendCanonicalizedResource(context, uri);
+
+        return context.sign();
+    }
+
+    /**
+     * Check if a service version signs a Content-Length of 0 as an empty string
+     *
+     * @param restapiVersion
+     *            x-ms-version of the request, may be null
+     * @return true from version 2015-02-21 on
+     */
+    static boolean signsZeroLengthEmpty(String restapiVersion) {
+        return restapiVersion != null && restapiVersion.compareTo(EMPTY_ZERO_LENGTH_VERSION) >= 0;
+    }
+
+    private static boolean isZero(Object contentLength) {
+        if (contentLength instanceof Number) {
+            return ((Number) contentLength).longValue() == 0;
+        }
+        return contentLength != null && "0".equals(contentLength.toString().trim());
+    }
+
+    /**
+     * Compute the signature of a string to sign that has already been built, as for shared access signatures.
+     *
+     * @param stringToSign
+     *            string to sign
+     * @return Base64 encoded signature
+     * @throws IllegalArgumentException
+     *             if the key can not be used
+     */
+    public String sign(String stringToSign) {
+        SigningContext context = contexts.get();
+        context.stringToSign.setLength(0);
+        context.stringToSign.append(stringToSign);
+        return context.sign();
+    }
+
+    /**
+     * Append the x-ms- headers with lower case names, sorted by name, one "name:value\n" line each.
+     */
+    private static void appendCanonicalizedHeaders(SigningContext context, int count) {
+        // insertion sort, requests carry a handful of x-ms- headers
+        String[] names = context.headerNames;
+        Object[] values = context.headerValues;
+        for (int i = 1; i < count; i++) {
+            String name = names[i];
+            Object value = values[i];
+            int j = i - 1;
+            while (j >= 0 && compareIgnoreCase(names[j], name) > 0) {
+                names[j + 1] = names[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            names[j + 1] = name;
+            values[j + 1] = value;
+        }
+
+        StringBuilder sb = context.stringToSign;
+        for (int i = 0; i < count; i++) {
+            appendLowerCase(sb, names[i], 0, names[i].length());
+            sb.append(':').append(values[i]).append('\n');
+            names[i] = null;
+            values[i] = null;
+        }
+    }
+
+    /**
+     * Append "/" + account + path followed by the query parameters with lower case names, sorted by name, one
+     * "\nname:value1,value2" line each with the URL decoded values sorted.
+     */
+    private void appendCanonicalizedResource(SigningContext context, URI uri) {
+        StringBuilder sb = context.stringToSign;
+        sb.append('/').append(accountName).append(uri.getPath());
+
+        String query = uri.getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return;
+        }
+
+        // decode all names and values into one buffer, each value is an entry with the ranges of name and value
+        StringBuilder decoded = context.decoded;
+        decoded.setLength(0);
+        int count = 0;
+        int start = 0;
+        while (start <= query.length()) {
+            int end = nextSeparator(query, start);
+            if (end > start) {
+                int eq = query.indexOf('=', start);
+                if (eq < 0 || eq > end) {
+                    eq = end;
+                }
+                int nameStart = decoded.length();
+                context.decode(query, start, eq, true);
+                int nameEnd = decoded.length();
+                if (nameEnd > nameStart) {
+                    int valueStart = nameEnd;
+                    context.decode(query, Math.min(eq + 1, end), end, false);
+                    int valueEnd = trimTrailingCommas(decoded, valueStart, decoded.length());
+                    // a value holding a comma separated list counts as several values
+                    for (int i = valueStart; i <= valueEnd; i++) {
+                        if (i == valueEnd || decoded.charAt(i) == ',') {
+                            count = context.addParameter(count, nameStart, nameEnd, valueStart, i);
+                            valueStart = i + 1;
+                        }
+                    }
+                }
+            }
+            start = end + 1;
+        }
+
+        context.sortParameters(count);
+
+        int[] ranges = context.parameters;
+        for (int i = 0; i < count; i++) {
+            int p = i * 4;
+            boolean sameName = i > 0
+                    && compareRanges(decoded, ranges[p - 4], ranges[p - 3], ranges[p], ranges[p + 1]) == 0;
+            if (sameName) {
+                sb.append(',');
+            } else {
+                sb.append('\n').append(decoded, ranges[p], ranges[p + 1]).append(':');
+            }
+            sb.append(decoded, ranges[p + 2], ranges[p + 3]);
+        }
+    }
+
+    private static int nextSeparator(String query, int start) {
+        for (int i = start; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '&' || c == ';') {
+                return i;
+            }
+        }
+        return query.length();
+    }
+
+    /**
+     * Drop the empty values at the end of a comma separated list as String.split does, a value of commas only is
+     * taken as one empty value
+     */
+    private static int trimTrailingCommas(CharSequence s, int start, int end) {
+        int trimmed = end;
+        while (trimmed > start && s.charAt(trimmed - 1) == ',') {
+            trimmed--;
+        }
+        return trimmed;
+    }
+
+    private static boolean isEscape(String s, int index, int end) {
+        return s.charAt(index) == '%' && index + 2 < end && hexValue(s, index + 1) >= 0
+                && hexValue(s, index + 2) >= 0;
+    }
+
+    private static int hexValue(String s, int index) {
+        return Character.digit(s.charAt(index), 16);
+    }
+
+    /**
+     * Encode chars as UTF-8, an unpaired surrogate is encoded as '?' as String.getBytes does
+     *
+     * @return position after the last byte written
+     */
+    private static int encodeUtf8(CharSequence s, int start, int end, byte[] bytes, int position) {
+        int pos = position;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[pos++] = (byte) (0xC0 | (c >> 6));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                bytes[pos++] = (byte) (0xF0 | (cp >> 18));
+                bytes[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                bytes[pos++] = (byte) '?';
+            } else {
+                bytes[pos++] = (byte) (0xE0 | (c >> 12));
+                bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+
+    private static void appendLowerCase(StringBuilder sb, String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            sb.append(Character.toLowerCase(s.charAt(i)));
+        }
+    }
+
+    private static int compareIgnoreCase(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            char ca = Character.toLowerCase(a.charAt(i));
+            char cb = Character.toLowerCase(b.charAt(i));
+            if (ca != cb) {
+                return ca - cb;
+            }
+        }
+        return a.length() - b.length();
+    }
+
+    private static int compareRanges(CharSequence s, int aStart, int aEnd, int bStart, int bEnd) {
+        int length = Math.min(aEnd - aStart, bEnd - bStart);
+        for (int i = 0; i < length; i++) {
+            char ca = s.charAt(aStart + i);
+            char cb = s.charAt(bStart + i);
+            if (ca != cb) {
+                return ca - cb;
+            }
+        }
+        return (aEnd - aStart) - (bEnd - bStart);
+    }
+
+    /**
+     * Per thread state: initialized Mac and the reusable buffers
+     */
+    private final class SigningContext {
+
+        private final Mac mac;
+        private final StringBuilder stringToSign = new StringBuilder(512);
+        private final StringBuilder decoded = new StringBuilder(128);
+        private byte[] bytes = new byte[512];
+        private final byte[] digest;
+
+        // query parts are decoded as bytes
+        private final CharsetDecoder utf8Decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private ByteBuffer queryBytes = ByteBuffer.allocate(256);
+        private CharBuffer queryChars = CharBuffer.allocate(256);
+        private final char[] signature;
+
+        // values of the standard headers with a single value
+        private final Object[] standardValues = new Object[STANDARD_HEADERS.length];
+
+        private String[] headerNames = new String[8];
+        private Object[] headerValues = new Object[8];
+
+        // name start, name end, value start, value end of each query parameter value
+        private int[] parameters = new int[32];
+
+        SigningContext() {
+            try {
+                mac = Mac.getInstance(HMAC_SHA256);
+                mac.init(signingKey);
+            } catch (InvalidKeyException | NoSuchAlgorithmException ex) {
+                throw new IllegalArgumentException(ex.getMessage(), ex);
+            }
+            digest = new byte[mac.getMacLength()];
+            signature = new char[(digest.length + 2) / 3 * 4];
+        }
+
+        /**
+         * Pick the standard and x-ms- headers in one pass, header names are compared ignoring case
+         *
+         * @return number of x-ms- headers
+         */
+        int collectHeaders(Map<String, List<Object>> headers) {
+            int count = 0;
+            for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
+                String name = header.getKey();
+                List<Object> values = header.getValue();
+                if (name.regionMatches(true, 0, MS_HEADER_PREFIX, 0, MS_HEADER_PREFIX.length())) {
+                    count = addHeader(count, name, values);
+                } else if (values != null && values.size() == 1) {
+                    for (int i = 0; i < STANDARD_HEADERS.length; i++) {
+                        if (STANDARD_HEADERS[i].equalsIgnoreCase(name)) {
+                            standardValues[i] = values.get(0);
+                            break;
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Get the x-ms-version among the collected x-ms- headers
+         *
+         * @return version or null
+         */
+        String getVersion(int count) {
+            for (int i = 0; i < count; i++) {
+                if (VERSION_HEADER.equalsIgnoreCase(headerNames[i]) && headerValues[i] != null) {
+                    return headerValues[i].toString();
+                }
+            }
+            return null;
+        }
+
+        private int addHeader(int count, String name, List<Object> values) {
+            if (count == headerNames.length) {
+                String[] names = new String[count * 2];
+                Object[] newValues = new Object[count * 2];
+                System.arraycopy(headerNames, 0, names, 0, count);
+                System.arraycopy(headerValues, 0, newValues, 0, count);
+                headerNames = names;
+                headerValues = newValues;
+            }
+            headerNames[count] = name;
+            headerValues[count] = values == null || values.isEmpty() ? null : values.get(0);
+            return count + 1;
+        }
+
+        int addParameter(int count, int nameStart, int nameEnd, int valueStart, int valueEnd) {
+            int p = count * 4;
+            if (p == parameters.length) {
+                int[] grown = new int[parameters.length * 2];
+                System.arraycopy(parameters, 0, grown, 0, p);
+                parameters = grown;
+            }
+            parameters[p] = nameStart;
+            parameters[p + 1] = nameEnd;
+            parameters[p + 2] = valueStart;
+            parameters[p + 3] = valueEnd;
+            return count + 1;
+        }
+
+        /**
+         * insertion sort of the parameter values by name and value
+         */
+        void sortParameters(int count) {
+            int[] r = parameters;
+            for (int i = 1; i < count; i++) {
+                int ns = r[i * 4];
+                int ne = r[i * 4 + 1];
+                int vs = r[i * 4 + 2];
+                int ve = r[i * 4 + 3];
+                int j = i - 1;
+                while (j >= 0 && compareParameter(j, ns, ne, vs, ve) > 0) {
+                    System.arraycopy(r, j * 4, r, (j + 1) * 4, 4);
+                    j--;
+                }
+                int p = (j + 1) * 4;
+                r[p] = ns;
+                r[p + 1] = ne;
+                r[p + 2] = vs;
+                r[p + 3] = ve;
+            }
+        }
+
+        private int compareParameter(int index, int ns, int ne, int vs, int ve) {
+            int p = index * 4;
+            int result = compareRanges(decoded, parameters[p], parameters[p + 1], ns, ne);
+            return result != 0 ? result : compareRanges(decoded, parameters[p + 2], parameters[p + 3], vs, ve);
+        }
+
+        /**
+         * URL decode a part of the query into the decoded buffer as URLEncodedUtils does. A + stands for a blank, an
+         * escape %xx for a byte and any other character for its UTF-8 bytes. The bytes are decoded as UTF-8, a
+         * malformed sequence is replaced by U+FFFD. Names are lower cased as String.toLowerCase(Locale.US) does.
+         *
+         * URLEncodedUtils took only the low byte of a character which is not ASCII, it is encoded as UTF-8 instead so
+         * that a URI signs the same as its ASCII form. A % not followed by two hex digits is kept as it is, which
+         * can not occur in a java.net.URI.
+         */
+        void decode(String s, int start, int end, boolean lowerCase) {
+            int maxBytes = (end - start) * 3;
+            if (queryBytes.capacity() < maxBytes) {
+                queryBytes = ByteBuffer.allocate(maxBytes);
+                queryChars = CharBuffer.allocate(maxBytes);
+            }
+            byte[] b = queryBytes.array();
+            int pos = 0;
+            int i = start;
+            while (i < end) {
+                char c = s.charAt(i);
+                if (c == '+') {
+                    b[pos++] = ' ';
+                    i++;
+                } else if (isEscape(s, i, end)) {
+                    b[pos++] = (byte) ((hexValue(s, i + 1) << 4) | hexValue(s, i + 2));
+                    i += 3;
+                } else {
+                    int literalEnd = i + 1;
+                    while (literalEnd < end && s.charAt(literalEnd) != '+' && !isEscape(s, literalEnd, end)) {
+                        literalEnd++;
+                    }
+                    pos = SharedKeySigner.encodeUtf8(s, i, literalEnd, b, pos);
+                    i = literalEnd;
+                }
+            }
+
+            queryBytes.clear();
+            queryBytes.limit(pos);
+            queryChars.clear();
+            utf8Decoder.reset();
+            utf8Decoder.decode(queryBytes, queryChars, true);
+            utf8Decoder.flush(queryChars);
+            queryChars.flip();
+
+            if (!lowerCase) {
+                decoded.append(queryChars);
+                return;
+            }
+            for (int k = 0; k < queryChars.limit(); k++) {
+                if (queryChars.get(k) >= 0x80) {
+                    // locale and context dependent mappings of non ASCII names, which are rare
+                    decoded.append(queryChars.toString().toLowerCase(Locale.US));
+                    return;
+                }
+            }
+            for (int k = 0; k < queryChars.limit(); k++) {
+                decoded.append(Character.toLowerCase(queryChars.get(k)));
+            }
+        }
+
+        /**
+         * Sign the string to sign as UTF-8
+         */
+        String sign() {
+            int length = encodeUtf8();
+            mac.update(bytes, 0, length);
+            try {
+                mac.doFinal(digest, 0);
+            } catch (ShortBufferException ex) {
+                throw new IllegalStateException(ex.getMessage(), ex);
+            }
+            return new String(signature, 0, encodeBase64());
+        }
+
+        private int encodeUtf8() {
+            int n = stringToSign.length();
+            if (bytes.length < n * 3) {
+                bytes = new byte[n * 3];
+            }
+            return SharedKeySigner.encodeUtf8(stringToSign, 0, n, bytes, 0);
+        }
+
+        private int encodeBase64() {
+            int pos = 0;
+            for (int i = 0; i < digest.length; i += 3) {
+                int b0 = digest[i] & 0xFF;
+                int b1 = i + 1 < digest.length ? digest[i + 1] & 0xFF : 0;
+                int b2 = i + 2 < digest.length ? digest[i + 2] & 0xFF : 0;
+                signature[pos++] = BASE64_CHARS[b0 >> 2];
+                signature[pos++] = BASE64_CHARS[((b0 & 0x03) << 4) | (b1 >> 4)];
+                signature[pos++] = i + 1 < digest.length ? BASE64_CHARS[((b1 & 0x0F) << 2) | (b2 >> 6)] : '=';
+                signature[pos++] = i + 2 < digest.length ? BASE64_CHARS[b2 & 0x3F] : '=';
+            }
+            return pos;
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.automic.azure.model;
+
+/**
+ * An POJO java class which maps to a Blob or BlobPrefix element of the List Blobs response.
+ */
+public final class AzureBlobModel {
+
+    private String name;
+    private boolean prefix;
+    private long contentLength;
+    private String contentMD5;
+    private String eTag;
+    private String lastModified;
+    private String blobType;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return true for a BlobPrefix element, which stands for the blobs sharing the prefix up to the delimiter
+     */
+    public boolean isPrefix() {
+        return prefix;
+    }
+
+    public void setPrefix(boolean prefix) {
+        this.prefix = prefix;
+    }
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public void setContentLength(long contentLength) {
+        this.contentLength = contentLength;
+    }
+
+    public String getContentMD5() {
+        return contentMD5;
+    }
+
+    public void setContentMD5(String contentMD5) {
+        this.contentMD5 = contentMD5;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(String lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public String getBlobType() {
+        return blobType;
+    }
+
+    public void setBlobType(String blobType) {
+        this.blobType = blobType;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("AzureBlobModel [name=");
+        builder.append(name);
+        builder.append(", prefix=");
+        builder.append(prefix);
+        builder.append(", contentLength=");
+        builder.append(contentLength);
+        builder.append(", blobType=");
+        builder.append(blobType);
+        builder.append("]");
+        return builder.toString();
+    }
+
+}
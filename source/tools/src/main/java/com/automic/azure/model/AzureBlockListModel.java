@@ -0,0 +1,51 @@
+package com.automic.azure.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * An POJO java class which maps to XML structure returned by the Get Block List operation.
+ */
+
+@XmlRootElement(name = "BlockList")
+public final class AzureBlockListModel {
+
+    private List<AzureBlockModel> committedBlocks = new ArrayList<AzureBlockModel>();
+    private List<AzureBlockModel> uncommittedBlocks = new ArrayList<AzureBlockModel>();
+
+    @XmlElementWrapper(name = "CommittedBlocks")
+    @XmlElement(name = "Block")
+    public List<AzureBlockModel> getCommittedBlocks() {
+        return committedBlocks;
+    }
+
+    public void setCommittedBlocks(List<AzureBlockModel> committedBlocks) {
+        this.committedBlocks = committedBlocks;
+    }
+
+    @XmlElementWrapper(name = "UncommittedBlocks")
+    @XmlElement(name = "Block")
+    public List<AzureBlockModel> getUncommittedBlocks() {
+        return uncommittedBlocks;
+    }
+
+    public void setUncommittedBlocks(List<AzureBlockModel> uncommittedBlocks) {
+        this.uncommittedBlocks = uncommittedBlocks;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("AzureBlockListModel [committedBlocks=");
+        builder.append(committedBlocks.size());
+        builder.append(", uncommittedBlocks=");
+        builder.append(uncommittedBlocks.size());
+        builder.append("]");
+        return builder.toString();
+    }
+
+}
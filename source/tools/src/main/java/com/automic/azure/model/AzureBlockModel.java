@@ -0,0 +1,42 @@
+package com.automic.azure.model;
+
+import javax.xml.bind.annotation.XmlElement;
+
+/**
+ * An POJO java class which maps to a Block element of the Get Block List response.
+ */
+public final class AzureBlockModel {
+
+    private String name;
+    private long size;
+
+    @XmlElement(name = "Name")
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @XmlElement(name = "Size")
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("AzureBlockModel [name=");
+        builder.append(name);
+        builder.append(", size=");
+        builder.append(size);
+        builder.append("]");
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,344 @@
+package com.automic.azure.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.filter.RequestAuthenticator;
+import com.automic.azure.util.CommonUtil;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+
+/**
+ * Class to send up to 256 Delete Blob or Set Blob Tier operations in a single Blob Batch request. Every operation is
+ * written as an HTTP subrequest of a multipart/mixed body and authenticated on its own, and the status of every
+ * operation is read from the parts of the multipart/mixed response.
+ *
+ * The subrequests are authenticated when the batch is submitted, so a batch may be filled on one thread and submitted
+ * on another. A batch is submitted once.
+ */
+public final class BlobBatch {
+
+    private static final Logger LOGGER = LogManager.getLogger(BlobBatch.class);
+
+    /**
+     * Maximum number of operations of a batch
+     */
+    public static final int MAX_OPERATIONS = 256;
+
+    // first service version supporting Blob Batch
+    private static final String MIN_BATCH_VERSION = "2018-11-09";
+
+    private static final String CRLF = "\r\n";
+    private static final String BOUNDARY_PREFIX = "batch_";
+    private static final String BOUNDARY_PARAMETER = "boundary=";
+
+    private final WebResource accountResource;
+    private final String restapiVersion;
+    private final RequestAuthenticator authenticator;
+
+    private final List<Operation> operations = new ArrayList<Operation>();
+
+    /**
+     * @param accountResource
+     *            resource of the blob service e.g. https://myaccount.blob.core.windows.net
+     * @param restapiVersion
+     *            x-ms-version of the batch, raised to the first version supporting batches if older
+     * @param authenticator
+     *            authenticator of the subrequests
+     */
+    public BlobBatch(WebResource accountResource, String restapiVersion, RequestAuthenticator authenticator) {
+        this.accountResource = accountResource;
+        this.restapiVersion = restapiVersion.compareTo(MIN_BATCH_VERSION) < 0 ? MIN_BATCH_VERSION : restapiVersion;
+        this.authenticator = authenticator;
+    }
+
+    /**
+     * Result of an operation of the batch
+     */
+    public static final class Result {
+
+        private final String blobName;
+        private final int statusCode;
+        private final String errorCode;
+
+        Result(String blobName, int statusCode, String errorCode) {
+            this.blobName = blobName;
+            this.statusCode = statusCode;
+            this.errorCode = errorCode;
+        }
+
+        public String getBlobName() {
+            return blobName;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * @return value of the x-ms-error-code header, null if the operation has succeeded
+         */
+        public String getErrorCode() {
+            return errorCode;
+        }
+
+        public boolean isSuccess() {
+            return statusCode >= 200 && statusCode <= 299;
+        }
+    }
+
+    /**
+     * Add a Delete Blob operation.
+     *
+     * @param containerName
+     *            container of the blob
+     * @param blobName
+     *            name of the blob
+     * @param snapshot
+     *            date-time of the snapshot to delete, null to delete the blob
+     * @param deleteSnapshots
+     *            value of x-ms-delete-snapshots, include or only, null if a snapshot is deleted
+     * @param leaseId
+     *            active lease of the blob, may be null
+     */
+    public void addDelete(String containerName, String blobName, String snapshot, String deleteSnapshots,
+            String leaseId) {
+        WebResource resource = accountResource.path(containerName).path(blobName);
+        if (snapshot != null) {
+            resource = resource.queryParam("snapshot", snapshot);
+        }
+        Operation operation = new Operation("DELETE", blobName, resource.getURI());
+        operation.addHeader("x-ms-delete-snapshots", deleteSnapshots);
+        operation.addHeader("x-ms-lease-id", leaseId);
+        add(operation);
+    }
+
+    /**
+     * Add a Set Blob Tier operation.
+     *
+     * @param containerName
+     *            container of the blob
+     * @param blobName
+     *            name of the blob
+     * @param tier
+     *            access tier e.g. Hot, Cool or Archive
+     */
+    public void addSetTier(String containerName, String blobName, String tier) {
+        URI uri = accountResource.path(containerName).path(blobName).queryParam("comp", "tier").getURI();
+        Operation operation = new Operation("PUT", blobName, uri);
+        operation.addHeader("x-ms-access-tier", tier);
+        add(operation);
+    }
+
+    private void add(Operation operation) {
+        if (isFull()) {
+            throw new IllegalStateException("Batch holds " + MAX_OPERATIONS + " operations already");
+        }
+        operations.add(operation);
+    }
+
+    /**
+     * @return number of operations in the batch
+     */
+    public int size() {
+        return operations.size();
+    }
+
+    /**
+     * @return true if no more operation can be added
+     */
+    public boolean isFull() {
+        return operations.size() >= MAX_OPERATIONS;
+    }
+
+    /**
+     * Method makes POST request to https://myaccount.blob.core.windows.net/?comp=batch
+     *
+     * @return results in the order the operations have been added
+     * @throws AzureException
+     *             if the response can not be read or does not hold a result for every operation
+     */
+    public List<Result> submit() throws AzureException {
+        String boundary = BOUNDARY_PREFIX + UUID.randomUUID();
+        byte[] body = createBody(boundary);
+
+        WebResource resource = accountResource.queryParam("comp", "batch");
+        LOGGER.info("Calling URL:" + resource.getURI() + " with [" + operations.size() + "] operations");
+        ClientResponse response = resource.header("Content-Length", body.length)
+                .header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                .header(Constants.X_MS_VERSION, restapiVersion)
+                .entity(body, "multipart/mixed; " + BOUNDARY_PARAMETER + boundary).post(ClientResponse.class);
+        try {
+            String contentType = response.getHeaders().getFirst("Content-Type");
+            return parseResponse(getBoundary(contentType), readFully(response.getEntityInputStream()));
+        } catch (IOException e) {
+            LOGGER.error(ExceptionConstants.ERROR_BLOB_BATCH, e);
+            throw new AzureException(ExceptionConstants.ERROR_BLOB_BATCH);
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Write every operation as a part holding the request line, the headers and an empty body. The x-ms-version of
+     * the batch applies to all the subrequests.
+     */
+    private byte[] createBody(String boundary) {
+        String date = CommonUtil.getCurrentUTCDateForStorageService();
+        StringBuilder body = new StringBuilder(operations.size() * 512);
+        for (int i = 0; i < operations.size(); i++) {
+            Operation operation = operations.get(i);
+            Map<String, List<Object>> headers = new LinkedHashMap<String, List<Object>>();
+            putHeader(headers, "x-ms-date", date);
+            for (int h = 0; h < operation.headerNames.size(); h++) {
+                putHeader(headers, operation.headerNames.get(h), operation.headerValues.get(h));
+            }
+            URI uri = authenticator.authenticate(operation.method, headers, operation.uri);
+            putHeader(headers, "Content-Length", "0");
+
+            body.append("--").append(boundary).append(CRLF);
+            body.append("Content-Type: application/http").append(CRLF);
+            body.append("Content-Transfer-Encoding: binary").append(CRLF);
+            body.append("Content-ID: ").append(i).append(CRLF).append(CRLF);
+            body.append(operation.method).append(' ').append(uri.getRawPath());
+            if (uri.getRawQuery() != null) {
+                body.append('?').append(uri.getRawQuery());
+            }
+            body.append(" HTTP/1.1").append(CRLF);
+            for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
+                body.append(header.getKey()).append(": ").append(header.getValue().get(0)).append(CRLF);
+            }
+            body.append(CRLF);
+        }
+        body.append("--").append(boundary).append("--").append(CRLF);
+        return body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putHeader(Map<String, List<Object>> headers, String name, Object value) {
+        headers.put(name, Collections.singletonList(value));
+    }
+
+    /**
+     * Read the status line and the x-ms-error-code header of every part. A part is matched to its operation by the
+     * Content-ID of the subrequest.
+     */
+    private List<Result> parseResponse(String boundary, String body) throws AzureException {
+        Result[] results = new Result[operations.size()];
+        String delimiter = "--" + boundary;
+        int start = body.indexOf(delimiter);
+        while (start >= 0) {
+            start += delimiter.length();
+            if (body.startsWith("--", start)) {
+                break;
+            }
+            int end = body.indexOf(delimiter, start);
+            String part = body.substring(start, end < 0 ? body.length() : end);
+            parsePart(part, results);
+            start = end;
+        }
+
+        List<Result> resultList = new ArrayList<Result>(results.length);
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                String msg = String.format(ExceptionConstants.MISSING_BATCH_RESULT, operations.get(i).blobName);
+                LOGGER.error(msg);
+                throw new AzureException(msg);
+            }
+            resultList.add(results[i]);
+        }
+        return resultList;
+    }
+
+    private void parsePart(String part, Result[] results) {
+        int contentId = -1;
+        int statusCode = -1;
+        String errorCode = null;
+        for (String line : part.split(CRLF)) {
+            if (statusCode < 0) {
+                if (startsWithIgnoreCase(line, "Content-ID:")) {
+                    contentId = Integer.parseInt(line.substring("Content-ID:".length()).trim());
+                } else if (line.startsWith("HTTP/")) {
+                    String[] statusLine = line.split(" ", 3);
+                    statusCode = Integer.parseInt(statusLine[1]);
+                }
+            } else if (line.isEmpty()) {
+                // end of the headers of the subresponse
+                break;
+            } else if (startsWithIgnoreCase(line, "x-ms-error-code:")) {
+                errorCode = line.substring("x-ms-error-code:".length()).trim();
+            }
+        }
+        if (contentId >= 0 && contentId < results.length && statusCode >= 0) {
+            results[contentId] = new Result(operations.get(contentId).blobName, statusCode, errorCode);
+        }
+    }
+
+    private static boolean startsWithIgnoreCase(String line, String prefix) {
+        return line.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    private static String getBoundary(String contentType) throws IOException {
+        int index = contentType == null ? -1 : contentType.indexOf(BOUNDARY_PARAMETER);
+        if (index < 0) {
+            throw new IOException("No multipart boundary in Content-Type [" + contentType + "]");
+        }
+        String boundary = contentType.substring(index + BOUNDARY_PARAMETER.length());
+        int end = boundary.indexOf(';');
+        boundary = (end < 0 ? boundary : boundary.substring(0, end)).trim();
+        if (boundary.startsWith("\"") && boundary.endsWith("\"") && boundary.length() > 1) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        return boundary;
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Operation of the batch, the headers are set on the subrequest in the order they have been added
+     */
+    private static final class Operation {
+
+        private final String method;
+        private final String blobName;
+        private final URI uri;
+        private final List<String> headerNames = new ArrayList<String>(2);
+        private final List<String> headerValues = new ArrayList<String>(2);
+
+        Operation(String method, String blobName, URI uri) {
+            this.method = method;
+            this.blobName = blobName;
+            this.uri = uri;
+        }
+
+        void addHeader(String name, String value) {
+            if (value != null) {
+                headerNames.add(name);
+                headerValues.add(value);
+            }
+        }
+    }
+
+}
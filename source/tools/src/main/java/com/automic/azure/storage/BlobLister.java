@@ -0,0 +1,215 @@
+package com.automic.azure.storage;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.model.AzureBlobModel;
+import com.automic.azure.util.CommonUtil;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+
+/**
+ * Class to list the blobs of a container page by page. A page holds up to 5000 blobs and the NextMarker of a page is
+ * passed on to request the next one. The response is read with a streaming parser, so a page is never held as a
+ * document tree, and the entries can be handed on one by one while the page is read.
+ */
+public final class BlobLister {
+
+    private static final Logger LOGGER = LogManager.getLogger(BlobLister.class);
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private final WebResource containerResource;
+    private final String restapiVersion;
+    private final String prefix;
+    private final String delimiter;
+
+    private String marker;
+    private boolean lastPage;
+
+    /**
+     * @param containerResource
+     *            resource of the container e.g. https://myaccount.blob.core.windows.net/mycontainer
+     * @param restapiVersion
+     *            x-ms-version used for the requests
+     * @param prefix
+     *            only list blobs whose name begins with the prefix, may be null
+     * @param delimiter
+     *            group the blobs whose name continues with the delimiter after the prefix into BlobPrefix elements,
+     *            may be null
+     */
+    public BlobLister(WebResource containerResource, String restapiVersion, String prefix, String delimiter) {
+        this.containerResource = containerResource;
+        this.restapiVersion = restapiVersion;
+        this.prefix = prefix;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Handler of the entries of a page
+     */
+    public interface BlobHandler {
+
+        /**
+         * Handle a blob or blob prefix as soon as it has been read
+         *
+         * @param blob
+         *            {@link AzureBlobModel}
+         * @throws AzureException
+         */
+        void handle(AzureBlobModel blob) throws AzureException;
+    }
+
+    /**
+     * @return true until the last page has been read
+     */
+    public boolean hasNextPage() {
+        return !lastPage;
+    }
+
+    /**
+     * Read the next page into a list
+     *
+     * @return blobs and blob prefixes of the next page in the order returned by the service
+     * @throws AzureException
+     */
+    public List<AzureBlobModel> nextPage() throws AzureException {
+        final List<AzureBlobModel> blobs = new ArrayList<AzureBlobModel>();
+        nextPage(new BlobHandler() {
+            @Override
+            public void handle(AzureBlobModel blob) {
+                blobs.add(blob);
+            }
+        });
+        return blobs;
+    }
+
+    /**
+     * Method makes GET request to https://myaccount.blob.core.windows.net/mycontainer?restype=container&comp=list
+     *
+     * @param handler
+     *            handler of the blobs and blob prefixes in the order returned by the service
+     * @return number of entries of the page
+     * @throws AzureException
+     */
+    public int nextPage(BlobHandler handler) throws AzureException {
+        WebResource resource = containerResource.queryParam("restype", "container").queryParam("comp", "list");
+        if (prefix != null) {
+            resource = resource.queryParam("prefix", prefix);
+        }
+        if (delimiter != null) {
+            resource = resource.queryParam("delimiter", delimiter);
+        }
+        if (marker != null) {
+            resource = resource.queryParam("marker", marker);
+        }
+        LOGGER.info("Calling URL:" + resource.getURI());
+        ClientResponse response = resource.header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                .header(Constants.X_MS_VERSION, restapiVersion).get(ClientResponse.class);
+        try {
+            return parse(response.getEntityInputStream(), handler);
+        } catch (XMLStreamException e) {
+            LOGGER.error(ExceptionConstants.ERROR_LISTING_BLOBS, e);
+            throw new AzureException(ExceptionConstants.ERROR_LISTING_BLOBS);
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Parse the EnumerationResults of a page and keep its NextMarker. Only the Name and the Properties of a blob are
+     * read, other children such as Metadata are skipped.
+     */
+    private int parse(InputStream in, BlobHandler handler) throws XMLStreamException, AzureException {
+        int count = 0;
+        String nextMarker = null;
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String element = reader.getLocalName();
+                if ("Blob".equals(element) || "BlobPrefix".equals(element)) {
+                    AzureBlobModel blob = new AzureBlobModel();
+                    blob.setPrefix("BlobPrefix".equals(element));
+                    parseBlob(blob, reader);
+                    handler.handle(blob);
+                    count++;
+                } else if ("NextMarker".equals(element)) {
+                    nextMarker = reader.getElementText();
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        marker = nextMarker == null || nextMarker.isEmpty() ? null : nextMarker;
+        lastPage = marker == null;
+        return count;
+    }
+
+    // read the children of a Blob or BlobPrefix element up to its end
+    private static void parseBlob(AzureBlobModel blob, XMLStreamReader reader) throws XMLStreamException {
+        int depth = 0;
+        boolean inProperties = false;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String element = reader.getLocalName();
+                if (depth == 0 && "Name".equals(element)) {
+                    blob.setName(reader.getElementText());
+                } else if (!(depth == 1 && inProperties && setProperty(blob, element, reader))) {
+                    if (depth == 0) {
+                        inProperties = "Properties".equals(element);
+                    }
+                    depth++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (depth == 0) {
+                    return;
+                }
+                depth--;
+            }
+        }
+    }
+
+    // read a child of Properties, returns false if the property is not of interest and has not been read
+    private static boolean setProperty(AzureBlobModel blob, String element, XMLStreamReader reader)
+            throws XMLStreamException {
+        if ("Content-Length".equals(element)) {
+            blob.setContentLength(Long.parseLong(reader.getElementText()));
+        } else if ("Content-MD5".equals(element)) {
+            String contentMD5 = reader.getElementText();
+            blob.setContentMD5(contentMD5.isEmpty() ? null : contentMD5);
+        } else if ("Etag".equals(element)) {
+            blob.setETag(reader.getElementText());
+        } else if ("Last-Modified".equals(element)) {
+            blob.setLastModified(reader.getElementText());
+        } else if ("BlobType".equals(element)) {
+            blob.setBlobType(reader.getElementText());
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+
+}
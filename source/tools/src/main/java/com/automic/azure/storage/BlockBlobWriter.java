@@ -0,0 +1,193 @@
+package com.automic.azure.storage;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+import javax.ws.rs.core.MediaType;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.exception.AzureRuntimeException;
+import com.automic.azure.model.AzureBlockListModel;
+import com.automic.azure.model.AzureBlockModel;
+import com.automic.azure.util.CommonUtil;
+import com.automic.azure.util.StreamingEntity;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+
+/**
+ * Class to write a block blob in a single request or block by block. Blocks are staged with their id and the blob is
+ * made of the blocks named by the block list committed at the end.
+ *
+ * Instances are thread safe.
+ */
+public final class BlockBlobWriter {
+
+    private static final Logger LOGGER = LogManager.getLogger(BlockBlobWriter.class);
+
+    private final WebResource blobResource;
+    private final String blobName;
+    private final String restapiVersion;
+    private final String contentType;
+    private final DateFormat rfc1123Format;
+
+    /**
+     * @param blobResource
+     *            resource of the blob e.g. https://myaccount.blob.core.windows.net/mycontainer/myblob
+     * @param blobName
+     *            name of the blob
+     * @param restapiVersion
+     *            x-ms-version used for the requests
+     * @param contentType
+     *            Content-Type of the blob
+     */
+    public BlockBlobWriter(WebResource blobResource, String blobName, String restapiVersion, String contentType) {
+        this.blobResource = blobResource;
+        this.blobName = blobName;
+        this.restapiVersion = restapiVersion;
+        this.contentType = contentType;
+        this.rfc1123Format = new SimpleDateFormat(Constants.STORAGE_DATE_PATTERN);
+        this.rfc1123Format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    }
+
+    /**
+     * @return name of the blob
+     */
+    public String getBlobName() {
+        return blobName;
+    }
+
+    /**
+     * Method makes PUT request to https://myaccount.blob.core.windows.net/mycontainer/myblob to upload the blob as a
+     * single entity.
+     *
+     * @param content
+     *            content of the blob
+     * @param contentMD5
+     *            Content-MD5 verified by the service and kept as the one of the blob, may be null
+     * @return closed response, its headers hold the request id and the ETag of the blob
+     */
+    public ClientResponse putBlob(StreamingEntity content, String contentMD5) {
+        WebResource.Builder builder = blobResource.header("Content-Length", content.getContentLength())
+                .header(Constants.X_MS_VERSION, restapiVersion).header("x-ms-blob-type", "BlockBlob")
+                .header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService());
+        if (contentMD5 != null) {
+            builder = builder.header("Content-MD5", contentMD5);
+        }
+        ClientResponse response = builder.entity(content, contentType).put(ClientResponse.class);
+        response.close();
+        return response;
+    }
+
+    /**
+     * Method makes PUT request to https://myaccount.blob.core.windows.net/mycontainer/myblob?comp=block to stage a
+     * block.
+     *
+     * @param blockId
+     *            Base64 encoded id of the block
+     * @param block
+     *            content of the block
+     */
+    public void stageBlock(String blockId, StreamingEntity block) {
+        ClientResponse response = blobResource.queryParam("comp", "block").queryParam("blockid", blockId)
+                .header("Content-Length", block.getContentLength()).header(Constants.X_MS_VERSION, restapiVersion)
+                .header("x-ms-blob-type", "BlockBlob").header("x-ms-date", getCurrentDate())
+                .entity(block, contentType).put(ClientResponse.class);
+        response.close();
+    }
+
+    /**
+     * Method makes PUT request to https://myaccount.blob.core.windows.net/mycontainer/myblob?comp=blocklist to commit
+     * the blocks of the blob.
+     *
+     * @param blockList
+     *            blocks making up the blob
+     * @param contentMD5
+     *            Content-MD5 of the blob, may be null
+     * @return closed response, its headers hold the request id and the ETag of the blob
+     */
+    public ClientResponse commitBlockList(BlockList blockList, String contentMD5) {
+        LOGGER.info("Uploading block list of [" + blockList.size() + "] blocks to commit");
+        WebResource.Builder builder = blobResource.queryParam("comp", "blocklist")
+                .header("Content-Length", blockList.getContentLength())
+                .header(Constants.X_MS_VERSION, restapiVersion)
+                .header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                .header("x-ms-blob-content-type", contentType);
+        if (contentMD5 != null) {
+            builder = builder.header("x-ms-blob-content-md5", contentMD5);
+        }
+        ClientResponse response = builder.entity(blockList, MediaType.APPLICATION_XML).put(ClientResponse.class);
+        response.close();
+        return response;
+    }
+
+    /**
+     * Method makes GET request to https://myaccount.blob.core.windows.net/mycontainer/myblob?comp=blocklist
+     *
+     * @param blockListType
+     *            committed, uncommitted or all
+     * @return blocks of the blob, none if the blob does not exist
+     */
+    public AzureBlockListModel getBlockList(String blockListType) {
+        WebResource resource = blobResource.queryParam("comp", "blocklist").queryParam("blocklisttype",
+                blockListType);
+        try {
+            return resource.header(Constants.X_MS_VERSION, restapiVersion)
+                    .header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                    .get(AzureBlockListModel.class);
+        } catch (AzureRuntimeException e) {
+            // blob without any block
+            if (e.getStatusCode() != ClientResponse.Status.NOT_FOUND.getStatusCode()) {
+                throw e;
+            }
+            return new AzureBlockListModel();
+        }
+    }
+
+    /**
+     * @return size of every uncommitted block of the blob by block id
+     * @throws AzureException
+     *             if a block has an id of another length than the ones of this tool
+     */
+    public Map<String, Long> getUncommittedBlocks() throws AzureException {
+        Map<String, Long> blocks = toMap(getBlockList("uncommitted").getUncommittedBlocks());
+        LOGGER.info("[" + blocks.size() + "] uncommitted block(s) found for blob [" + blobName + "]");
+        checkUncommittedBlockIds(blocks.keySet());
+        return blocks;
+    }
+
+    // blocks of another id length would make every block staged by this upload fail
+    void checkUncommittedBlockIds(Set<String> blockIds) throws AzureException {
+        for (String blockId : blockIds) {
+            if (BlockList.isForeignBlockId(blockId)) {
+                String msg = String.format(ExceptionConstants.FOREIGN_UNCOMMITTED_BLOCKS, blobName);
+                LOGGER.error(msg + " Block id: " + blockId);
+                throw new AzureException(msg);
+            }
+        }
+    }
+
+    static Map<String, Long> toMap(List<AzureBlockModel> blocks) {
+        Map<String, Long> map = new HashMap<String, Long>();
+        for (AzureBlockModel block : blocks) {
+            map.put(block.getName(), block.getSize());
+        }
+        return map;
+    }
+
+    // one date format shared by the threads staging blocks
+    private synchronized String getCurrentDate() {
+        return rfc1123Format.format(new Date());
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.automic.azure.storage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class to generate the ids of the blocks of an upload from their index, so a resumed upload names its blocks as the
+ * interrupted one did.
+ */
+final class BlockIdGenerator {
+
+    private short blockId = 0;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BlockList.BLOCK_ID_SIZE);
+
+    String generateBlockIdBase64encoded() {
+        buffer.putShort(0, blockId++);
+        return BlockList.encodeBlockId(buffer.array());
+    }
+
+}
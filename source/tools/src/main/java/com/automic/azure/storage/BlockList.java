@@ -0,0 +1,194 @@
+package com.automic.azure.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.util.StreamingEntity;
+import com.sun.jersey.core.util.Base64;
+
+/**
+ * Class that holds the block list of a block blob in memory and writes it as the body of a Put Block List request.
+ * Block ids of a blob are base64 strings of the same length, so they are stored back to back in a single byte array
+ * together with one byte per block for the list the block is taken from. The list is kept after the commit, so the
+ * same list can be committed again.
+ */
+public final class BlockList implements StreamingEntity {
+
+    /**
+     * Block list in which the service looks up a block id on commit
+     */
+    public enum BlockType {
+        COMMITTED("Committed"), UNCOMMITTED("Uncommitted"), LATEST("Latest");
+
+        private final byte[] startTag;
+        private final byte[] endTag;
+
+        private BlockType(String element) {
+            this.startTag = ("<" + element + ">").getBytes(StandardCharsets.UTF_8);
+            this.endTag = ("</" + element + ">").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Number of bytes of a block id. The service rejects blocks whose id differs in length from the ids of the
+     * uncommitted blocks of the blob, so every upload mode uses ids of this size.
+     */
+    public static final int BLOCK_ID_SIZE = 16;
+
+    // length of a base64 encoded block id
+    private static final int ENCODED_BLOCK_ID_LENGTH = 24;
+
+    private static final byte[] HEADER = "<?xml version=\"1.0\" encoding=\"utf-8\"?><BlockList>"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FOOTER = "</BlockList>".getBytes(StandardCharsets.UTF_8);
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final BlockType[] TYPES = BlockType.values();
+
+    private int idLength = -1;
+    private byte[] ids = new byte[0];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Encode a block id
+     *
+     * @param id
+     *            bytes of the id, only the first {@link #BLOCK_ID_SIZE} bytes are used and shorter ids are padded with
+     *            zeros
+     * @return base64 encoded block id
+     */
+    public static String encodeBlockId(byte[] id) {
+        return new String(Base64.encode(Arrays.copyOf(id, BLOCK_ID_SIZE)), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Check if a block id has been created by another tool, as it is not of the length of the ids of this tool.
+     *
+     * @param blockId
+     *            base64 encoded block id
+     * @return true if the id has another length
+     */
+    public static boolean isForeignBlockId(String blockId) {
+        return blockId.length() != ENCODED_BLOCK_ID_LENGTH;
+    }
+
+    /**
+     * Append a block to the list.
+     * 
+     * @param blockId
+     *            base64 encoded block id
+     * @param type
+     *            list in which the block is looked up on commit
+     */
+    public void add(String blockId, BlockType type) {
+        byte[] id = blockId.getBytes(StandardCharsets.US_ASCII);
+        if (idLength == -1) {
+            idLength = id.length;
+            ids = new byte[INITIAL_CAPACITY * idLength];
+        } else if (id.length != idLength) {
+            throw new IllegalArgumentException("Block id [" + blockId + "] is not of length " + idLength);
+        }
+        if (size == types.length) {
+            types = Arrays.copyOf(types, size * 2);
+            ids = Arrays.copyOf(ids, size * 2 * idLength);
+        }
+        System.arraycopy(id, 0, ids, size * idLength, idLength);
+        types[size] = (byte) type.ordinal();
+        size++;
+    }
+
+    /**
+     * get number of blocks in the list
+     * 
+     * @return count of blocks
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the id of a block.
+     * 
+     * @param index
+     *            position of the block in the list
+     * @return base64 encoded block id
+     */
+    public String getBlockId(int index) {
+        checkIndex(index);
+        return new String(ids, index * idLength, idLength, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Get the list a block is looked up in.
+     * 
+     * @param index
+     *            position of the block in the list
+     * @return {@link BlockType}
+     */
+    public BlockType getType(int index) {
+        checkIndex(index);
+        return TYPES[types[index]];
+    }
+
+    /**
+     * Change the list a block is looked up in, e.g. to commit again a list whose blocks have been committed already.
+     * 
+     * @param index
+     *            position of the block in the list
+     * @param type
+     *            {@link BlockType}
+     */
+    public void setType(int index, BlockType type) {
+        checkIndex(index);
+        types[index] = (byte) type.ordinal();
+    }
+
+    /**
+     * get size of the request body written by {@link #writeTo(OutputStream)}
+     * 
+     * @return length in bytes
+     */
+    @Override
+    public long getContentLength() {
+        long length = HEADER.length + FOOTER.length + (long) size * Math.max(idLength, 0);
+        for (int i = 0; i < size; i++) {
+            BlockType type = TYPES[types[i]];
+            length += type.startTag.length + type.endTag.length;
+        }
+        return length;
+    }
+
+    /**
+     * Write the block list as XML.
+     * 
+     * @param output
+     *            stream to write to
+     * @throws IOException
+     */
+    @Override
+    public void writeTo(OutputStream output) throws IOException {
+        OutputStream out = new BufferedOutputStream(output, Constants.IO_BUFFER_SIZE);
+        out.write(HEADER);
+        for (int i = 0; i < size; i++) {
+            BlockType type = TYPES[types[i]];
+            out.write(type.startTag);
+            out.write(ids, i * idLength, idLength);
+            out.write(type.endTag);
+        }
+        out.write(FOOTER);
+        out.flush();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+}
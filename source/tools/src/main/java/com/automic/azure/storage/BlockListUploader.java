@@ -0,0 +1,153 @@
+package com.automic.azure.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.storage.BlockList.BlockType;
+import com.automic.azure.util.BoundedExecutor;
+import com.automic.azure.util.FileBlock;
+import com.automic.azure.util.FileBlockSource;
+
+/**
+ * Class to upload a file to a block blob in blocks of a fixed size staged in parallel. The block list names the blocks
+ * in file order, whatever the order in which they complete.
+ *
+ * A resumable upload records every block staged in an {@link UploadJournal}, so a run after an interruption only
+ * stages the blocks which are not uncommitted on the service yet.
+ */
+public final class BlockListUploader extends FileBlobUploader {
+
+    private static final Logger LOGGER = LogManager.getLogger(BlockListUploader.class);
+
+    private final BlockBlobWriter writer;
+    private final long blockSize;
+    private final int parallelism;
+
+    private String resumeKey;
+
+    /**
+     * @param writer
+     *            {@link BlockBlobWriter} of the blob
+     * @param file
+     *            file to upload
+     * @param fileSize
+     *            size of the file
+     * @param blockSize
+     *            size of the blocks
+     * @param parallelism
+     *            number of blocks staged in parallel
+     */
+    public BlockListUploader(BlockBlobWriter writer, File file, long fileSize, long blockSize, int parallelism) {
+        super(file, fileSize);
+        this.writer = writer;
+        this.blockSize = blockSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Reuse the blocks staged by an interrupted upload of the file to the blob.
+     *
+     * @param blobKey
+     *            account, container and name of the blob separated by /
+     */
+    public void setResumeKey(String blobKey) {
+        this.resumeKey = blobKey;
+    }
+
+    @Override
+    public void upload(String contentMD5) throws AzureException {
+        UploadJournal journal = null;
+        try {
+            if (resumeKey != null) {
+                journal = openJournal();
+            }
+            BlockList blockList = new BlockList();
+            uploadBlocks(blockList, journal);
+            completed(writer.commitBlockList(blockList, contentMD5), fileSize);
+            if (journal != null) {
+                journal.delete();
+            }
+        } catch (IOException e) {
+            LOGGER.error(ExceptionConstants.ERROR_BLOCK_BLOB_UPLOAD, e);
+            throw new AzureException(ExceptionConstants.ERROR_BLOCK_BLOB_UPLOAD);
+        } finally {
+            closeJournal(journal);
+        }
+    }
+
+    // open the journal of staged blocks and drop the blocks which are not uncommitted on the service anymore
+    private UploadJournal openJournal() throws IOException, AzureException {
+        File journalFile = UploadJournal.getJournalFile(resumeKey + "|" + file.getCanonicalPath());
+        UploadJournal journal = UploadJournal.open(journalFile, fileSize + " " + file.lastModified() + " "
+                + blockSize);
+        if (journal.size() > 0) {
+            journal.reconcile(writer.getUncommittedBlocks());
+            LOGGER.info("[" + journal.size() + "] block(s) staged by a previous run will be reused.");
+        }
+        return journal;
+    }
+
+    private void closeJournal(UploadJournal journal) {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                LOGGER.error("Unable to close upload journal", e);
+            }
+        }
+    }
+
+    private void uploadBlocks(BlockList blockList, final UploadJournal journal) throws IOException, AzureException {
+        BlockIdGenerator generator = new BlockIdGenerator();
+        final UploadProgress progress = new UploadProgress(fileSize);
+
+        LOGGER.info("Uploading blocks of [" + blockSize + "] bytes using [" + parallelism
+                + "] parallel connection(s).");
+        FileBlockSource blockSource = new FileBlockSource(file);
+        BoundedExecutor executor = new BoundedExecutor(parallelism, ExceptionConstants.ERROR_BLOCK_BLOB_UPLOAD);
+        try {
+            long offset = 0;
+            int index = 0;
+            while (offset < fileSize) {
+                final int blockIndex = index++;
+                final String blockId = generator.generateBlockIdBase64encoded();
+                // add blockid to block list to commit later, blocks are listed in file order irrespective of the
+                // order in which they complete
+                blockList.add(blockId, BlockType.UNCOMMITTED);
+
+                final FileBlock block = blockSource.block(offset, Math.min(blockSize, fileSize - offset));
+                offset += block.getLength();
+
+                // block staged by an interrupted run of the same upload
+                if (journal != null && journal.isStaged(blockIndex, blockId, block.getOffset(), block.getLength())) {
+                    progress.blockSkipped(block.getLength());
+                    continue;
+                }
+
+                executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        writer.stageBlock(blockId, block);
+                        if (journal != null) {
+                            journal.blockStaged(blockIndex, blockId, block.getOffset(), block.getLength());
+                        }
+                        progress.blockUploaded(block.getLength());
+                        return null;
+                    }
+                });
+            }
+            executor.awaitCompletion();
+            progress.logSkipped();
+        } finally {
+            executor.shutdown();
+            close(blockSource);
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.automic.azure.storage;
+
+/**
+ * Class to choose the block size and the single request upload threshold of a block blob upload. The choice depends
+ * on the size of the file, the limits of the storage service version used and the memory the upload is allowed to
+ * hold for the blocks in flight. Larger blocks mean fewer requests to sign and send, while enough blocks are kept to
+ * give every parallel connection some work.
+ */
+public final class BlockSizePolicy {
+
+    /**
+     * Maximum number of blocks in a block blob
+     */
+    public static final int MAX_BLOCKS = 50000;
+
+    private static final long MB = 1024L * 1024;
+
+    // smallest block size used, also the only block size supported before 2016-05-31
+    private static final long MIN_BLOCK_SIZE = 4 * MB;
+
+    // block size of a stream, which keeps the ring of buffers small whatever the memory budget
+    private static final long STREAM_BLOCK_SIZE = 16 * MB;
+
+    // blocks per parallel connection to aim for
+    private static final int BLOCKS_PER_CONNECTION = 4;
+
+    private static final String VERSION_2016_05_31 = "2016-05-31";
+    private static final String VERSION_2019_12_12 = "2019-12-12";
+
+    private final long blockSize;
+    private final long singlePutThreshold;
+    private final long maxBlobSize;
+
+    private BlockSizePolicy(long blockSize, long singlePutThreshold, long maxBlobSize) {
+        this.blockSize = blockSize;
+        this.singlePutThreshold = singlePutThreshold;
+        this.maxBlobSize = maxBlobSize;
+    }
+
+    /**
+     * Choose the block size and single request threshold for a file.
+     * 
+     * @param fileSize
+     *            size of the file to upload
+     * @param restapiVersion
+     *            x-ms-version used for the requests
+     * @param memoryBudget
+     *            bytes which may be held by blocks in flight
+     * @param parallelism
+     *            number of blocks uploaded in parallel
+     * @param maxStreamedEntitySize
+     *            largest request body the HTTP transport streams without buffering it
+     * @return {@link BlockSizePolicy}
+     */
+    public static BlockSizePolicy forUpload(long fileSize, String restapiVersion, long memoryBudget, int parallelism,
+            long maxStreamedEntitySize) {
+        long maxBlockSize = Math.min(Math.min(getMaxBlockSize(restapiVersion), maxStreamedEntitySize),
+                Math.max(MIN_BLOCK_SIZE, roundDownToMB(memoryBudget / parallelism)));
+
+        long requiredBlockSize = Math.max(MIN_BLOCK_SIZE, roundUpToMB(divideRoundUp(fileSize, MAX_BLOCKS)));
+        long preferredBlockSize = roundUpToMB(divideRoundUp(fileSize, (long) parallelism * BLOCKS_PER_CONNECTION));
+        long blockSize = Math.min(maxBlockSize, Math.max(requiredBlockSize, preferredBlockSize));
+
+        long singlePutThreshold = Math.min(Math.min(getMaxSinglePutSize(restapiVersion), maxStreamedEntitySize),
+                memoryBudget);
+        if (parallelism > 1) {
+            // blocks sent over several connections are faster than a single request
+            singlePutThreshold = Math.min(singlePutThreshold, blockSize);
+        }
+        return new BlockSizePolicy(blockSize, singlePutThreshold, maxBlockSize * MAX_BLOCKS);
+    }
+
+    /**
+     * Choose the block size for a stream of unknown length, which is read into one buffer per parallel connection and
+     * one more being filled. Blocks are 16 MB, or smaller if the memory budget does not allow for that many buffers,
+     * which limits the blob to 50000 blocks of that size. A stream ending within the first block is uploaded with a
+     * single request.
+     *
+     * @param restapiVersion
+     *            x-ms-version used for the requests
+     * @param memoryBudget
+     *            bytes which may be held by the buffers
+     * @param parallelism
+     *            number of blocks uploaded in parallel
+     * @param maxStreamedEntitySize
+     *            largest request body the HTTP transport streams without buffering it
+     * @return {@link BlockSizePolicy}
+     */
+    public static BlockSizePolicy forStream(String restapiVersion, long memoryBudget, int parallelism,
+            long maxStreamedEntitySize) {
+        long maxBlockSize = Math.min(Math.min(getMaxBlockSize(restapiVersion), maxStreamedEntitySize),
+                STREAM_BLOCK_SIZE);
+        long blockSize = Math.min(maxBlockSize, Math.max(MIN_BLOCK_SIZE, roundDownToMB(memoryBudget
+                / (parallelism + 1))));
+        return new BlockSizePolicy(blockSize, blockSize, blockSize * MAX_BLOCKS);
+    }
+
+    /**
+     * Get the largest block supported by a service version.
+     * 
+     * @param restapiVersion
+     *            x-ms-version
+     * @return block size in bytes
+     */
+    public static long getMaxBlockSize(String restapiVersion) {
+        if (restapiVersion.compareTo(VERSION_2019_12_12) >= 0) {
+            return 4000 * MB;
+        } else if (restapiVersion.compareTo(VERSION_2016_05_31) >= 0) {
+            return 100 * MB;
+        }
+        return MIN_BLOCK_SIZE;
+    }
+
+    /**
+     * Get the largest blob which can be uploaded by a single Put Blob request for a service version.
+     * 
+     * @param restapiVersion
+     *            x-ms-version
+     * @return size in bytes
+     */
+    public static long getMaxSinglePutSize(String restapiVersion) {
+        if (restapiVersion.compareTo(VERSION_2019_12_12) >= 0) {
+            return 5000 * MB;
+        } else if (restapiVersion.compareTo(VERSION_2016_05_31) >= 0) {
+            return 256 * MB;
+        }
+        return 64 * MB;
+    }
+
+    /**
+     * get size of a block
+     * 
+     * @return size in bytes
+     */
+    public long getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * get the size up to which a file is uploaded with a single request
+     * 
+     * @return size in bytes
+     */
+    public long getSinglePutThreshold() {
+        return singlePutThreshold;
+    }
+
+    /**
+     * get largest blob which can be uploaded within the service version and memory limits
+     * 
+     * @return size in bytes
+     */
+    public long getMaxBlobSize() {
+        return maxBlobSize;
+    }
+
+    private static long divideRoundUp(long value, long divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    private static long roundUpToMB(long value) {
+        return divideRoundUp(value, MB) * MB;
+    }
+
+    private static long roundDownToMB(long value) {
+        return (value / MB) * MB;
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.automic.azure.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+import com.automic.azure.exception.AzureException;
+
+/**
+ * Class to cut a file into chunks at positions chosen by the content rather than by the offset, so that an insertion
+ * or a deletion only changes the chunks around it and the chunks after it are cut exactly as before. A chunk ends
+ * where a rolling hash of the last bytes has its top bits zero, but is never shorter than the minimum size nor longer
+ * than the maximum size. Every chunk is handed on together with its SHA-256 hash.
+ *
+ * The rolling hash is a gear hash: the hash is shifted by one bit per byte and a random value of the byte is added,
+ * so a byte drops out of the hash once it has been shifted out after 64 bytes.
+ */
+public final class ContentDefinedChunker {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    // average chunk size used for files with few chunks
+    private static final int MIN_AVERAGE_SIZE = 4 * 1024 * 1024;
+
+    // file is read in chunks of 1 MB
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+    // random value of every byte, from a fixed seed as the chunks must be cut alike by every run
+    private static final long[] GEAR = createGear();
+
+    private final int minSize;
+    private final int maxSize;
+    private final int maskBits;
+
+    /**
+     * Handler of the chunks of a file
+     */
+    public interface ChunkHandler {
+
+        /**
+         * Handle a chunk of the file
+         *
+         * @param offset
+         *            position of the chunk
+         * @param length
+         *            length of the chunk
+         * @param hash
+         *            SHA-256 hash of the chunk
+         * @throws AzureException
+         */
+        void handle(long offset, int length, byte[] hash) throws AzureException;
+    }
+
+    /**
+     * @param minSize
+     *            smallest chunk, apart from the last chunk of the file
+     * @param averageSize
+     *            average size beyond the minimum size, a power of two
+     * @param maxSize
+     *            largest chunk
+     */
+    public ContentDefinedChunker(int minSize, int averageSize, int maxSize) {
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.maskBits = Integer.numberOfTrailingZeros(averageSize);
+    }
+
+    /**
+     * Choose the chunk sizes for a file. The average size grows with the file, so that the file is cut into at most
+     * {@link BlockSizePolicy#MAX_BLOCKS} chunks if possible.
+     *
+     * @param fileSize
+     *            size of the file
+     * @param maxChunkSize
+     *            largest chunk allowed e.g. the largest block of the service version
+     * @return {@link ContentDefinedChunker}
+     */
+    public static ContentDefinedChunker forFile(long fileSize, long maxChunkSize) {
+        long averageSize = MIN_AVERAGE_SIZE;
+        while (fileSize / (averageSize / 4) >= BlockSizePolicy.MAX_BLOCKS && averageSize / 4 < maxChunkSize) {
+            averageSize *= 2;
+        }
+        int maxSize = (int) Math.min(Math.min(averageSize * 4, maxChunkSize), Integer.MAX_VALUE);
+        int minSize = (int) Math.min(averageSize / 4, maxSize);
+        return new ContentDefinedChunker(minSize, (int) averageSize, maxSize);
+    }
+
+    /**
+     * get the smallest chunk apart from the last chunk of a file
+     *
+     * @return size in bytes
+     */
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * get the largest chunk
+     *
+     * @return size in bytes
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Cut a file into chunks.
+     *
+     * @param in
+     *            stream over the file, read to its end
+     * @param handler
+     *            handler of the chunks in file order
+     * @return number of chunks handed on
+     * @throws IOException
+     * @throws AzureException
+     *             if the handler has failed
+     */
+    public int scan(InputStream in, ChunkHandler handler) throws IOException, AzureException {
+        MessageDigest digest = getDigest();
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        long chunkStart = 0;
+        int chunkLength = 0;
+        long hash = 0;
+        int chunks = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            int hashed = 0;
+            for (int i = 0; i < read; i++) {
+                hash = (hash << 1) + GEAR[buffer[i] & 0xff];
+                chunkLength++;
+                if (chunkLength >= maxSize || chunkLength >= minSize && hash >>> (64 - maskBits) == 0) {
+                    digest.update(buffer, hashed, i + 1 - hashed);
+                    hashed = i + 1;
+                    handler.handle(chunkStart, chunkLength, digest.digest());
+                    chunks++;
+                    chunkStart += chunkLength;
+                    chunkLength = 0;
+                    hash = 0;
+                }
+            }
+            digest.update(buffer, hashed, read - hashed);
+        }
+        if (chunkLength > 0) {
+            handler.handle(chunkStart, chunkLength, digest.digest());
+            chunks++;
+        }
+        return chunks;
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private static long[] createGear() {
+        Random random = new Random(0x5DEECE66DL);
+        long[] gear = new long[256];
+        for (int i = 0; i < gear.length; i++) {
+            gear[i] = random.nextLong();
+        }
+        return gear;
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.automic.azure.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.model.AzureBlockListModel;
+import com.automic.azure.storage.BlockList.BlockType;
+import com.automic.azure.util.BoundedExecutor;
+import com.automic.azure.util.FileBlock;
+import com.automic.azure.util.FileBlockSource;
+
+/**
+ * Class to upload a file to a block blob cut into blocks at content defined boundaries, every block named after the
+ * hash of its content. Blocks the blob already has, committed or uncommitted, are not uploaded again, so uploading a
+ * new version of a large file sends the changed regions only.
+ */
+public final class DeltaUploader extends FileBlobUploader {
+
+    private static final Logger LOGGER = LogManager.getLogger(DeltaUploader.class);
+
+    private final BlockBlobWriter writer;
+    private final ContentDefinedChunker chunker;
+    private final int parallelism;
+
+    /**
+     * @param writer
+     *            {@link BlockBlobWriter} of the blob
+     * @param file
+     *            file to upload
+     * @param fileSize
+     *            size of the file
+     * @param chunker
+     *            chunk sizes of the upload
+     * @param parallelism
+     *            number of blocks staged in parallel
+     */
+    public DeltaUploader(BlockBlobWriter writer, File file, long fileSize, ContentDefinedChunker chunker,
+            int parallelism) {
+        super(file, fileSize);
+        this.writer = writer;
+        this.chunker = chunker;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Upload the blocks the blob does not have and commit a list of new and existing blocks
+     */
+    @Override
+    public void upload(String contentMD5) throws AzureException {
+        AzureBlockListModel existingBlocks = writer.getBlockList("all");
+        final Map<String, Long> committedBlocks = BlockBlobWriter.toMap(existingBlocks.getCommittedBlocks());
+        final Map<String, Long> uncommittedBlocks = BlockBlobWriter.toMap(existingBlocks.getUncommittedBlocks());
+        LOGGER.info("Blob [" + writer.getBlobName() + "] has [" + committedBlocks.size() + "] committed and ["
+                + uncommittedBlocks.size() + "] uncommitted block(s).");
+        writer.checkUncommittedBlockIds(uncommittedBlocks.keySet());
+
+        final BlockList blockList = new BlockList();
+        final Set<String> stagedBlocks = new HashSet<String>();
+        final UploadProgress progress = new UploadProgress(fileSize);
+
+        LOGGER.info("Uploading changed blocks of [" + chunker.getMinSize() + "] to [" + chunker.getMaxSize()
+                + "] bytes using [" + parallelism + "] parallel connection(s).");
+        FileBlockSource blockSource = null;
+        final BoundedExecutor executor = new BoundedExecutor(parallelism, ExceptionConstants.ERROR_BLOCK_BLOB_UPLOAD);
+        try {
+            blockSource = new FileBlockSource(file);
+            final FileBlockSource source = blockSource;
+            chunker.scan(source.block(0, fileSize).openStream(), new ContentDefinedChunker.ChunkHandler() {
+                @Override
+                public void handle(long offset, int length, byte[] hash) throws AzureException {
+                    // the same content always gets the same id, the first bytes of its hash
+                    String blockId = BlockList.encodeBlockId(hash);
+                    Long size = committedBlocks.get(blockId);
+                    if (size != null && size.longValue() == length) {
+                        blockList.add(blockId, BlockType.COMMITTED);
+                        progress.blockSkipped(length);
+                        return;
+                    }
+                    // block of an interrupted run or repeated within the file
+                    blockList.add(blockId, BlockType.UNCOMMITTED);
+                    size = uncommittedBlocks.get(blockId);
+                    if (size != null && size.longValue() == length || !stagedBlocks.add(blockId)) {
+                        progress.blockSkipped(length);
+                        return;
+                    }
+                    final String id = blockId;
+                    final FileBlock block = source.block(offset, length);
+                    executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            writer.stageBlock(id, block);
+                            progress.blockUploaded(block.getLength());
+                            return null;
+                        }
+                    });
+                }
+            });
+            executor.awaitCompletion();
+            LOGGER.info("[" + progress.getSkippedBytes() + "] of [" + fileSize
+                    + "] bytes are held by blocks the blob already has and have not been uploaded.");
+        } catch (IOException e) {
+            LOGGER.error(ExceptionConstants.ERROR_BLOCK_BLOB_UPLOAD, e);
+            throw new AzureException(ExceptionConstants.ERROR_BLOCK_BLOB_UPLOAD);
+        } finally {
+            executor.shutdown();
+            close(blockSource);
+        }
+        completed(writer.commitBlockList(blockList, contentMD5), fileSize - progress.getSkippedBytes());
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.automic.azure.storage;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.util.FileBlockSource;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Base class of the uploads of a single file to a blob, one subclass per way of uploading it. An uploader is used for
+ * one upload and tells the request id, the ETag and the bytes sent once it is done.
+ */
+public abstract class FileBlobUploader {
+
+    private static final Logger LOGGER = LogManager.getLogger(FileBlobUploader.class);
+
+    protected final File file;
+    protected final long fileSize;
+
+    private String requestId;
+    private String eTag;
+    private long uploadedBytes;
+
+    /**
+     * @param file
+     *            file to upload
+     * @param fileSize
+     *            size of the file
+     */
+    protected FileBlobUploader(File file, long fileSize) {
+        this.file = file;
+        this.fileSize = fileSize;
+    }
+
+    /**
+     * Upload the file
+     *
+     * @param contentMD5
+     *            Content-MD5 of the file set on the blob, may be null
+     * @throws AzureException
+     *             if the upload fails
+     */
+    public abstract void upload(String contentMD5) throws AzureException;
+
+    /**
+     * @return request id of the request which completed the blob
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * @return ETag of the uploaded blob, null if not known
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * @return bytes of the file which have been sent
+     */
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    // the response of the request which completed the blob
+    protected void completed(ClientResponse response, long bytes) {
+        completed(response.getHeaders().getFirst(Constants.REQUEST_TOKENID_KEY), response.getHeaders().getFirst(
+                "ETag"), bytes);
+    }
+
+    protected void completed(String blobRequestId, String blobETag, long bytes) {
+        this.requestId = blobRequestId;
+        this.eTag = blobETag;
+        this.uploadedBytes = bytes;
+    }
+
+    protected static void close(FileBlockSource blockSource) {
+        if (blockSource != null) {
+            try {
+                blockSource.close();
+            } catch (IOException e) {
+                LOGGER.error(ExceptionConstants.UNABLE_TO_CLOSE_STREAM, e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,321 @@
+package com.automic.azure.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.core.MediaType;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.filter.PutBlobSigner;
+import com.automic.azure.storage.BlockList.BlockType;
+import com.automic.azure.util.BoundedExecutor;
+import com.automic.azure.util.CommonUtil;
+import com.automic.azure.util.FileBlock;
+import com.automic.azure.util.FileBlockSource;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+
+/**
+ * Class to upload many files to block blobs of a container over a single pool of connections. A file up to the single
+ * request threshold is sent by one Put Blob request, a larger file is staged block by block and committed by the
+ * request completing its last block. Files are scheduled largest first, so the blocks of the large files keep all the
+ * connections busy while the small files fill the gaps at the end.
+ *
+ * A file failing does not stop the other uploads, the outcome of every file is returned.
+ *
+ * Uploads of many small files are bound by the time per request rather than by the bandwidth. Their requests are sent
+ * back to back over the warm keep-alive connections of the pool, and with a {@link PutBlobSigner} the Put Blob
+ * requests are signed from a string to sign built mostly in advance.
+ */
+public final class MultiFileUploader {
+
+    private static final Logger LOGGER = LogManager.getLogger(MultiFileUploader.class);
+
+    private final WebResource containerResource;
+    private final String restapiVersion;
+    private final String contentType;
+    private final int parallelism;
+    private final long memoryBudget;
+    private final long maxStreamedEntitySize;
+
+    private final List<Result> results = new ArrayList<Result>();
+
+    private PutBlobSigner putBlobSigner;
+
+    /**
+     * @param containerResource
+     *            resource of the container e.g. https://myaccount.blob.core.windows.net/mycontainer
+     * @param restapiVersion
+     *            x-ms-version used for the requests
+     * @param contentType
+     *            Content-Type of the blobs
+     * @param parallelism
+     *            number of requests sent in parallel
+     * @param memoryBudget
+     *            bytes which may be held by blocks in flight
+     * @param maxStreamedEntitySize
+     *            largest request body the HTTP transport streams without buffering it
+     */
+    public MultiFileUploader(WebResource containerResource, String restapiVersion, String contentType,
+            int parallelism, long memoryBudget, long maxStreamedEntitySize) {
+        this.containerResource = containerResource;
+        this.restapiVersion = restapiVersion;
+        this.contentType = contentType;
+        this.parallelism = parallelism;
+        this.memoryBudget = memoryBudget;
+        this.maxStreamedEntitySize = maxStreamedEntitySize;
+    }
+
+    /**
+     * Sign the Put Blob requests with a signer of the content type and the service version of the uploads, instead of
+     * leaving them to the authentication filter of the client.
+     *
+     * @param putBlobSigner
+     *            {@link PutBlobSigner} or null
+     */
+    public void setPutBlobSigner(PutBlobSigner putBlobSigner) {
+        this.putBlobSigner = putBlobSigner;
+    }
+
+    /**
+     * Add a file to upload
+     *
+     * @param file
+     *            file to upload
+     * @param size
+     *            size of the file
+     * @param blobName
+     *            name of the blob
+     */
+    public void add(File file, long size, String blobName) {
+        results.add(new Result(file, size, blobName));
+    }
+
+    /**
+     * Upload the files added, largest first.
+     *
+     * @return outcome of every file
+     * @throws AzureException
+     *             if the uploads can not be scheduled
+     */
+    public List<Result> upload() throws AzureException {
+        List<Result> uploads = new ArrayList<Result>(results);
+        Collections.sort(uploads, new Comparator<Result>() {
+            @Override
+            public int compare(Result a, Result b) {
+                return a.size > b.size ? -1 : a.size < b.size ? 1 : 0;
+            }
+        });
+
+        LOGGER.info("Uploading [" + uploads.size() + "] files using [" + parallelism + "] parallel connection(s).");
+        BoundedExecutor executor = new BoundedExecutor(parallelism, ExceptionConstants.ERROR_BLOCK_BLOB_UPLOAD);
+        try {
+            for (Result upload : uploads) {
+                upload.start = System.currentTimeMillis();
+                BlockSizePolicy policy = BlockSizePolicy.forUpload(upload.size, restapiVersion, memoryBudget,
+                        parallelism, maxStreamedEntitySize);
+                if (upload.size > policy.getMaxBlobSize()) {
+                    upload.fail(String.format(ExceptionConstants.ERROR_BLOB_MAX_SIZE, policy.getMaxBlobSize(),
+                            upload.size));
+                } else if (upload.size > policy.getSinglePutThreshold()) {
+                    submitBlocks(executor, upload, policy.getBlockSize());
+                } else {
+                    submitPut(executor, upload);
+                }
+            }
+            executor.awaitCompletion();
+        } finally {
+            executor.shutdown();
+        }
+        return uploads;
+    }
+
+    private void submitPut(BoundedExecutor executor, final Result upload) throws AzureException {
+        executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                FileBlockSource source = null;
+                try {
+                    source = new FileBlockSource(upload.file);
+                    putBlob(upload.blobName, source.block(0, Math.min(upload.size, source.size())));
+                    upload.complete();
+                } catch (IOException | RuntimeException e) {
+                    upload.fail(e);
+                } finally {
+                    close(upload, source);
+                }
+                return null;
+            }
+        });
+    }
+
+    private void submitBlocks(BoundedExecutor executor, final Result upload, long blockSize) throws AzureException {
+        final FileBlockSource source;
+        try {
+            source = new FileBlockSource(upload.file);
+        } catch (IOException e) {
+            upload.fail(e);
+            return;
+        }
+        final long size = Math.min(upload.size, source.size());
+        final BlockList blockList = new BlockList();
+        final AtomicInteger pendingBlocks = new AtomicInteger((int) ((size + blockSize - 1) / blockSize));
+        ByteBuffer index = ByteBuffer.allocate(BlockList.BLOCK_ID_SIZE);
+        for (long offset = 0; offset < size; offset += blockSize) {
+            index.putInt(0, blockList.size());
+            final String blockId = BlockList.encodeBlockId(index.array());
+            blockList.add(blockId, BlockType.UNCOMMITTED);
+            final FileBlock block = source.block(offset, Math.min(blockSize, size - offset));
+            executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    try {
+                        if (!upload.isFailed()) {
+                            putBlock(upload.blobName, blockId, block);
+                        }
+                    } catch (RuntimeException e) {
+                        upload.fail(e);
+                    }
+                    // the task completing the last block commits the blob
+                    if (pendingBlocks.decrementAndGet() == 0) {
+                        try {
+                            if (!upload.isFailed()) {
+                                putBlockList(upload.blobName, blockList);
+                                upload.complete();
+                            }
+                        } catch (RuntimeException e) {
+                            upload.fail(e);
+                        } finally {
+                            close(upload, source);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+    }
+
+    // Put Blob: https://myaccount.blob.core.windows.net/mycontainer/myblob
+    private void putBlob(String blobName, FileBlock block) {
+        WebResource resource = containerResource.path(blobName);
+        String date = CommonUtil.getCurrentUTCDateForStorageService();
+        WebResource.Builder builder = resource.header("Content-Length", block.getLength())
+                .header(Constants.X_MS_VERSION, restapiVersion).header("x-ms-blob-type", "BlockBlob")
+                .header("x-ms-date", date);
+        if (putBlobSigner != null) {
+            builder.header("Authorization", putBlobSigner.authorize(block.getLength(), date, resource.getURI()
+                    .getPath()));
+        }
+        ClientResponse response = builder.entity(block, contentType).put(ClientResponse.class);
+        response.close();
+    }
+
+    // Put Block: https://myaccount.blob.core.windows.net/mycontainer/myblob?comp=block
+    private void putBlock(String blobName, String blockId, FileBlock block) {
+        ClientResponse response = containerResource.path(blobName).queryParam("comp", "block")
+                .queryParam("blockid", blockId).header("Content-Length", block.getLength())
+                .header(Constants.X_MS_VERSION, restapiVersion)
+                .header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService()).entity(block, contentType)
+                .put(ClientResponse.class);
+        response.close();
+    }
+
+    // Put Block List: https://myaccount.blob.core.windows.net/mycontainer/myblob?comp=blocklist
+    private void putBlockList(String blobName, BlockList blockList) {
+        ClientResponse response = containerResource.path(blobName).queryParam("comp", "blocklist")
+                .header("Content-Length", blockList.getContentLength())
+                .header(Constants.X_MS_VERSION, restapiVersion)
+                .header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                .header("x-ms-blob-content-type", contentType).entity(blockList, MediaType.APPLICATION_XML)
+                .put(ClientResponse.class);
+        response.close();
+    }
+
+    private static void close(Result upload, FileBlockSource source) {
+        if (source != null) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                LOGGER.error(ExceptionConstants.UNABLE_TO_CLOSE_STREAM + " [" + upload.file + "]", e);
+            }
+        }
+    }
+
+    /**
+     * Outcome of the upload of a file
+     */
+    public static final class Result {
+        private final File file;
+        private final long size;
+        private final String blobName;
+        private long start;
+        private volatile String error;
+        private volatile boolean completed;
+
+        Result(File file, long size, String blobName) {
+            this.file = file;
+            this.size = size;
+            this.blobName = blobName;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getBlobName() {
+            return blobName;
+        }
+
+        /**
+         * @return true if the blob has been uploaded
+         */
+        public boolean isSuccess() {
+            return completed && error == null;
+        }
+
+        /**
+         * @return message of the first error of the upload, null if there is none
+         */
+        public String getError() {
+            return error;
+        }
+
+        boolean isFailed() {
+            return error != null;
+        }
+
+        void complete() {
+            completed = true;
+            LOGGER.info("File [" + file + "] of [" + size + "] bytes has been uploaded to blob [" + blobName
+                    + "] in [" + (System.currentTimeMillis() - start) + "] ms.");
+        }
+
+        void fail(Exception e) {
+            fail(e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+
+        synchronized void fail(String message) {
+            if (error == null) {
+                error = message;
+                LOGGER.error("Upload of file [" + file + "] to blob [" + blobName + "] has failed: " + message);
+            }
+        }
+    }
+
+}
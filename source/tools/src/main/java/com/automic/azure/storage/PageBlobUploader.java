@@ -0,0 +1,98 @@
+package com.automic.azure.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.util.BoundedExecutor;
+import com.automic.azure.util.FileBlock;
+import com.automic.azure.util.FileBlockSource;
+
+/**
+ * Class to upload a file to a page blob. The blob is created at the size of the file and only the pages of the file
+ * holding data are written, so the zero regions of a sparse disk image are never sent.
+ *
+ * The ETag of a page blob changes with every page written, it is not known once the upload is done.
+ */
+public final class PageBlobUploader extends FileBlobUploader {
+
+    private static final Logger LOGGER = LogManager.getLogger(PageBlobUploader.class);
+
+    private final PageBlobWriter writer;
+    private final String contentType;
+    private final int parallelism;
+
+    /**
+     * @param writer
+     *            {@link PageBlobWriter} of the blob
+     * @param file
+     *            file to upload, its size a multiple of the page size
+     * @param fileSize
+     *            size of the file
+     * @param contentType
+     *            Content-Type of the blob
+     * @param parallelism
+     *            number of ranges written in parallel
+     */
+    public PageBlobUploader(PageBlobWriter writer, File file, long fileSize, String contentType, int parallelism) {
+        super(file, fileSize);
+        this.writer = writer;
+        this.contentType = contentType;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Create a page blob of the size of the file and write the pages holding data
+     */
+    @Override
+    public void upload(String contentMD5) throws AzureException {
+        String requestId = writer.create(fileSize, contentType);
+
+        LOGGER.info("Uploading the pages holding data using [" + parallelism + "] parallel connection(s).");
+        final UploadProgress progress = new UploadProgress(fileSize);
+        FileBlockSource blockSource = null;
+        final BoundedExecutor executor = new BoundedExecutor(parallelism, ExceptionConstants.ERROR_PAGE_BLOB_UPLOAD);
+        try {
+            blockSource = new FileBlockSource(file);
+            final FileBlockSource source = blockSource;
+            long uploadedBytes = new PageRangeScanner().scan(source.block(0, fileSize).openStream(),
+                    new PageRangeScanner.RangeHandler() {
+                        private long end;
+
+                        @Override
+                        public void handle(long offset, long length) throws AzureException {
+                            // zero pages between the ranges are never sent
+                            progress.blockSkipped(offset - end);
+                            end = offset + length;
+                            final FileBlock block = source.block(offset, length);
+                            executor.submit(new Callable<Void>() {
+                                @Override
+                                public Void call() {
+                                    writer.putPages(block);
+                                    progress.blockUploaded(block.getLength());
+                                    return null;
+                                }
+                            });
+                        }
+                    });
+            executor.awaitCompletion();
+            if (contentMD5 != null) {
+                writer.setContentMD5(contentType, contentMD5);
+            }
+            LOGGER.info("[" + uploadedBytes + "] of [" + fileSize + "] bytes hold data and have been uploaded.");
+            completed(requestId, null, uploadedBytes);
+        } catch (IOException e) {
+            LOGGER.error(ExceptionConstants.ERROR_PAGE_BLOB_UPLOAD, e);
+            throw new AzureException(ExceptionConstants.ERROR_PAGE_BLOB_UPLOAD);
+        } finally {
+            executor.shutdown();
+            close(blockSource);
+        }
+    }
+
+}
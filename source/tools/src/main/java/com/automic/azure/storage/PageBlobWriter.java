@@ -0,0 +1,164 @@
+package com.automic.azure.storage;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Strings;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.util.CommonUtil;
+import com.automic.azure.util.FileBlock;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+
+/**
+ * Class to create a page blob and to write its pages. Pages are written with absolute ranges, so the ranges of a blob
+ * can be written concurrently and in any order.
+ *
+ * Instances are thread safe.
+ */
+public final class PageBlobWriter {
+
+    private static final Logger LOGGER = LogManager.getLogger(PageBlobWriter.class);
+
+    /**
+     * Maximum size of a page blob, 8 TB
+     */
+    public static final long MAX_PAGE_BLOB_SIZE = 8L * 1024 * 1024 * 1024 * 1024;
+
+    private final WebResource blobResource;
+    private final String restapiVersion;
+
+    /**
+     * @param blobResource
+     *            resource of the blob e.g. https://myaccount.blob.core.windows.net/mycontainer/myblob
+     * @param restapiVersion
+     *            x-ms-version used for the requests
+     */
+    public PageBlobWriter(WebResource blobResource, String restapiVersion) {
+        this.blobResource = blobResource;
+        this.restapiVersion = restapiVersion;
+    }
+
+    /**
+     * Method makes PUT request to https://myaccount.blob.core.windows.net/mycontainer/myblob to create an empty page
+     * blob, which replaces an existing blob of the same name.
+     *
+     * @param size
+     *            size of the blob, a multiple of the page size
+     * @param contentType
+     *            Content-Type of the blob
+     * @return request id of the service
+     */
+    public String create(long size, String contentType) {
+        LOGGER.info("Calling URL:" + blobResource.getURI());
+        ClientResponse response = blobResource.header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                .header(Constants.X_MS_VERSION, restapiVersion).header("x-ms-blob-type", "PageBlob")
+                .header("x-ms-blob-content-length", size).header("x-ms-blob-content-type", contentType)
+                .entity(Strings.EMPTY, "text/plain").put(ClientResponse.class);
+        response.close();
+        return response.getHeaders().getFirst(Constants.REQUEST_TOKENID_KEY);
+    }
+
+    /**
+     * Method makes PUT request to https://myaccount.blob.core.windows.net/mycontainer/myblob?comp=properties to set
+     * the Content-MD5 of the blob. It is not verified by the service for a page blob, so it must only be set once all
+     * the pages have been written, otherwise an interrupted upload would look complete.
+     *
+     * @param contentType
+     *            Content-Type of the blob, cleared by the service if not sent along
+     * @param contentMD5
+     *            Content-MD5 of the blob
+     */
+    public void setContentMD5(String contentType, String contentMD5) {
+        ClientResponse response = blobResource.queryParam("comp", "properties")
+                .header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                .header(Constants.X_MS_VERSION, restapiVersion).header("x-ms-blob-content-type", contentType)
+                .header("x-ms-blob-content-md5", contentMD5).entity(Strings.EMPTY, "text/plain")
+                .put(ClientResponse.class);
+        response.close();
+    }
+
+    /**
+     * Method makes PUT request to https://myaccount.blob.core.windows.net/mycontainer/myblob?comp=page to write a
+     * block of a file to the same range of the blob.
+     *
+     * @param block
+     *            page aligned block of up to 4 MB
+     */
+    public void putPages(FileBlock block) {
+        ClientResponse response = blobResource.queryParam("comp", "page").header("Content-Length", block.getLength())
+                .header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                .header(Constants.X_MS_VERSION, restapiVersion).header("x-ms-page-write", "update")
+                .header("x-ms-range", getRange(block.getOffset(), block.getLength()))
+                .entity(block, "application/octet-stream").put(ClientResponse.class);
+        response.close();
+    }
+
+    /**
+     * Method makes PUT request to https://myaccount.blob.core.windows.net/mycontainer/myblob?comp=page to clear a
+     * range of the blob, which then reads as zeros and takes no storage.
+     *
+     * @param offset
+     *            page aligned start of the range
+     * @param length
+     *            length of the range, a multiple of the page size
+     */
+    public void clearPages(long offset, long length) {
+        ClientResponse response = blobResource.queryParam("comp", "page")
+                .header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                .header(Constants.X_MS_VERSION, restapiVersion).header("x-ms-page-write", "clear")
+                .header("x-ms-range", getRange(offset, length)).entity(Strings.EMPTY, "text/plain")
+                .put(ClientResponse.class);
+        response.close();
+    }
+
+    /**
+     * Method makes PUT request to https://myaccount.blob.core.windows.net/mycontainer/myblob?comp=properties to change
+     * the size of the blob. Pages beyond a smaller size are dropped, pages added read as zeros.
+     *
+     * @param size
+     *            new size of the blob, a multiple of the page size
+     */
+    public void resize(long size) {
+        LOGGER.info("Resizing blob [" + blobResource.getURI() + "] to [" + size + "] bytes");
+        ClientResponse response = blobResource.queryParam("comp", "properties")
+                .header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                .header(Constants.X_MS_VERSION, restapiVersion).header("x-ms-blob-content-length", size)
+                .entity(Strings.EMPTY, "text/plain").put(ClientResponse.class);
+        response.close();
+    }
+
+    /**
+     * Method makes PUT request to https://myaccount.blob.core.windows.net/mycontainer/myblob?comp=snapshot
+     *
+     * @return date-time identifying the snapshot
+     */
+    public String createSnapshot() {
+        ClientResponse response = blobResource.queryParam("comp", "snapshot")
+                .header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                .header(Constants.X_MS_VERSION, restapiVersion).entity(Strings.EMPTY, "text/plain")
+                .put(ClientResponse.class);
+        response.close();
+        return response.getHeaders().getFirst("x-ms-snapshot");
+    }
+
+    /**
+     * Method makes DELETE request to https://myaccount.blob.core.windows.net/mycontainer/myblob?snapshot=... to delete
+     * a snapshot of the blob, the blob itself is kept.
+     *
+     * @param snapshot
+     *            date-time identifying the snapshot
+     */
+    public void deleteSnapshot(String snapshot) {
+        LOGGER.info("Deleting snapshot [" + snapshot + "] of blob [" + blobResource.getURI() + "]");
+        ClientResponse response = blobResource.queryParam("snapshot", snapshot)
+                .header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                .header(Constants.X_MS_VERSION, restapiVersion).delete(ClientResponse.class);
+        response.close();
+    }
+
+    private static String getRange(long offset, long length) {
+        return "bytes=" + offset + "-" + (offset + length - 1);
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.automic.azure.storage;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.util.CommonUtil;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+
+/**
+ * Class to list the page ranges of a page blob. Without a previous snapshot the ranges holding data are listed. With a
+ * previous snapshot the ranges which have been written or cleared since the snapshot was taken are listed, so only the
+ * changes of the blob have to be looked at.
+ *
+ * The ranges are listed one section of the blob at a time, as the list of a large and fragmented blob may take the
+ * service too long to compute in a single request.
+ */
+public final class PageRangeLister {
+
+    private static final Logger LOGGER = LogManager.getLogger(PageRangeLister.class);
+
+    // first service version supporting the prevsnapshot parameter
+    private static final String MIN_DIFF_VERSION = "2015-07-08";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private final WebResource blobResource;
+    private final String restapiVersion;
+    private final String prevSnapshot;
+
+    /**
+     * @param blobResource
+     *            resource of the blob e.g. https://myaccount.blob.core.windows.net/mycontainer/myblob
+     * @param restapiVersion
+     *            x-ms-version used for the requests, raised to the first version supporting a previous snapshot if
+     *            older and a previous snapshot is given
+     * @param prevSnapshot
+     *            snapshot to list the changes since, null to list the ranges holding data
+     */
+    public PageRangeLister(WebResource blobResource, String restapiVersion, String prevSnapshot) {
+        this.blobResource = blobResource;
+        boolean raiseVersion = prevSnapshot != null && restapiVersion.compareTo(MIN_DIFF_VERSION) < 0;
+        this.restapiVersion = raiseVersion ? MIN_DIFF_VERSION : restapiVersion;
+        this.prevSnapshot = prevSnapshot;
+    }
+
+    /**
+     * Method makes GET request to https://myaccount.blob.core.windows.net/mycontainer/myblob?comp=pagelist
+     *
+     * @param offset
+     *            page aligned start of the section
+     * @param length
+     *            length of the section, a multiple of the page size
+     * @return ranges of the section sorted by offset, each as start offset and end offset exclusive
+     * @throws AzureException
+     */
+    public List<long[]> list(long offset, long length) throws AzureException {
+        WebResource resource = blobResource.queryParam("comp", "pagelist");
+        if (prevSnapshot != null) {
+            resource = resource.queryParam("prevsnapshot", prevSnapshot);
+        }
+        LOGGER.info("Calling URL:" + resource.getURI() + " for range [" + offset + ", " + (offset + length) + ")");
+        ClientResponse response = resource.header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                .header(Constants.X_MS_VERSION, restapiVersion)
+                .header("x-ms-range", "bytes=" + offset + "-" + (offset + length - 1)).get(ClientResponse.class);
+        try {
+            return parse(response.getEntityInputStream());
+        } catch (XMLStreamException | NumberFormatException e) {
+            LOGGER.error(ExceptionConstants.ERROR_LISTING_PAGE_RANGES, e);
+            throw new AzureException(ExceptionConstants.ERROR_LISTING_PAGE_RANGES);
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Parse the PageRange and ClearRange elements of a PageList. Start and End of a range are inclusive.
+     */
+    private static List<long[]> parse(InputStream in) throws XMLStreamException {
+        List<long[]> ranges = new ArrayList<long[]>();
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+        try {
+            long[] range = null;
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String element = reader.getLocalName();
+                if ("PageRange".equals(element) || "ClearRange".equals(element)) {
+                    range = new long[2];
+                    ranges.add(range);
+                } else if (range != null && "Start".equals(element)) {
+                    range[0] = Long.parseLong(reader.getElementText().trim());
+                } else if (range != null && "End".equals(element)) {
+                    range[1] = Long.parseLong(reader.getElementText().trim()) + 1;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        // written and cleared ranges are listed apart from each other
+        sort(ranges);
+        return ranges;
+    }
+
+    private static void sort(List<long[]> ranges) {
+        Collections.sort(ranges, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+                return a[0] < b[0] ? -1 : a[0] > b[0] ? 1 : 0;
+            }
+        });
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+
+}
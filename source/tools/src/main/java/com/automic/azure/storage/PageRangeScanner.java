@@ -0,0 +1,148 @@
+package com.automic.azure.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import com.automic.azure.exception.AzureException;
+
+/**
+ * Class to find the regions of a file which have to be written to a page blob. A new page blob reads as zeros, so
+ * only the 512 byte pages holding a non zero byte are of interest. Neighbouring pages are merged into ranges of up to
+ * 4 MB, the largest range a single Put Page request accepts. A few zero pages between two ranges are sent along rather
+ * than starting another request for the same few kilobytes.
+ *
+ * The file is read once from start to end, and every range is handed on as soon as it is complete.
+ */
+public final class PageRangeScanner {
+
+    /**
+     * Size of a page of a page blob
+     */
+    public static final int PAGE_SIZE = 512;
+
+    /**
+     * Maximum number of bytes written by a Put Page request
+     */
+    public static final int MAX_RANGE_SIZE = 4 * 1024 * 1024;
+
+    // zero bytes between two ranges which are written rather than sending them in two requests
+    private static final int MAX_ZERO_GAP = 64 * 1024;
+
+    // file is read in chunks of whole pages
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+    private long rangeStart = -1;
+    private long rangeEnd;
+    private long rangeBytes;
+
+    /**
+     * Handler of the ranges holding data
+     */
+    public interface RangeHandler {
+
+        /**
+         * Handle a range of the file
+         *
+         * @param offset
+         *            page aligned position of the range
+         * @param length
+         *            length of the range, a multiple of the page size unless the range ends the file
+         * @throws AzureException
+         */
+        void handle(long offset, long length) throws AzureException;
+    }
+
+    /**
+     * Scan a file for the ranges holding data.
+     *
+     * @param in
+     *            stream over the file, read to its end
+     * @param handler
+     *            handler of the ranges in file order
+     * @return number of bytes in the ranges handed on
+     * @throws IOException
+     * @throws AzureException
+     *             if the handler has failed
+     */
+    public long scan(InputStream in, RangeHandler handler) throws IOException, AzureException {
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        ByteBuffer words = ByteBuffer.wrap(buffer);
+        long position = 0;
+        int filled;
+        while ((filled = fill(in, buffer)) > 0) {
+            for (int page = 0; page < filled; page += PAGE_SIZE) {
+                int length = Math.min(PAGE_SIZE, filled - page);
+                if (!isZero(buffer, words, page, length)) {
+                    addPage(position + page, length, handler);
+                }
+            }
+            position += filled;
+        }
+        if (rangeStart >= 0) {
+            emit(handler);
+        }
+        return rangeBytes;
+    }
+
+    private void addPage(long offset, int length, RangeHandler handler) throws AzureException {
+        if (rangeStart >= 0 && (offset - rangeEnd > MAX_ZERO_GAP || offset + length - rangeStart > MAX_RANGE_SIZE)) {
+            emit(handler);
+        }
+        if (rangeStart < 0) {
+            rangeStart = offset;
+        }
+        rangeEnd = offset + length;
+    }
+
+    private void emit(RangeHandler handler) throws AzureException {
+        long length = rangeEnd - rangeStart;
+        rangeBytes += length;
+        long offset = rangeStart;
+        rangeStart = -1;
+        handler.handle(offset, length);
+    }
+
+    /**
+     * Check if a region of a buffer holds zeros only
+     *
+     * @param buffer
+     *            buffer to check
+     * @param start
+     *            start of the region
+     * @param length
+     *            length of the region
+     * @return true if all the bytes of the region are zero
+     */
+    public static boolean isZero(byte[] buffer, int start, int length) {
+        return isZero(buffer, ByteBuffer.wrap(buffer), start, length);
+    }
+
+    // check a region eight bytes at a time
+    private static boolean isZero(byte[] buffer, ByteBuffer words, int start, int length) {
+        int end = start + length;
+        int i = start;
+        for (; i + 8 <= end; i += 8) {
+            if (words.getLong(i) != 0) {
+                return false;
+            }
+        }
+        for (; i < end; i++) {
+            if (buffer[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // fill the buffer unless the end of the stream is reached, the chunks read stay page aligned
+    private static int fill(InputStream in, byte[] buffer) throws IOException {
+        int filled = 0;
+        int n;
+        while (filled < buffer.length && (n = in.read(buffer, filled, buffer.length - filled)) != -1) {
+            filled += n;
+        }
+        return filled;
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.automic.azure.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Class that holds the state of a file as it was last synchronized to a page blob: the snapshot taken of the blob
+ * right after the synchronization and the hash of every chunk of the file at that time. Comparing the chunks of the
+ * file against the hashes tells which chunks have changed locally, the page ranges of the blob which differ from the
+ * snapshot tell which ranges have changed on the service.
+ *
+ * The state is a binary file. A header line identifies the synchronization, e.g. by the blob, the file size and the
+ * chunk size, and is followed by a line holding the snapshot and the hashes back to back. State written for a
+ * different synchronization is ignored when read. A new state replaces the old one only once it has been written
+ * completely.
+ */
+public final class PageSyncState {
+
+    private static final Logger LOGGER = LogManager.getLogger(PageSyncState.class);
+
+    private static final byte HEADER_PREFIX = '#';
+    private static final byte LINE_END = '\n';
+
+    private final String snapshot;
+    private final byte[] hashes;
+    private final int hashLength;
+
+    private PageSyncState(String snapshot, byte[] hashes, int hashLength) {
+        this.snapshot = snapshot;
+        this.hashes = hashes;
+        this.hashLength = hashLength;
+    }
+
+    /**
+     * Get the default state file of a synchronization. States are kept in the temporary directory and named after the
+     * hash of the given key.
+     *
+     * @param syncKey
+     *            key identifying the blob and the local file
+     * @return state file
+     */
+    public static File getStateFile(String syncKey) {
+        return new File(System.getProperty("java.io.tmpdir"), "PageBlobSync-" + DigestUtils.sha1Hex(syncKey)
+                + ".state");
+    }
+
+    /**
+     * Read the state of the previous synchronization.
+     *
+     * @param file
+     *            state file
+     * @param syncId
+     *            identifies the synchronization e.g. blob, file size and chunk size
+     * @param chunkCount
+     *            number of chunks of the file
+     * @param hashLength
+     *            length of a chunk hash
+     * @return {@link PageSyncState} or null if there is no state of the same synchronization
+     * @throws IOException
+     */
+    public static PageSyncState read(File file, String syncId, int chunkCount, int hashLength) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        byte[] header = createHeader(syncId);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            byte[] existingHeader = new byte[header.length];
+            in.readFully(existingHeader);
+            if (!Arrays.equals(header, existingHeader)) {
+                LOGGER.info("Synchronization state [" + file + "] belongs to a different synchronization.");
+                return null;
+            }
+            String snapshot = readLine(in);
+            byte[] hashes = new byte[chunkCount * hashLength];
+            in.readFully(hashes);
+            if (in.read() != -1) {
+                return null;
+            }
+            return new PageSyncState(snapshot, hashes, hashLength);
+        } catch (EOFException e) {
+            LOGGER.info("Synchronization state [" + file + "] is incomplete.");
+            return null;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Write the state of a synchronization, replacing the previous state.
+     *
+     * @param file
+     *            state file
+     * @param syncId
+     *            identifies the synchronization e.g. blob, file size and chunk size
+     * @param snapshot
+     *            snapshot taken of the blob after the synchronization
+     * @param hashes
+     *            chunk hashes back to back
+     * @throws IOException
+     */
+    public static void write(File file, String syncId, String snapshot, byte[] hashes) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        FileOutputStream fileOut = new FileOutputStream(tempFile);
+        OutputStream out = new BufferedOutputStream(fileOut);
+        try {
+            out.write(createHeader(syncId));
+            out.write(snapshot.getBytes(StandardCharsets.UTF_8));
+            out.write(LINE_END);
+            out.write(hashes);
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            out.close();
+        }
+        // a crash leaves either the previous or the new state
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return snapshot of the blob taken after the previous synchronization
+     */
+    public String getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Check if a chunk has the same hash as on the previous synchronization
+     *
+     * @param chunk
+     *            index of the chunk
+     * @param hash
+     *            current hash of the chunk
+     * @return true if the chunk has not changed
+     */
+    public boolean isUnchanged(int chunk, byte[] hash) {
+        int offset = chunk * hashLength;
+        for (int i = 0; i < hashLength; i++) {
+            if (hashes[offset + i] != hash[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] createHeader(String syncId) {
+        byte[] idBytes = syncId.getBytes(StandardCharsets.UTF_8);
+        byte[] header = new byte[idBytes.length + 2];
+        header[0] = HEADER_PREFIX;
+        System.arraycopy(idBytes, 0, header, 1, idBytes.length);
+        header[header.length - 1] = LINE_END;
+        return header;
+    }
+
+    private static String readLine(DataInputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.readUnsignedByte()) != LINE_END) {
+            line.append((char) b);
+        }
+        return line.toString();
+    }
+
+}
@@ -0,0 +1,208 @@
+package com.automic.azure.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Class that records the ranges of a blob download which have been written to the target file, so that an interrupted
+ * download can be resumed. The checkpoint is a small binary file. A header line identifies the download, e.g. by the
+ * ETag of the blob, and is followed by a bitmap with one bit per range. A completed range costs a single byte write.
+ * A checkpoint written for a different download is discarded when opened.
+ *
+ * A range is only recorded once the target file has been forced to disk, otherwise a crash of the system could leave
+ * a range recorded whose data never reached the disk. Completed ranges are kept pending and recorded in batches to
+ * limit the number of syncs.
+ */
+public final class RangeCheckpoint implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(RangeCheckpoint.class);
+
+    private static final byte HEADER_PREFIX = '#';
+    private static final byte HEADER_END = '\n';
+
+    // completed ranges recorded per sync of the target file
+    private static final int RANGES_PER_SYNC = 16;
+
+    private final File file;
+    private final RandomAccessFile bitmapFile;
+    private final int headerLength;
+    private final BitSet completedRanges;
+    private final BitSet pendingRanges = new BitSet();
+
+    private RangeCheckpoint(File file, RandomAccessFile bitmapFile, int headerLength, BitSet completedRanges) {
+        this.file = file;
+        this.bitmapFile = bitmapFile;
+        this.headerLength = headerLength;
+        this.completedRanges = completedRanges;
+    }
+
+    /**
+     * Get the checkpoint file for a download. Checkpoints are kept in the temporary directory and named after the hash
+     * of the given key.
+     *
+     * @param downloadKey
+     *            key identifying the source blob and the target file
+     * @return checkpoint file
+     */
+    public static File getCheckpointFile(String downloadKey) {
+        return new File(System.getProperty("java.io.tmpdir"), "BlobDownload-" + DigestUtils.sha1Hex(downloadKey)
+                + ".checkpoint");
+    }
+
+    /**
+     * Open the checkpoint. Completed ranges recorded by a previous run of the same download are retained, any other
+     * content is discarded.
+     *
+     * @param file
+     *            checkpoint file
+     * @param downloadId
+     *            identifies the state of the download e.g. ETag, blob size and range size
+     * @param rangeCount
+     *            number of ranges of the download
+     * @return {@link RangeCheckpoint}
+     * @throws IOException
+     */
+    public static RangeCheckpoint open(File file, String downloadId, int rangeCount) throws IOException {
+        byte[] idBytes = downloadId.getBytes(StandardCharsets.UTF_8);
+        byte[] header = new byte[idBytes.length + 2];
+        header[0] = HEADER_PREFIX;
+        System.arraycopy(idBytes, 0, header, 1, idBytes.length);
+        header[header.length - 1] = HEADER_END;
+        byte[] bitmap = new byte[(rangeCount + 7) / 8];
+
+        RandomAccessFile bitmapFile = new RandomAccessFile(file, "rw");
+        try {
+            boolean retained = false;
+            if (bitmapFile.length() == header.length + bitmap.length) {
+                byte[] existingHeader = new byte[header.length];
+                bitmapFile.readFully(existingHeader);
+                if (Arrays.equals(header, existingHeader)) {
+                    bitmapFile.readFully(bitmap);
+                    retained = true;
+                }
+            }
+            if (!retained) {
+                if (bitmapFile.length() > 0) {
+                    LOGGER.info("Checkpoint [" + file.getPath() + "] belongs to a different download and is "
+                            + "discarded.");
+                }
+                bitmapFile.setLength(0);
+                bitmapFile.write(header);
+                bitmapFile.write(bitmap);
+            }
+        } catch (IOException e) {
+            bitmapFile.close();
+            throw e;
+        }
+
+        BitSet completedRanges = BitSet.valueOf(bitmap);
+        LOGGER.info("Checkpoint [" + file.getPath() + "] opened with [" + completedRanges.cardinality()
+                + "] completed range(s).");
+        return new RangeCheckpoint(file, bitmapFile, header.length, completedRanges);
+    }
+
+    /**
+     * Check if a range has been completed by a previous run.
+     *
+     * @param index
+     *            index of the range
+     * @return true if the range has been recorded
+     */
+    public synchronized boolean isCompleted(int index) {
+        return completedRanges.get(index);
+    }
+
+    /**
+     * get number of ranges recorded as completed
+     *
+     * @return count of ranges
+     */
+    public synchronized int size() {
+        return completedRanges.cardinality();
+    }
+
+    /**
+     * Mark a range which has been written to the target file as completed. It is recorded along with the next batch of
+     * completed ranges.
+     *
+     * @param index
+     *            index of the range
+     * @param target
+     *            channel of the target file, forced to disk before ranges are recorded
+     * @throws IOException
+     */
+    public synchronized void rangeCompleted(int index, FileChannel target) throws IOException {
+        completedRanges.set(index);
+        pendingRanges.set(index);
+        if (pendingRanges.cardinality() >= RANGES_PER_SYNC) {
+            sync(target);
+        }
+    }
+
+    /**
+     * Force the target file to disk and record the pending ranges, e.g. before an interrupted download gives up.
+     *
+     * @param target
+     *            channel of the target file
+     * @throws IOException
+     */
+    public synchronized void sync(FileChannel target) throws IOException {
+        if (pendingRanges.isEmpty()) {
+            return;
+        }
+        target.force(false);
+        int lastByteIndex = -1;
+        for (int i = pendingRanges.nextSetBit(0); i >= 0; i = pendingRanges.nextSetBit(i + 1)) {
+            int byteIndex = i / 8;
+            if (byteIndex != lastByteIndex) {
+                writeBitmapByte(byteIndex);
+                lastByteIndex = byteIndex;
+            }
+        }
+        pendingRanges.clear();
+    }
+
+    private void writeBitmapByte(int byteIndex) throws IOException {
+        int bits = 0;
+        for (int i = byteIndex * 8; i < byteIndex * 8 + 8; i++) {
+            if (completedRanges.get(i)) {
+                bits |= 1 << (i % 8);
+            }
+        }
+        bitmapFile.seek(headerLength + byteIndex);
+        bitmapFile.write(bits);
+    }
+
+    /**
+     * Close the checkpoint, pending ranges which have not been synced are not recorded.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        bitmapFile.close();
+    }
+
+    /**
+     * Close and delete the checkpoint once the download has completed.
+     */
+    public void delete() {
+        try {
+            close();
+        } catch (IOException e) {
+            LOGGER.error("Unable to close checkpoint [" + file.getPath() + "]", e);
+        }
+        if (!file.delete()) {
+            LOGGER.error("Unable to delete checkpoint [" + file.getPath() + "]");
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.automic.azure.storage;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.util.FileBlockSource;
+
+/**
+ * Class to upload a file up to the single request threshold to a block blob by one Put Blob request.
+ */
+public final class SingleBlobUploader extends FileBlobUploader {
+
+    private static final Logger LOGGER = LogManager.getLogger(SingleBlobUploader.class);
+
+    private final BlockBlobWriter writer;
+
+    /**
+     * @param writer
+     *            {@link BlockBlobWriter} of the blob
+     * @param file
+     *            file to upload
+     * @param fileSize
+     *            size of the file
+     */
+    public SingleBlobUploader(BlockBlobWriter writer, File file, long fileSize) {
+        super(file, fileSize);
+        this.writer = writer;
+    }
+
+    @Override
+    public void upload(String contentMD5) throws AzureException {
+        FileBlockSource blockSource = null;
+        try {
+            blockSource = new FileBlockSource(file);
+            completed(writer.putBlob(blockSource.block(0, fileSize), contentMD5), fileSize);
+        } catch (IOException e) {
+            LOGGER.error(ExceptionConstants.ERROR_BLOCK_BLOB_UPLOAD, e);
+            throw new AzureException(ExceptionConstants.ERROR_BLOCK_BLOB_UPLOAD);
+        } finally {
+            close(blockSource);
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.automic.azure.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.storage.BlockList.BlockType;
+import com.automic.azure.util.BoundedExecutor;
+import com.automic.azure.util.BufferRing;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Class to upload a stream of unknown length to a block blob, e.g. a backup piped into the action. Blocks are staged
+ * as soon as they have been read into one of a few reusable buffers and the block list is committed at the end of the
+ * stream. A stream fitting into a single block is sent by one Put Blob request.
+ */
+public final class StreamUploader {
+
+    private static final Logger LOGGER = LogManager.getLogger(StreamUploader.class);
+
+    private final BlockBlobWriter writer;
+    private final BlockSizePolicy policy;
+    private final int parallelism;
+
+    private String requestId;
+    private long uploadedBytes;
+
+    /**
+     * @param writer
+     *            {@link BlockBlobWriter} of the blob
+     * @param policy
+     *            block size of the stream, see {@link BlockSizePolicy#forStream}
+     * @param parallelism
+     *            number of blocks staged in parallel
+     */
+    public StreamUploader(BlockBlobWriter writer, BlockSizePolicy policy, int parallelism) {
+        this.writer = writer;
+        this.policy = policy;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Upload the stream, staging every block as soon as it has been read
+     *
+     * @param in
+     *            stream to upload
+     * @throws AzureException
+     *             if the stream can not be read or the upload fails
+     */
+    public void upload(InputStream in) throws AzureException {
+        // one buffer per block in flight and one being filled
+        BufferRing ring = new BufferRing(parallelism + 1, (int) policy.getBlockSize());
+        BlockIdGenerator generator = new BlockIdGenerator();
+        BlockList blockList = new BlockList();
+
+        LOGGER.info("Uploading the standard input in blocks of [" + policy.getBlockSize() + "] bytes using ["
+                + parallelism + "] parallel connection(s).");
+        long streamSize = 0;
+        long start = System.currentTimeMillis();
+        BoundedExecutor executor = new BoundedExecutor(parallelism, ExceptionConstants.ERROR_BLOCK_BLOB_UPLOAD);
+        try {
+            boolean ended = false;
+            while (!ended) {
+                final BufferRing.Buffer buffer = ring.take();
+                ended = !buffer.fill(in);
+                streamSize += buffer.getLength();
+                if (ended && blockList.size() == 0) {
+                    // the whole stream fits into a single request
+                    try {
+                        completed(writer.putBlob(buffer, null));
+                    } finally {
+                        buffer.release();
+                    }
+                    break;
+                }
+                if (buffer.getLength() == 0) {
+                    buffer.release();
+                    break;
+                }
+                if (blockList.size() == BlockSizePolicy.MAX_BLOCKS) {
+                    String msg = String.format(ExceptionConstants.ERROR_BLOB_MAX_SIZE, policy.getMaxBlobSize(),
+                            streamSize);
+                    LOGGER.error(msg);
+                    throw new AzureException(msg);
+                }
+
+                final String blockId = generator.generateBlockIdBase64encoded();
+                blockList.add(blockId, BlockType.UNCOMMITTED);
+                executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        try {
+                            writer.stageBlock(blockId, buffer);
+                        } finally {
+                            buffer.release();
+                        }
+                        return null;
+                    }
+                });
+            }
+            executor.awaitCompletion();
+        } catch (IOException e) {
+            LOGGER.error(ExceptionConstants.ERROR_READING_STREAM, e);
+            throw new AzureException(ExceptionConstants.ERROR_READING_STREAM);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error(ExceptionConstants.ERROR_BLOCK_BLOB_UPLOAD, e);
+            throw new AzureException(ExceptionConstants.ERROR_BLOCK_BLOB_UPLOAD);
+        } finally {
+            executor.shutdown();
+        }
+        if (blockList.size() > 0) {
+            completed(writer.commitBlockList(blockList, null));
+        }
+        uploadedBytes = streamSize;
+
+        long elapsedTime = Math.max(System.currentTimeMillis() - start, 1);
+        LOGGER.info("[" + streamSize + "] bytes of the standard input have been uploaded in [" + elapsedTime
+                + "] ms, avg. uploading rate (bytes/sec) " + (streamSize * 1000 / elapsedTime));
+    }
+
+    /**
+     * @return request id of the request which completed the blob
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * @return bytes read from the stream and uploaded
+     */
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    private void completed(ClientResponse response) {
+        requestId = response.getHeaders().getFirst(Constants.REQUEST_TOKENID_KEY);
+    }
+
+}
@@ -0,0 +1,218 @@
+package com.automic.azure.storage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.constants.Constants;
+import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.exception.AzureRuntimeException;
+import com.automic.azure.util.CommonUtil;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.core.util.Base64;
+
+/**
+ * Class to find out whether a blob already has the content of a file, so that its upload can be skipped. The blob is
+ * unchanged if it has the type, the size and the Content-MD5 of the file. The Content-MD5 of the file is set on the
+ * uploaded blob, so the next comparison takes a single request.
+ *
+ * Uploads are recorded in an {@link UploadIndex}, so that a file which has kept its size and modification time is not
+ * read again: its recorded Content-MD5 is used, and the blob is known to be unchanged if it still has the recorded
+ * ETag. The index only saves reading the file, the check goes on without it.
+ */
+public final class UnchangedBlobCheck {
+
+    private static final Logger LOGGER = LogManager.getLogger(UnchangedBlobCheck.class);
+
+    private static final String UT8_ENCODING = "UTF-8";
+
+    // buffer used to compute the Content-MD5 of the file
+    private static final int DIGEST_BUFFER_SIZE = 1024 * 1024;
+
+    private final WebResource blobResource;
+    private final String restapiVersion;
+    private final String blobType;
+    private final String blobKey;
+    private final File file;
+    private final long fileSize;
+    private final long fileLastModified;
+
+    private UploadIndex uploadIndex;
+
+    /**
+     * Content-MD5 of the file set on the blob, null if not computed
+     */
+    private String contentMD5;
+
+    /**
+     * @param blobResource
+     *            resource of the blob e.g. https://myaccount.blob.core.windows.net/mycontainer/myblob
+     * @param restapiVersion
+     *            x-ms-version used for the requests
+     * @param blobType
+     *            type the blob should have, BlockBlob or PageBlob
+     * @param blobKey
+     *            account, container and name of the blob separated by /
+     * @param file
+     *            file to upload
+     * @param fileSize
+     *            size of the file
+     * @param fileLastModified
+     *            modification time of the file before it is read
+     */
+    public UnchangedBlobCheck(WebResource blobResource, String restapiVersion, String blobType, String blobKey,
+            File file, long fileSize, long fileLastModified) {
+        this.blobResource = blobResource;
+        this.restapiVersion = restapiVersion;
+        this.blobType = blobType;
+        this.blobKey = blobKey;
+        this.file = file;
+        this.fileSize = fileSize;
+        this.fileLastModified = fileLastModified;
+    }
+
+    /**
+     * Open the index of the uploaded files. If it can not be opened, the check goes on without it.
+     *
+     * @param indexFile
+     *            index file
+     */
+    public void openIndex(File indexFile) {
+        try {
+            uploadIndex = UploadIndex.open(indexFile);
+        } catch (IOException e) {
+            LOGGER.error("Unable to open upload index [" + indexFile + "]", e);
+        }
+    }
+
+    /**
+     * Method makes HEAD request to https://myaccount.blob.core.windows.net/mycontainer/myblob and compares the
+     * properties of the blob with the file.
+     *
+     * @return true if the blob has the content of the file
+     * @throws AzureException
+     *             if the Content-MD5 of the file can not be computed
+     */
+    public boolean isUnchanged() throws AzureException {
+        LOGGER.info("Calling URL:" + blobResource.getURI());
+        ClientResponse properties;
+        try {
+            properties = blobResource.header("x-ms-date", CommonUtil.getCurrentUTCDateForStorageService())
+                    .header(Constants.X_MS_VERSION, restapiVersion).head();
+        } catch (AzureRuntimeException e) {
+            if (e.getStatusCode() != ClientResponse.Status.NOT_FOUND.getStatusCode()) {
+                throw e;
+            }
+            properties = null;
+        }
+        String type = properties == null ? null : properties.getHeaders().getFirst("x-ms-blob-type");
+        String blobETag = properties == null ? null : properties.getHeaders().getFirst("ETag");
+        boolean sameType = blobType.equals(type);
+
+        // file recorded with the same size and modification time
+        UploadIndex.Entry entry = lookupUploadIndex();
+        if (entry != null && sameType && entry.getETag() != null && entry.getETag().equals(blobETag)) {
+            LOGGER.info("Neither the file nor the blob has changed since the upload recorded in the index.");
+            return true;
+        }
+
+        // the Content-MD5 is needed in any case to be set on the uploaded blob
+        contentMD5 = entry != null ? entry.getContentMD5() : computeMD5();
+        if (properties == null) {
+            LOGGER.info("Blob [" + blobKey + "] does not exist.");
+            return false;
+        }
+        String blobSize = properties.getHeaders().getFirst("Content-Length");
+        String blobMD5 = properties.getHeaders().getFirst("Content-MD5");
+        LOGGER.info("Blob [" + blobKey + "] of type [" + type + "] has size [" + blobSize + "] and Content-MD5 ["
+                + blobMD5 + "], the file has size [" + fileSize + "] and Content-MD5 [" + contentMD5 + "].");
+        boolean unchanged = sameType && String.valueOf(fileSize).equals(blobSize) && contentMD5.equals(blobMD5);
+        if (unchanged && (entry == null || blobETag != null && !blobETag.equals(entry.getETag()))) {
+            // the next run needs neither to read the file nor to compare the Content-MD5
+            recordUpload(blobETag);
+        }
+        return unchanged;
+    }
+
+    /**
+     * @return base64 encoded MD5 of the file to set on the uploaded blob, null if not computed
+     */
+    public String getContentMD5() {
+        return contentMD5;
+    }
+
+    /**
+     * Record the upload of the file in the index
+     *
+     * @param blobETag
+     *            ETag of the uploaded blob, null if not known
+     */
+    public void recordUpload(String blobETag) {
+        if (uploadIndex != null && contentMD5 != null) {
+            try {
+                uploadIndex.record(file, fileSize, fileLastModified, blobKey, contentMD5, blobETag);
+            } catch (IOException e) {
+                LOGGER.error("Unable to record file [" + file + "] in upload index", e);
+            }
+        }
+    }
+
+    /**
+     * Close the index of the uploaded files
+     */
+    public void close() {
+        if (uploadIndex != null) {
+            try {
+                uploadIndex.close();
+            } catch (IOException e) {
+                LOGGER.error("Unable to close upload index", e);
+            }
+        }
+    }
+
+    private UploadIndex.Entry lookupUploadIndex() {
+        if (uploadIndex != null) {
+            try {
+                return uploadIndex.lookup(file, blobKey);
+            } catch (IOException e) {
+                LOGGER.error("Unable to look up file [" + file + "] in upload index", e);
+            }
+        }
+        return null;
+    }
+
+    // base64 encoded MD5 of the file
+    private String computeMD5() throws AzureException {
+        InputStream in = null;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            in = new FileInputStream(file);
+            byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return new String(Base64.encode(digest.digest()), UT8_ENCODING);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            LOGGER.error(ExceptionConstants.ERROR_COMPUTING_MD5, e);
+            throw new AzureException(ExceptionConstants.ERROR_COMPUTING_MD5);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    LOGGER.error(ExceptionConstants.UNABLE_TO_CLOSE_STREAM, e);
+                }
+            }
+        }
+    }
+
+}
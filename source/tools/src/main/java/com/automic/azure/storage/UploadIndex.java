@@ -0,0 +1,356 @@
+package com.automic.azure.storage;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Class that records the files uploaded to blobs, so that an unchanged file can be recognised by its path, size and
+ * modification time instead of by reading its content. Every entry keeps the Content-MD5 of the file and the ETag
+ * the blob had after the upload.
+ *
+ * The index is a text file to which entries are only appended, one line each, and a later entry replaces an earlier
+ * one of the same file and blob. Every line ends with a checksum, so a line partially written by a crashed run is
+ * ignored. Readers and writers of several processes take a lock on a companion lock file, shared for reading and
+ * exclusive for writing. File locks are held by the whole JVM, so the indexes of one JVM open on the same file, e.g.
+ * of actions run by the daemon or a batch, first take a lock of the JVM for the file. An index holding mostly replaced
+ * entries is rewritten when opened.
+ */
+public final class UploadIndex implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(UploadIndex.class);
+
+    private static final String SEPARATOR = " ";
+    private static final String NONE = "-";
+    private static final int FIELD_COUNT = 7;
+
+    // index with fewer lines is never compacted
+    private static final int MIN_COMPACT_LINES = 1024;
+
+    // locks of the JVM by canonical path of the index file
+    private static final ConcurrentMap<String, Lock> JVM_LOCKS = new ConcurrentHashMap<String, Lock>();
+
+    private final File file;
+    private final FileChannel lockChannel;
+    private final Lock jvmLock;
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    private UploadIndex(File file, FileChannel lockChannel, Lock jvmLock) {
+        this.file = file;
+        this.lockChannel = lockChannel;
+        this.jvmLock = jvmLock;
+    }
+
+    /**
+     * Get the default index file. The index is kept in the temporary directory and shared by all uploads of the user.
+     *
+     * @return index file
+     */
+    public static File getDefaultIndexFile() {
+        return new File(System.getProperty("java.io.tmpdir"), "BlobUpload.index");
+    }
+
+    /**
+     * Open the index and read its entries.
+     *
+     * @param file
+     *            index file, created if it does not exist
+     * @return {@link UploadIndex}
+     * @throws IOException
+     *             also if the index is locked in a way the JVM does not allow to wait for
+     */
+    public static UploadIndex open(File file) throws IOException {
+        Lock jvmLock = getJvmLock(file);
+        FileChannel lockChannel = new RandomAccessFile(new File(file.getPath() + ".lock"), "rw").getChannel();
+        boolean opened = false;
+        try {
+            UploadIndex index = new UploadIndex(file, lockChannel, jvmLock);
+            Map<String, Entry> entries = index.entries;
+            int lines;
+            FileLock lock = index.lock(true);
+            try {
+                lines = read(file, entries);
+            } finally {
+                index.release(lock);
+            }
+            if (lines >= MIN_COMPACT_LINES && lines > 2 * entries.size()) {
+                try {
+                    index.compact();
+                } catch (IOException e) {
+                    // the index stays usable as it is
+                    LOGGER.error("Unable to compact upload index [" + file.getPath() + "]", e);
+                }
+            }
+            LOGGER.info("Upload index [" + file.getPath() + "] opened with [" + entries.size() + "] entries.");
+            opened = true;
+            return index;
+        } finally {
+            if (!opened) {
+                lockChannel.close();
+            }
+        }
+    }
+
+    // read the valid lines of the index, return the number of lines
+    private static int read(File file, Map<String, Entry> entries) throws IOException {
+        if (!file.isFile()) {
+            return 0;
+        }
+        int lines = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                Entry entry = Entry.parse(line);
+                if (entry != null) {
+                    entries.put(entry.getKey(), entry);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    /**
+     * Look up the entry of a file uploaded to a blob. The entry is returned only if the file still has the size and
+     * the modification time it had when it was uploaded.
+     *
+     * @param localFile
+     *            uploaded file
+     * @param blobKey
+     *            key identifying the blob e.g. account, container and blob name
+     * @return {@link Entry} or null if the file is not known to be unchanged
+     * @throws IOException
+     */
+    public synchronized Entry lookup(File localFile, String blobKey) throws IOException {
+        Entry entry = entries.get(getKey(localFile.getCanonicalPath(), blobKey));
+        if (entry == null || entry.size != localFile.length() || entry.lastModified != localFile.lastModified()) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Record the upload of a file. The size and the modification time have to be taken before the file is read.
+     *
+     * @param localFile
+     *            uploaded file
+     * @param size
+     *            size of the file when it was read
+     * @param lastModified
+     *            modification time of the file when it was read
+     * @param blobKey
+     *            key identifying the blob e.g. account, container and blob name
+     * @param contentMD5
+     *            base64 encoded MD5 of the file
+     * @param eTag
+     *            ETag of the blob after the upload, null if not known
+     * @throws IOException
+     */
+    public synchronized void record(File localFile, long size, long lastModified, String blobKey, String contentMD5,
+            String eTag) throws IOException {
+        Entry entry = new Entry(localFile.getCanonicalPath(), blobKey, size, lastModified, contentMD5, eTag);
+        byte[] line = (entry.toString() + '\n').getBytes(StandardCharsets.UTF_8);
+        FileLock lock = lock(false);
+        try {
+            RandomAccessFile out = new RandomAccessFile(file, "rw");
+            try {
+                long length = out.length();
+                if (length > 0) {
+                    // end a line partially written by a crashed run, which is then ignored as a whole
+                    out.seek(length - 1);
+                    if (out.read() != '\n') {
+                        out.write('\n');
+                    }
+                }
+                out.write(line);
+            } finally {
+                out.close();
+            }
+        } finally {
+            release(lock);
+        }
+        entries.put(entry.getKey(), entry);
+    }
+
+    // rewrite the index with the latest entries, keeping the entries appended by other processes in the meantime
+    private synchronized void compact() throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        FileLock lock = lock(false);
+        try {
+            read(file, entries);
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            for (Entry entry : entries.values()) {
+                content.write((entry.toString() + '\n').getBytes(StandardCharsets.UTF_8));
+            }
+            FileOutputStream out = new FileOutputStream(tempFile);
+            try {
+                content.writeTo(out);
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            // a crash leaves either the old or the compacted index
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            release(lock);
+        }
+        LOGGER.info("Upload index [" + file.getPath() + "] compacted to [" + entries.size() + "] entries.");
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        lockChannel.close();
+    }
+
+    private static Lock getJvmLock(File file) throws IOException {
+        String path = file.getCanonicalPath();
+        Lock lock = JVM_LOCKS.get(path);
+        if (lock == null) {
+            Lock newLock = new ReentrantLock();
+            lock = JVM_LOCKS.putIfAbsent(path, newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
+        }
+        return lock;
+    }
+
+    // take the lock of the JVM, then the lock of the file
+    private FileLock lock(boolean shared) throws IOException {
+        jvmLock.lock();
+        try {
+            return lockChannel.lock(0, Long.MAX_VALUE, shared);
+        } catch (OverlappingFileLockException e) {
+            // locked in this JVM without the lock of the JVM, e.g. through another path of the same file
+            jvmLock.unlock();
+            throw new IOException("Upload index [" + file.getPath() + "] is locked by this JVM", e);
+        } catch (IOException | RuntimeException e) {
+            jvmLock.unlock();
+            throw e;
+        }
+    }
+
+    private void release(FileLock lock) throws IOException {
+        try {
+            lock.release();
+        } finally {
+            jvmLock.unlock();
+        }
+    }
+
+    private static String getKey(String path, String blobKey) {
+        return path + '\n' + blobKey;
+    }
+
+    private static String encode(String value) {
+        try {
+            return value == null ? NONE : URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private static String decode(String value) throws UnsupportedEncodingException {
+        return NONE.equals(value) ? null : URLDecoder.decode(value, "UTF-8");
+    }
+
+    private static String checksum(String value) {
+        CRC32 crc = new CRC32();
+        crc.update(value.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Value object for an index entry
+     */
+    public static final class Entry {
+        private final String path;
+        private final String blobKey;
+        private final long size;
+        private final long lastModified;
+        private final String contentMD5;
+        private final String eTag;
+
+        Entry(String path, String blobKey, long size, long lastModified, String contentMD5, String eTag) {
+            this.path = path;
+            this.blobKey = blobKey;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.contentMD5 = contentMD5;
+            this.eTag = eTag;
+        }
+
+        /**
+         * @return base64 encoded MD5 of the file when it was uploaded
+         */
+        public String getContentMD5() {
+            return contentMD5;
+        }
+
+        /**
+         * @return ETag of the blob after the upload, null if not known
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        String getKey() {
+            return UploadIndex.getKey(path, blobKey);
+        }
+
+        static Entry parse(String line) {
+            String[] fields = line.split(SEPARATOR);
+            if (fields.length != FIELD_COUNT) {
+                return null;
+            }
+            int end = line.lastIndexOf(SEPARATOR);
+            if (!checksum(line.substring(0, end)).equals(fields[FIELD_COUNT - 1])) {
+                return null;
+            }
+            try {
+                return new Entry(decode(fields[0]), decode(fields[1]), Long.parseLong(fields[2]),
+                        Long.parseLong(fields[3]), decode(fields[4]), decode(fields[5]));
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            String fields = encode(path) + SEPARATOR + encode(blobKey) + SEPARATOR + size + SEPARATOR + lastModified
+                    + SEPARATOR + encode(contentMD5) + SEPARATOR + encode(eTag);
+            return fields + SEPARATOR + checksum(fields);
+        }
+    }
+
+}
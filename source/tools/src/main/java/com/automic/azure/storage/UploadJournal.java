@@ -0,0 +1,216 @@
+package com.automic.azure.storage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Class that records the blocks of a block blob upload which have been staged successfully, so that an interrupted
+ * upload can be resumed. The journal is a small text file. The first line identifies the upload and every further
+ * line records one staged block as "index blockId offset length". A journal written for a different upload is
+ * discarded when opened.
+ */
+public final class UploadJournal implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(UploadJournal.class);
+
+    private static final String HEADER_PREFIX = "#";
+    private static final String SEPARATOR = " ";
+
+    private final File file;
+    private final Map<Integer, StagedBlock> stagedBlocks;
+    private final Writer writer;
+
+    private UploadJournal(File file, Map<Integer, StagedBlock> stagedBlocks, Writer writer) {
+        this.file = file;
+        this.stagedBlocks = stagedBlocks;
+        this.writer = writer;
+    }
+
+    /**
+     * Get the journal file for an upload. Journals are kept in the temporary directory and named after the hash of the
+     * given key.
+     * 
+     * @param uploadKey
+     *            key identifying the target blob and the source file
+     * @return journal file
+     */
+    public static File getJournalFile(String uploadKey) {
+        return new File(System.getProperty("java.io.tmpdir"), "BlockUpload-" + DigestUtils.sha1Hex(uploadKey)
+                + ".journal");
+    }
+
+    /**
+     * Open the journal. Staged blocks recorded by a previous run of the same upload are retained, any other content is
+     * discarded.
+     * 
+     * @param file
+     *            journal file
+     * @param uploadId
+     *            identifies the state of the upload e.g. file size, modification time and block size
+     * @return {@link UploadJournal}
+     * @throws IOException
+     */
+    public static UploadJournal open(File file, String uploadId) throws IOException {
+        Map<Integer, StagedBlock> blocks = new HashMap<Integer, StagedBlock>();
+        if (file.isFile()) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                    StandardCharsets.UTF_8));
+            try {
+                if ((HEADER_PREFIX + uploadId).equals(reader.readLine())) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        StagedBlock block = StagedBlock.parse(line);
+                        if (block != null) {
+                            blocks.put(block.index, block);
+                        }
+                    }
+                } else {
+                    LOGGER.info("Journal [" + file.getPath() + "] belongs to a different upload and is discarded.");
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        // rewrite the journal so that a partially written last line of a previous run is dropped
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+        writer.write(HEADER_PREFIX + uploadId);
+        writer.write('\n');
+        for (StagedBlock block : blocks.values()) {
+            writer.write(block.toString());
+            writer.write('\n');
+        }
+        writer.flush();
+        LOGGER.info("Journal [" + file.getPath() + "] opened with [" + blocks.size() + "] staged block(s).");
+        return new UploadJournal(file, blocks, writer);
+    }
+
+    /**
+     * Drop the recorded blocks which are not known to the service any more. Uncommitted blocks are discarded by the
+     * service after a week or when another block list is committed.
+     * 
+     * @param uncommittedBlocks
+     *            uncommitted block ids and their sizes as returned by the service
+     */
+    public synchronized void reconcile(Map<String, Long> uncommittedBlocks) {
+        Iterator<StagedBlock> it = stagedBlocks.values().iterator();
+        while (it.hasNext()) {
+            StagedBlock block = it.next();
+            Long size = uncommittedBlocks.get(block.blockId);
+            if (size == null || size.longValue() != block.length) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Check if a block has been staged by a previous run.
+     * 
+     * @param index
+     * @param blockId
+     * @param offset
+     * @param length
+     * @return true if the same block has been recorded
+     */
+    public synchronized boolean isStaged(int index, String blockId, long offset, long length) {
+        StagedBlock block = stagedBlocks.get(index);
+        return block != null && block.blockId.equals(blockId) && block.offset == offset && block.length == length;
+    }
+
+    /**
+     * get number of blocks recorded as staged
+     * 
+     * @return count of blocks
+     */
+    public synchronized int size() {
+        return stagedBlocks.size();
+    }
+
+    /**
+     * Record a successfully staged block.
+     * 
+     * @param index
+     * @param blockId
+     * @param offset
+     * @param length
+     * @throws IOException
+     */
+    public synchronized void blockStaged(int index, String blockId, long offset, long length) throws IOException {
+        StagedBlock block = new StagedBlock(index, blockId, offset, length);
+        stagedBlocks.put(index, block);
+        writer.write(block.toString());
+        writer.write('\n');
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Close and delete the journal once the upload has been committed.
+     */
+    public void delete() {
+        try {
+            close();
+        } catch (IOException e) {
+            LOGGER.error("Unable to close journal [" + file.getPath() + "]", e);
+        }
+        if (!file.delete()) {
+            LOGGER.error("Unable to delete journal [" + file.getPath() + "]");
+        }
+    }
+
+    /**
+     * Value object for a journal entry
+     */
+    private static final class StagedBlock {
+        private final int index;
+        private final String blockId;
+        private final long offset;
+        private final long length;
+
+        StagedBlock(int index, String blockId, long offset, long length) {
+            this.index = index;
+            this.blockId = blockId;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        static StagedBlock parse(String line) {
+            String[] fields = line.split(SEPARATOR);
+            if (fields.length != 4) {
+                return null;
+            }
+            try {
+                return new StagedBlock(Integer.parseInt(fields[0]), fields[1], Long.parseLong(fields[2]),
+                        Long.parseLong(fields[3]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return index + SEPARATOR + blockId + SEPARATOR + offset + SEPARATOR + length;
+        }
+    }
+
+}
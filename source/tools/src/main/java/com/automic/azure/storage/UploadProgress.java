@@ -0,0 +1,54 @@
+package com.automic.azure.storage;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Class to log the progress of an upload every minute. Blocks may complete on different threads.
+ */
+final class UploadProgress {
+
+    private static final Logger LOGGER = LogManager.getLogger(UploadProgress.class);
+
+    private final long totalBytes;
+    private final long start;
+    private long uploadedBytes;
+    private long skippedBytes;
+    private long minutes;
+
+    UploadProgress(long totalBytes) {
+        this.totalBytes = totalBytes;
+        this.start = System.currentTimeMillis();
+    }
+
+    synchronized void blockSkipped(long bytes) {
+        skippedBytes += bytes;
+    }
+
+    synchronized long getSkippedBytes() {
+        return skippedBytes;
+    }
+
+    synchronized void logSkipped() {
+        if (skippedBytes > 0) {
+            LOGGER.info("[" + skippedBytes + "] bytes were already staged and have not been uploaded again.");
+        }
+    }
+
+    synchronized void blockUploaded(long bytes) {
+        uploadedBytes += bytes;
+        // Log the information to see the upload progress every minute.
+        long elapsedTime = (System.currentTimeMillis() - start) / 1000;
+        if ((elapsedTime / 60) > minutes) {
+            minutes = elapsedTime / 60;
+            long avgRate = uploadedBytes / elapsedTime;
+            long remaining = totalBytes - skippedBytes - uploadedBytes;
+            LOGGER.info("Avg. uploading rate (bytes/sec) " + avgRate);
+            if (avgRate > 0) {
+                LOGGER.info("Remaining bytes to upload " + remaining + ". Estimated time(seconds) " + remaining
+                        / avgRate);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.automic.azure.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.automic.azure.exception.AzureException;
+
+/**
+ * Utility class to execute tasks on a fixed number of worker threads. The number of submitted but not yet completed
+ * tasks is bounded, so the submitting thread never runs too far ahead of the workers. The first failed task stops the
+ * execution and its error is reported to the submitting thread.
+ *
+ * Instances are not thread safe and must be fed from a single thread.
+ */
+public final class BoundedExecutor {
+
+    private static final Logger LOGGER = LogManager.getLogger(BoundedExecutor.class);
+
+    // tasks allowed to wait for a free worker
+    private static final int PENDING_TASKS_PER_WORKER = 2;
+
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final ExecutorService pool;
+    private final CompletionService<Void> completionService;
+    private final int maxPendingTasks;
+    private final String errorMessage;
+
+    private int pendingTasks;
+
+    /**
+     * @param parallelism
+     *            number of worker threads
+     * @param errorMessage
+     *            message of the {@link AzureException} thrown if a task fails with a checked exception
+     */
+    public BoundedExecutor(int parallelism, String errorMessage) {
+        this.pool = Executors.newFixedThreadPool(parallelism, new WorkerThreadFactory());
+        this.completionService = new ExecutorCompletionService<Void>(pool);
+        this.maxPendingTasks = parallelism * PENDING_TASKS_PER_WORKER;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * Submit a task for execution. Blocks while the maximum number of tasks is pending.
+     *
+     * @param task
+     *            task to execute
+     * @throws AzureException
+     *             if one of the previously submitted tasks has failed
+     */
+    public void submit(Callable<Void> task) throws AzureException {
+        while (pendingTasks >= maxPendingTasks) {
+            waitForNext();
+        }
+        completionService.submit(task);
+        pendingTasks++;
+    }
+
+    /**
+     * Wait till all the submitted tasks have completed.
+     *
+     * @throws AzureException
+     *             if one of the submitted tasks has failed
+     */
+    public void awaitCompletion() throws AzureException {
+        while (pendingTasks > 0) {
+            waitForNext();
+        }
+    }
+
+    /**
+     * Stop the worker threads. Running tasks are interrupted and the tasks not yet started are discarded.
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private void waitForNext() throws AzureException {
+        try {
+            Future<Void> future = completionService.take();
+            pendingTasks--;
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error(errorMessage, e);
+            throw new AzureException(errorMessage);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AzureException) {
+                throw (AzureException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            LOGGER.error(errorMessage, cause);
+            throw new AzureException(errorMessage);
+        }
+    }
+
+    /**
+     * Creates daemon worker threads so that a pending task never blocks the JVM from exiting.
+     */
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final int poolNumber = POOL_NUMBER.incrementAndGet();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "azure-worker-" + poolNumber + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.automic.azure.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Class holding a fixed number of buffers of the same size which are filled from a stream and sent as request bodies
+ * over and over again. Taking a buffer blocks while all of them are in use, so a stream is never read further ahead
+ * than the requests sending it. Buffers are only allocated when first needed, a short stream takes a single one.
+ *
+ * Buffers are taken by a single thread and may be released by any thread.
+ */
+public final class BufferRing {
+
+    private final int bufferSize;
+    private final int bufferCount;
+    private final BlockingQueue<Buffer> freeBuffers;
+    private int allocatedBuffers;
+
+    /**
+     * @param bufferCount
+     *            number of buffers
+     * @param bufferSize
+     *            size of every buffer
+     */
+    public BufferRing(int bufferCount, int bufferSize) {
+        this.bufferCount = bufferCount;
+        this.bufferSize = bufferSize;
+        this.freeBuffers = new ArrayBlockingQueue<Buffer>(bufferCount);
+    }
+
+    /**
+     * Take a free buffer, waiting for one to be released if all of them are in use.
+     *
+     * @return empty {@link Buffer}
+     * @throws InterruptedException
+     */
+    public Buffer take() throws InterruptedException {
+        Buffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            if (allocatedBuffers < bufferCount) {
+                allocatedBuffers++;
+                buffer = new Buffer(new byte[bufferSize]);
+            } else {
+                buffer = freeBuffers.take();
+            }
+        }
+        buffer.length = 0;
+        return buffer;
+    }
+
+    /**
+     * Buffer of the ring. As a {@link StreamingEntity} the bytes read into it can be sent as a request body directly,
+     * as many times as needed until it is released.
+     */
+    public final class Buffer implements StreamingEntity {
+
+        private final byte[] data;
+        private int length;
+
+        Buffer(byte[] data) {
+            this.data = data;
+        }
+
+        /**
+         * Read from a stream till the buffer is full or the stream has ended.
+         *
+         * @param in
+         *            stream to read
+         * @return true if the buffer is full, false if the stream has ended
+         * @throws IOException
+         */
+        public boolean fill(InputStream in) throws IOException {
+            while (length < data.length) {
+                int read = in.read(data, length, data.length - length);
+                if (read == -1) {
+                    return false;
+                }
+                length += read;
+            }
+            return true;
+        }
+
+        /**
+         * get number of bytes read into the buffer
+         *
+         * @return length in bytes
+         */
+        public int getLength() {
+            return length;
+        }
+
+        @Override
+        public long getContentLength() {
+            return length;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(data, 0, length);
+        }
+
+        /**
+         * Give the buffer back to the ring once it is not needed any more.
+         */
+        public void release() {
+            freeBuffers.offer(this);
+        }
+    }
+
+}
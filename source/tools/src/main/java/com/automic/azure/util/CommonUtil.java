@@ -7,6 +7,7 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.TimeZone;
 
@@ -23,6 +24,7 @@ import org.apache.logging.log4j.Logger;
 
 import com.automic.azure.constants.Constants;
 import com.automic.azure.constants.ExceptionConstants;
+import com.automic.azure.constants.HttpTransport;
 import com.automic.azure.exception.AzureException;
 
 /**
@@ -39,6 +41,9 @@ public final class CommonUtil {
 
     private static final String RESPONSE_ERROR = "ERROR";
 
+    // date of the storage service requests formatted last
+    private static volatile FormattedDate currentDate;
+
     private CommonUtil() {
     }
 
@@ -89,6 +94,30 @@ public final class CommonUtil {
         return ret;
     }
 
+    /**
+     * Method to get the HTTP transport named by an option value. Defaults to {@link HttpTransport#URLCONNECTION}, the
+     * pooled transport has to be asked for.
+     * 
+     * @param value
+     *            transport name, case is ignored
+     * @return {@link HttpTransport}
+     * @throws AzureException
+     *             if value is not a known transport
+     */
+    public static HttpTransport getHttpTransport(final String value) throws AzureException {
+        if (!Validator.checkNotEmpty(value)) {
+            return HttpTransport.URLCONNECTION;
+        }
+        try {
+            return HttpTransport.valueOf(value.trim().toUpperCase());
+        } catch (final IllegalArgumentException e) {
+            final String msg = String.format(ExceptionConstants.INVALID_HTTP_TRANSPORT,
+                    Arrays.toString(HttpTransport.values()));
+            LOGGER.error(msg);
+            throw new AzureException(msg);
+        }
+    }
+
     /**
      * Method to format a stream of unformatted xml and write it to an output stream.
      * 
@@ -118,16 +147,21 @@ public final class CommonUtil {
     }
 
     /**
-     * Get UTC time for Storage Services in "EEE, dd MMM yyyy HH:mm:ss z" format
+     * Get UTC time for Storage Services in "EEE, dd MMM yyyy HH:mm:ss z" format. The date only changes once a second,
+     * so it is formatted once per second and shared by all the requests sent within that second.
      * 
      * @return Current date as a string
      */
     public static String getCurrentUTCDateForStorageService() {
-
-        final DateFormat rfc1123Format = new SimpleDateFormat(Constants.STORAGE_DATE_PATTERN);
-        rfc1123Format.setTimeZone(TimeZone.getTimeZone("GMT"));
-
-        return rfc1123Format.format(new Date());
+        long second = System.currentTimeMillis() / 1000;
+        FormattedDate date = currentDate;
+        if (date == null || date.second != second) {
+            final DateFormat rfc1123Format = new SimpleDateFormat(Constants.STORAGE_DATE_PATTERN);
+            rfc1123Format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            date = new FormattedDate(second, rfc1123Format.format(new Date(second * 1000)));
+            currentDate = date;
+        }
+        return date.value;
     }
 
     /**
@@ -166,4 +200,17 @@ public final class CommonUtil {
         }
     }
 
+    /**
+     * Date formatted for a second
+     */
+    private static final class FormattedDate {
+        private final long second;
+        private final String value;
+
+        FormattedDate(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+
 }
@@ -8,7 +8,8 @@ import org.apache.logging.log4j.Logger;
 import com.automic.azure.exception.AzureException;
 
 /**
- * This class writes content to standard console
+ * This class writes content to standard console. The console of a thread, and of the threads it starts, can be
+ * redirected to another stream, which allows several actions to run side by side in one JVM.
  * 
  * @author anuragupadhyay
  * 
@@ -16,7 +17,13 @@ import com.automic.azure.exception.AzureException;
 public final class ConsoleWriter {
 
     private static final Logger LOGGER = LogManager.getLogger(ConsoleWriter.class);
-    private static final ByteWriter WRITER = new ByteWriter(System.out);
+    private static final ByteWriter STDOUT_WRITER = new ByteWriter(System.out);
+    private static final ThreadLocal<ByteWriter> WRITER = new InheritableThreadLocal<ByteWriter>() {
+        @Override
+        protected ByteWriter initialValue() {
+            return STDOUT_WRITER;
+        }
+    };
 
     private ConsoleWriter() {
     }
@@ -29,7 +36,7 @@ public final class ConsoleWriter {
     public static void write(Object content) {
         String temp = content != null ? content.toString() : "null";
         try {
-            WRITER.write(temp);
+            WRITER.get().write(temp);
         } catch (AzureException ae) {
             LOGGER.error(ae.getMessage());
         }
@@ -56,7 +63,25 @@ public final class ConsoleWriter {
      * Method to get associated output stream.
      */
     public static OutputStream getStream() {
-        return WRITER.getStream();
+        return WRITER.get().getStream();
+    }
+
+    /**
+     * Method to redirect the console of the current thread, and of the threads started by it from now on, to a stream.
+     * 
+     * @param out
+     *            stream to write to
+     */
+    public static void redirect(OutputStream out) {
+        WRITER.set(new ByteWriter(out));
+    }
+
+    /**
+     * Method to write to the standard console again after a {@link #redirect(OutputStream)}. Pending content is not
+     * flushed.
+     */
+    public static void reset() {
+        WRITER.remove();
     }
 
     /**
@@ -64,7 +89,7 @@ public final class ConsoleWriter {
      */
     public static void flush() {
         try {
-            WRITER.flush();
+            WRITER.get().flush();
         } catch (AzureException ae) {
             LOGGER.error(ae.getMessage());
         }
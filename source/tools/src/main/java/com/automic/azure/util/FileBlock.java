@@ -0,0 +1,127 @@
+package com.automic.azure.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Class that represents a contiguous region of a file opened by {@link FileBlockSource}. A block does not hold a file
+ * pointer of its own, every stream opened on it reads the region from the beginning. As a {@link StreamingEntity} the
+ * block can be sent as a request body directly.
+ */
+public final class FileBlock implements StreamingEntity {
+
+    // buffer used to copy the block to a request body
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long offset;
+    private final long length;
+
+    FileBlock(FileChannel channel, long offset, long length) {
+        this.channel = channel;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * get position of the block in the file
+     * 
+     * @return offset in bytes
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * get size of the block
+     * 
+     * @return length in bytes
+     */
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    /**
+     * Write the block to a stream through a bounded buffer.
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(COPY_BUFFER_SIZE, Math.max(length, 1)));
+        long position = offset;
+        long end = offset + length;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int n = channel.read(buffer, position);
+            if (n == -1) {
+                throw new IOException("Unexpected end of file at position " + position);
+            }
+            out.write(buffer.array(), 0, n);
+            position += n;
+        }
+    }
+
+    /**
+     * Open a new stream over the block. Closing the stream does not close the underlying file.
+     * 
+     * @return {@link InputStream} positioned at the start of the block
+     */
+    public InputStream openStream() {
+        return new BlockStream();
+    }
+
+    /**
+     * Stream that reads the block with positional reads straight into the caller's buffer.
+     */
+    private class BlockStream extends InputStream {
+
+        private long position = offset;
+        private final long end = offset + length;
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return n == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, end - position));
+            int n = channel.read(buffer, position);
+            if (n == -1) {
+                throw new IOException("Unexpected end of file at position " + position);
+            }
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.automic.azure.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * Class that provides read-only access to a file as a set of independent blocks. All the blocks share a single
+ * {@link FileChannel} and read from it using absolute positions, so blocks can be read concurrently, out of order and
+ * any number of times.
+ */
+public final class FileBlockSource implements Closeable {
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long size;
+
+    /**
+     * Open the given file for reading.
+     * 
+     * @param file
+     * @throws IOException
+     */
+    public FileBlockSource(File file) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.size = channel.size();
+    }
+
+    /**
+     * get size of the file when it was opened
+     * 
+     * @return size in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Get a block of the file.
+     * 
+     * @param offset
+     *            position of the first byte of the block
+     * @param length
+     *            number of bytes in the block
+     * @return {@link FileBlock}
+     */
+    public FileBlock block(long offset, long length) {
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw new IllegalArgumentException("Block [" + offset + ", " + length + "] is outside of the file of size "
+                    + size);
+        }
+        return new FileBlock(channel, offset, length);
+    }
+
+    /**
+     * Close the underlying file. Blocks can not be read after the source is closed.
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.automic.azure.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class to select the files of a local directory tree, either all the regular files below a directory or the files
+ * matching a glob pattern such as /data/logs/**.log. The glob is matched against the path relative to the
+ * directory holding its first wildcard, with / separating the names on every platform, e.g. ** matches across
+ * directories and * does not.
+ */
+public final class LocalFileSet {
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private LocalFileSet() {
+    }
+
+    /**
+     * Check if a path selects several files
+     *
+     * @param path
+     *            path of a file, of a directory or a glob pattern
+     * @return true if the path is a directory or a glob pattern which is not the name of an existing file
+     */
+    public static boolean isFileSet(String path) {
+        File file = new File(path);
+        return file.isDirectory() || !file.isFile() && getGlobStart(path) >= 0;
+    }
+
+    /**
+     * Select the files of a directory or matching a glob pattern
+     *
+     * @param path
+     *            path of a directory or a glob pattern
+     * @return selected files with their paths relative to the base directory of the selection
+     * @throws IOException
+     */
+    public static List<LocalFile> select(String path) throws IOException {
+        Path baseDirectory;
+        final PathMatcher matcher;
+        int globStart = getGlobStart(path);
+        if (globStart < 0) {
+            baseDirectory = Paths.get(path);
+            matcher = null;
+        } else {
+            // the base directory ends at the last separator in front of the first wildcard
+            int separator = Math.max(path.lastIndexOf('/', globStart), path.lastIndexOf(File.separatorChar,
+                    globStart));
+            baseDirectory = Paths.get(separator < 0 ? "." : path.substring(0, separator + 1));
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + path.substring(separator + 1));
+        }
+
+        final List<LocalFile> files = new ArrayList<LocalFile>();
+        final Path base = baseDirectory;
+        if (!Files.isDirectory(base)) {
+            return files;
+        }
+        Files.walkFileTree(base, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                Path relativePath = base.relativize(file);
+                if (attributes.isRegularFile() && (matcher == null || matcher.matches(relativePath))) {
+                    files.add(new LocalFile(file.toFile(), toName(relativePath), attributes.size()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    private static int getGlobStart(String path) {
+        for (int i = 0; i < path.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(path.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // relative path with / as separator
+    private static String toName(Path relativePath) {
+        StringBuilder name = new StringBuilder();
+        for (Path element : relativePath) {
+            if (name.length() > 0) {
+                name.append('/');
+            }
+            name.append(element.toString());
+        }
+        return name.toString();
+    }
+
+    /**
+     * Value object for a selected file
+     */
+    public static final class LocalFile {
+        private final File file;
+        private final String relativeName;
+        private final long size;
+
+        LocalFile(File file, String relativeName, long size) {
+            this.file = file;
+            this.relativeName = relativeName;
+            this.size = size;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return path relative to the base directory of the selection with / as separator
+         */
+        public String getRelativeName() {
+            return relativeName;
+        }
+
+        /**
+         * @return size of the file when it was selected
+         */
+        public long getSize() {
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.automic.azure.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Interface for request bodies whose length is known before they are written. Such bodies are streamed to the
+ * connection with a fixed Content-Length instead of being buffered in memory first.
+ */
+public interface StreamingEntity {
+
+    /**
+     * get number of bytes written by {@link #writeTo(OutputStream)}
+     * 
+     * @return length in bytes
+     */
+    long getContentLength();
+
+    /**
+     * Write the body to the stream. Implementations must not close the stream.
+     * 
+     * @param out
+     *            stream to write to
+     * @throws IOException
+     */
+    void writeTo(OutputStream out) throws IOException;
+
+}
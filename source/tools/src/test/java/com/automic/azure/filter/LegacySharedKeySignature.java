@@ -0,0 +1,141 @@
+package com.automic.azure.filter;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+
+/**
+ * SharedKey signature as StorageAuthenticationFilter and StorageAuthenticationUtil computed it before they were
+ * replaced by {@link SharedKeySigner}. Kept to check the signer against.
+ */
+final class LegacySharedKeySignature {
+
+    private LegacySharedKeySignature() {
+    }
+
+    static String sign(String accountName, String accessKey, String method, MultivaluedMap<String, Object> headers,
+            URI uri) {
+        return signHmacSHA256(createSignatureString(accountName, method, headers, uri), accessKey);
+    }
+
+    private static String createSignatureString(String accountName, String method,
+            MultivaluedMap<String, Object> headers, URI uri) {
+        StringBuilder stringToSign = new StringBuilder();
+        stringToSign.append(method).append("\n").append(getHeader(headers, "Content-Encoding")).append("\n")
+                .append(getHeader(headers, "Content-Language")).append("\n")
+                .append(getHeader(headers, "Content-Length")).append("\n")
+                .append(getHeader(headers, "Content-MD5")).append("\n")
+                .append(getHeader(headers, "Content-Type")).append("\n")
+                .append(getHeader(headers, "Date")).append("\n")
+                .append(getHeader(headers, "If-Modified-Since")).append("\n")
+                .append(getHeader(headers, "If-Match")).append("\n")
+                .append(getHeader(headers, "If-None-Match")).append("\n")
+                .append(getHeader(headers, "If-Unmodified-Since")).append("\n")
+                .append(getHeader(headers, "Range")).append("\n");
+        stringToSign.append(getCanonicalizedHeaders(headers));
+        stringToSign.append(getCanonicalizedResource(accountName, uri));
+        return stringToSign.toString();
+    }
+
+    private static String getHeader(MultivaluedMap<String, Object> headers, String headerKey) {
+        List<Object> values = headers.get(headerKey);
+        if (values == null || values.size() != 1) {
+            return "";
+        }
+        return values.get(0).toString();
+    }
+
+    private static String getCanonicalizedHeaders(MultivaluedMap<String, Object> headers) {
+        List<String> msHeaders = new ArrayList<String>();
+        for (String key : headers.keySet()) {
+            String lowerCase = key.toLowerCase(Locale.US);
+            if (lowerCase.startsWith("x-ms-")) {
+                msHeaders.add(lowerCase);
+            }
+        }
+        Collections.sort(msHeaders);
+
+        StringBuilder result = new StringBuilder();
+        for (String msHeader : msHeaders) {
+            result.append(msHeader).append(":").append(headers.getFirst(msHeader)).append("\n");
+        }
+        return result.toString();
+    }
+
+    private static String getCanonicalizedResource(String accountName, URI uri) {
+        StringBuilder result = new StringBuilder();
+        result.append("/").append(accountName);
+        result.append(uri.getPath());
+
+        List<QueryParameter> queryParams = new ArrayList<QueryParameter>();
+        String query = uri.getRawQuery();
+        List<NameValuePair> params = query == null ? Collections.<NameValuePair> emptyList() : URLEncodedUtils
+                .parse(query, StandardCharsets.UTF_8);
+        for (NameValuePair param : params) {
+            QueryParameter queryParam = new QueryParameter(param.getName().toLowerCase(Locale.US));
+            String paramValue = param.getValue();
+            if (paramValue.indexOf(',') < 0) {
+                queryParam.values.add(paramValue);
+            } else {
+                for (String v : paramValue.split(",")) {
+                    queryParam.values.add(v);
+                }
+            }
+            queryParams.add(queryParam);
+        }
+        Collections.sort(queryParams);
+
+        for (QueryParameter param : queryParams) {
+            result.append("\n").append(param.name).append(":");
+            Collections.sort(param.values);
+            for (int j = 0; j < param.values.size(); j++) {
+                if (j > 0) {
+                    result.append(",");
+                }
+                result.append(param.values.get(j));
+            }
+        }
+        return result.toString();
+    }
+
+    private static String signHmacSHA256(String stringToSign, String accessKey) {
+        try {
+            SecretKeySpec signingKey = new SecretKeySpec(Base64.decodeBase64(accessKey), "hmacSHA256");
+            Mac hmac = Mac.getInstance("hmacSHA256");
+            hmac.init(signingKey);
+            byte[] digest = hmac.doFinal(stringToSign.getBytes("UTF-8"));
+            return new String(Base64.encodeBase64(digest), "UTF-8");
+        } catch (UnsupportedEncodingException | InvalidKeyException | NoSuchAlgorithmException ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex);
+        }
+    }
+
+    private static final class QueryParameter implements Comparable<QueryParameter> {
+        private final String name;
+        private final List<String> values = new ArrayList<String>();
+
+        QueryParameter(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public int compareTo(QueryParameter o) {
+            return this.name.compareTo(o.name);
+        }
+    }
+
+}
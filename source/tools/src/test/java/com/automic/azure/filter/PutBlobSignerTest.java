@@ -0,0 +1,78 @@
+package com.automic.azure.filter;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Checks the Authorization headers of {@link PutBlobSigner} against the ones {@link SharedKeySigner} computes for the
+ * requests Jersey builds from the same headers.
+ */
+public class PutBlobSignerTest {
+
+    private static final String ACCOUNT = "myaccount";
+    private static final String ACCESS_KEY = "bXktc2VjcmV0LWFjY2Vzcy1rZXktZm9yLXRoZS1zdG9yYWdlLWFjY291bnQ=";
+    private static final String CONTAINER_URL = "https://myaccount.blob.core.windows.net/mycontainer";
+    private static final String HEADER_PREFIX = "SharedKey " + ACCOUNT + ":";
+    private static final String VERSION = "2019-02-02";
+    private static final String DATE = "Fri, 16 Oct 2026 20:00:00 GMT";
+
+    private final SharedKeySigner signer = new SharedKeySigner(ACCOUNT, ACCESS_KEY);
+
+    @Test
+    public void signsLikeSharedKeySigner() {
+        assertSameAuthorization("application/octet-stream", "myblob", 1024);
+        assertSameAuthorization("text/plain", "dir/sub/file name.txt", 20480);
+        assertSameAuthorization("image/png", "Grüße/日本.png", 1);
+    }
+
+    @Test
+    public void signsParameterizedContentTypesAsSent() {
+        assertSameAuthorization("text/html;charset=UTF-8", "index.html", 2048);
+        assertSameAuthorization("text/html; charset=UTF-8", "index.html", 2048);
+        assertSameAuthorization("text/plain;charset=utf-8;format=flowed", "readme.txt", 100);
+        assertSameAuthorization("application/json; charset=\"UTF-8\"", "data.json", 100);
+    }
+
+    @Test
+    public void signsEmptyFiles() {
+        assertSameAuthorization("application/octet-stream", "empty", 0);
+        assertSameAuthorization("text/plain;charset=UTF-8", "empty.txt", 0);
+    }
+
+    private void assertSameAuthorization(String contentType, String blobName, int length) {
+        WebResource resource = Client.create().resource(CONTAINER_URL).path(blobName);
+        ClientRequest request = captureRequest(resource, contentType, length);
+        PutBlobSigner putBlobSigner = new PutBlobSigner(signer, HEADER_PREFIX, VERSION, contentType);
+        assertEquals(contentType + " " + blobName, HEADER_PREFIX + signer.sign("PUT", request.getHeaders(),
+                request.getURI()), putBlobSigner.authorize(length, DATE, resource.getURI().getPath()));
+    }
+
+    // the request as MultiFileUploader sends it, as seen by the authentication filter
+    private static ClientRequest captureRequest(WebResource resource, String contentType, int length) {
+        final ClientRequest[] captured = new ClientRequest[1];
+        resource.addFilter(new ClientFilter() {
+            @Override
+            public ClientResponse handle(ClientRequest request) {
+                captured[0] = request;
+                throw new ClientHandlerException("Not sent");
+            }
+        });
+        try {
+            resource.header("Content-Length", length).header("x-ms-version", VERSION)
+                    .header("x-ms-blob-type", "BlockBlob").header("x-ms-date", DATE)
+                    .entity(new byte[length], contentType).put(ClientResponse.class);
+        } catch (ClientHandlerException e) {
+            // expected, the request is only captured
+        }
+        return captured[0];
+    }
+
+}
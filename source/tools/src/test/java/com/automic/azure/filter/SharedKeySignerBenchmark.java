@@ -0,0 +1,88 @@
+package com.automic.azure.filter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import com.sun.jersey.core.header.OutBoundHeaders;
+
+/**
+ * Benchmark of the memory allocated and the time taken per signature, against the implementation the signer replaced.
+ * Not part of the unit tests, the figures depend on the machine and the JVM. Run it from the test classpath:
+ *
+ * mvn test-compile exec:java -Dexec.mainClass=com.automic.azure.filter.SharedKeySignerBenchmark
+ * -Dexec.classpathScope=test
+ */
+public final class SharedKeySignerBenchmark {
+
+    private static final String ACCOUNT = "myaccount";
+    private static final String ACCESS_KEY = "bXktc2VjcmV0LWFjY2Vzcy1rZXktZm9yLXRoZS1zdG9yYWdlLWFjY291bnQ=";
+
+    private static final int WARMUP_ITERATIONS = 50000;
+    private static final int ITERATIONS = 20000;
+
+    private SharedKeySignerBenchmark() {
+    }
+
+    /**
+     * Main method
+     *
+     * @param args
+     *            not used
+     * @throws URISyntaxException
+     *             never, the URI is constant
+     */
+    public static void main(String[] args) throws URISyntaxException {
+        final OutBoundHeaders headers = new OutBoundHeaders();
+        headers.putSingle("Content-Length", 4194304);
+        headers.putSingle("Content-MD5", "1B2M2Y8AsgTpgAmY7PhCfg==");
+        headers.putSingle("x-ms-date", "Fri, 16 Oct 2026 20:00:00 GMT");
+        headers.putSingle("x-ms-version", "2019-02-02");
+        headers.putSingle("x-ms-lease-id", "f81d4fae-7dec-11d0-a765-00a0c91e6bf6");
+        final URI uri = new URI("https://myaccount.blob.core.windows.net/mycontainer/dir/myblob.vhd?comp=block"
+                + "&blockid=QUFBQUFBQUFBQUFBQUFBQUFBQUFBQUFBQUFBQUFBQUFBQUFBQUFBQUFBQUE%3D&timeout=30");
+        final SharedKeySigner signer = new SharedKeySigner(ACCOUNT, ACCESS_KEY);
+
+        System.out.println("SharedKeySigner: " + measure(new Runnable() {
+            @Override
+            public void run() {
+                signer.sign("PUT", headers, uri);
+            }
+        }));
+        System.out.println("Legacy implementation: " + measure(new Runnable() {
+            @Override
+            public void run() {
+                LegacySharedKeySignature.sign(ACCOUNT, ACCESS_KEY, "PUT", headers, uri);
+            }
+        }));
+    }
+
+    private static String measure(Runnable signature) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            signature.run();
+        }
+        long startBytes = getAllocatedBytes();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            signature.run();
+        }
+        long elapsed = System.nanoTime() - startTime;
+        long allocated = getAllocatedBytes() - startBytes;
+        String time = (elapsed / ITERATIONS) + " ns per signature";
+        return allocated < 0 ? time : time + ", " + (allocated / ITERATIONS) + " bytes allocated";
+    }
+
+    // bytes allocated by the current thread, -1 if the JVM does not count them
+    private static long getAllocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+                return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+}
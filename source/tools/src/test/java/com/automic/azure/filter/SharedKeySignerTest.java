@@ -0,0 +1,138 @@
+package com.automic.azure.filter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import org.junit.Test;
+
+import com.sun.jersey.core.header.OutBoundHeaders;
+
+/**
+ * Checks the signatures of {@link SharedKeySigner} against the ones of the implementation it replaced.
+ */
+public class SharedKeySignerTest {
+
+    private static final String ACCOUNT = "myaccount";
+    private static final String ACCESS_KEY = "bXktc2VjcmV0LWFjY2Vzcy1rZXktZm9yLXRoZS1zdG9yYWdlLWFjY291bnQ=";
+    private static final String BLOB_URL = "https://myaccount.blob.core.windows.net";
+
+    private final SharedKeySigner signer = new SharedKeySigner(ACCOUNT, ACCESS_KEY);
+
+    @Test
+    public void signsLikeLegacyForPlainRequests() throws URISyntaxException {
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer/myblob");
+        assertSameSignature("PUT", headers(), BLOB_URL + "/mycontainer/myblob?comp=block&blockid=QUFBQUFB");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?restype=container&comp=list");
+    }
+
+    @Test
+    public void signsLikeLegacyForEncodedValues() throws URISyntaxException {
+        // encoded + stays a plus, a plain + is a blank
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?comp=list&prefix=a%2Bb");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?comp=list&prefix=a+b");
+        assertSameSignature("PUT", headers(), BLOB_URL + "/mycontainer/myblob?comp=block&blockid=QUFB%2BQQ%3D%3D");
+        // encoded slash in the value and in the path
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?comp=list&delimiter=%2F&prefix=dir%2Fsub%2F");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer/dir%2Fsub/file%20name.txt");
+    }
+
+    @Test
+    public void signsLikeLegacyForMultipleValues() throws URISyntaxException {
+        assertSameSignature("GET", headers(), BLOB_URL
+                + "/mycontainer?restype=container&comp=list&include=snapshots,metadata,uncommittedblobs");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?comp=list&include=metadata%2Csnapshots");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?comp=list&include=b,,a");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?comp=list&include=b,a,");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?comp=list&include=,");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?comp=list&prefix=&marker=");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?comp=list;restype=container");
+    }
+
+    @Test
+    public void signsLikeLegacyForNonAsciiNames() throws URISyntaxException {
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer/%C3%A4%C3%B6%C3%BC.txt?comp=metadata");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?comp=list&prefix=%E6%97%A5%E6%9C%AC");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?comp=list&prefix=%F0%9F%98%80");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?Comp=List&RESTYPE=container");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?%C3%84pfel=%C3%84&comp=list");
+        // names lower cased differently per character and per string
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?%C4%B0d=1&%CE%A3%CE%A3=2&comp=list");
+    }
+
+    @Test
+    public void signsUnescapedCharactersAsTheirEscapes() throws URISyntaxException {
+        // the legacy implementation turned them into U+FFFD
+        URI uri = new URI("https", "myaccount.blob.core.windows.net", "/mycontainer/Grüße.txt",
+                "comp=metadata&prefix=äö日本", null);
+        URI asciiUri = new URI(uri.toASCIIString());
+        assertEquals(LegacySharedKeySignature.sign(ACCOUNT, ACCESS_KEY, "GET", headers(), asciiUri),
+                signer.sign("GET", headers(), uri));
+    }
+
+    @Test
+    public void signsLikeLegacyForMalformedUtf8() throws URISyntaxException {
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?comp=list&prefix=100%25");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?comp=list&prefix=%C3%28&marker=%FF");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?comp=list&prefix=%C0%80&marker=%ED%A0%80");
+        assertSameSignature("GET", headers(), BLOB_URL + "/mycontainer?comp=list&prefix=%F8%88%80%80%80&marker=%C3");
+    }
+
+    @Test
+    public void signsLikeLegacyForHeaders() throws URISyntaxException {
+        OutBoundHeaders headers = headers();
+        headers.putSingle("Content-Length", 1048576);
+        headers.putSingle("Content-MD5", "1B2M2Y8AsgTpgAmY7PhCfg==");
+        headers.putSingle("Content-Type", "application/octet-stream");
+        headers.putSingle("If-Match", "\"0x8D2C9C5B9E6A4F2\"");
+        headers.putSingle("Range", "bytes=0-1023");
+        headers.putSingle("x-ms-meta-Owner", "Café");
+        headers.putSingle("X-MS-Blob-Type", "BlockBlob");
+        headers.putSingle("Accept", "application/xml");
+        // a header with two values is not signed
+        headers.add("Content-Language", "en");
+        headers.add("Content-Language", "de");
+        assertSameSignature("PUT", headers, BLOB_URL + "/mycontainer/myblob?comp=block&blockid=QUFBQUFB");
+    }
+
+    @Test
+    public void joinsRepeatedParametersIntoOneLine() throws URISyntaxException {
+        // the legacy implementation wrote one line per parameter, the service expects one line per name
+        String stringToSign = "GET\n\n\n\n\n\n\n\n\n\n\n\nx-ms-date:Fri, 16 Oct 2026 20:00:00 GMT\n"
+                + "x-ms-version:2019-02-02\n/myaccount/mycontainer\ncomp:list\ninclude:copy,metadata,snapshots";
+        assertEquals(signer.sign(stringToSign), signer.sign("GET", headers(),
+                new URI(BLOB_URL + "/mycontainer?comp=list&include=snapshots&include=metadata,copy")));
+    }
+
+    @Test
+    public void signsZeroContentLengthAsEmpty() throws URISyntaxException {
+        URI uri = new URI(BLOB_URL + "/mycontainer/myblob");
+        OutBoundHeaders headers = headers();
+        headers.putSingle("Content-Length", 0);
+        assertEquals(signer.sign("PUT\n\n\n\n\n\n\n\n\n\n\n\nx-ms-date:Fri, 16 Oct 2026 20:00:00 GMT\n"
+                + "x-ms-version:2019-02-02\n/myaccount/mycontainer/myblob"), signer.sign("PUT", headers, uri));
+        // versions before 2015-02-21 sign the zero
+        headers.putSingle("Content-Length", "0");
+        headers.putSingle("x-ms-version", "2014-02-14");
+        assertEquals(signer.sign("PUT\n\n\n0\n\n\n\n\n\n\n\n\nx-ms-date:Fri, 16 Oct 2026 20:00:00 GMT\n"
+                + "x-ms-version:2014-02-14\n/myaccount/mycontainer/myblob"), signer.sign("PUT", headers, uri));
+    }
+
+    private void assertSameSignature(String method, OutBoundHeaders headers, String uri) throws URISyntaxException {
+        assertSameSignature(method, headers, new URI(uri));
+    }
+
+    private void assertSameSignature(String method, OutBoundHeaders headers, URI uri) {
+        assertEquals(uri.toString(), LegacySharedKeySignature.sign(ACCOUNT, ACCESS_KEY, method, headers, uri),
+                signer.sign(method, headers, uri));
+    }
+
+    private static OutBoundHeaders headers() {
+        OutBoundHeaders headers = new OutBoundHeaders();
+        headers.putSingle("x-ms-date", "Fri, 16 Oct 2026 20:00:00 GMT");
+        headers.putSingle("x-ms-version", "2019-02-02");
+        return headers;
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.automic.azure.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.automic.azure.exception.AzureException;
+import com.automic.azure.filter.RequestAuthenticator;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.filter.ClientFilter;
+import com.sun.jersey.core.header.InBoundHeaders;
+
+/**
+ * Checks how {@link BlobBatch} matches the parts of a batch response to its operations.
+ */
+public class BlobBatchTest {
+
+    private static final String ACCOUNT_URL = "https://myaccount.blob.core.windows.net";
+
+    private static final RequestAuthenticator NO_AUTHENTICATION = new RequestAuthenticator() {
+        @Override
+        public URI authenticate(String method, Map<String, List<Object>> headers, URI uri) {
+            return uri;
+        }
+    };
+
+    @Test
+    public void matchesPartsByContentId() throws AzureException {
+        String body = "--batchresponse_1\r\n"
+                + "Content-Type: application/http\r\n"
+                + "Content-ID: 2\r\n\r\n"
+                + "HTTP/1.1 404 The specified blob does not exist.\r\n"
+                + "x-ms-error-code: BlobNotFound\r\n"
+                + "x-ms-request-id: 1\r\n\r\n"
+                + "--batchresponse_1\r\n"
+                + "Content-Type: application/http\r\n"
+                + "Content-ID: 0\r\n\r\n"
+                + "HTTP/1.1 202 Accepted\r\n"
+                + "x-ms-delete-type-permanent: true\r\n\r\n"
+                + "--batchresponse_1\r\n"
+                + "Content-Type: application/http\r\n"
+                + "content-id: 1\r\n\r\n"
+                + "HTTP/1.1 200 OK\r\n"
+                + "X-MS-Error-Code: ignored\r\n\r\n"
+                + "--batchresponse_1--\r\n";
+        List<BlobBatch.Result> results = submit(3, "multipart/mixed; boundary=batchresponse_1", body);
+
+        assertEquals(3, results.size());
+        assertEquals("blob0", results.get(0).getBlobName());
+        assertEquals(202, results.get(0).getStatusCode());
+        assertTrue(results.get(0).isSuccess());
+        assertNull(results.get(0).getErrorCode());
+        // headers of a successful operation are not read
+        assertEquals("blob1", results.get(1).getBlobName());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals("blob2", results.get(2).getBlobName());
+        assertEquals(404, results.get(2).getStatusCode());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals("BlobNotFound", results.get(2).getErrorCode());
+    }
+
+    @Test
+    public void readsAQuotedBoundary() throws AzureException {
+        String body = "--b1\r\nContent-ID: 0\r\n\r\nHTTP/1.1 202 Accepted\r\n\r\n--b1--\r\n";
+        List<BlobBatch.Result> results = submit(1, "multipart/mixed; boundary=\"b1\"; charset=UTF-8",
+                body);
+        assertEquals(202, results.get(0).getStatusCode());
+    }
+
+    @Test(expected = AzureException.class)
+    public void failsOnAMissingResult() throws AzureException {
+        String body = "--b1\r\nContent-ID: 1\r\n\r\nHTTP/1.1 202 Accepted\r\n\r\n--b1--\r\n";
+        submit(2, "multipart/mixed; boundary=b1", body);
+    }
+
+    @Test(expected = AzureException.class)
+    public void failsWithoutBoundary() throws AzureException {
+        submit(1, "application/xml", "<Error/>");
+    }
+
+    // submit a batch of Delete Blob operations answered with the given response
+    private static List<BlobBatch.Result> submit(int operations, final String contentType, final String body)
+            throws AzureException {
+        WebResource resource = Client.create().resource(ACCOUNT_URL);
+        resource.addFilter(new ClientFilter() {
+            @Override
+            public ClientResponse handle(ClientRequest request) {
+                InBoundHeaders headers = new InBoundHeaders();
+                headers.putSingle("Content-Type", contentType);
+                return new ClientResponse(202, headers, new ByteArrayInputStream(body
+                        .getBytes(StandardCharsets.UTF_8)), null);
+            }
+        });
+        BlobBatch batch = new BlobBatch(resource, "2019-02-02", NO_AUTHENTICATION);
+        for (int i = 0; i < operations; i++) {
+            batch.addDelete("mycontainer", "blob" + i, null, "include", null);
+        }
+        return batch.submit();
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.automic.azure.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.automic.azure.storage.BlockList.BlockType;
+
+/**
+ * Checks the block ids and the Put Block List body of {@link BlockList}.
+ */
+public class BlockListTest {
+
+    @Test
+    public void encodesBlockIdsOfOneLength() {
+        String shortId = BlockList.encodeBlockId(new byte[] { 1, 2 });
+        String longId = BlockList.encodeBlockId(new byte[32]);
+        assertEquals(24, shortId.length());
+        assertEquals(24, longId.length());
+        assertEquals(BlockList.encodeBlockId(new byte[] { 1, 2, 0, 0 }), shortId);
+        assertFalse(BlockList.isForeignBlockId(shortId));
+        assertTrue(BlockList.isForeignBlockId("QUFBQQ=="));
+        assertTrue(BlockList.isForeignBlockId(shortId + shortId));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIdsOfAnotherLength() {
+        BlockList blockList = new BlockList();
+        blockList.add(BlockList.encodeBlockId(new byte[0]), BlockType.UNCOMMITTED);
+        blockList.add("QUFBQQ==", BlockType.UNCOMMITTED);
+    }
+
+    @Test
+    public void writesTheBlocksInOrder() throws IOException {
+        BlockList blockList = new BlockList();
+        blockList.add("QUFBQQ==", BlockType.COMMITTED);
+        blockList.add("QkJCQg==", BlockType.UNCOMMITTED);
+        blockList.add("Q0NDQw==", BlockType.LATEST);
+        blockList.setType(0, BlockType.LATEST);
+
+        String expected = "<?xml version=\"1.0\" encoding=\"utf-8\"?><BlockList><Latest>QUFBQQ==</Latest>"
+                + "<Uncommitted>QkJCQg==</Uncommitted><Latest>Q0NDQw==</Latest></BlockList>";
+        assertEquals(expected, write(blockList));
+        assertEquals(expected.length(), blockList.getContentLength());
+        assertEquals("QkJCQg==", blockList.getBlockId(1));
+        assertEquals(BlockType.UNCOMMITTED, blockList.getType(1));
+    }
+
+    @Test
+    public void growsBeyondItsInitialCapacity() throws IOException {
+        BlockList blockList = new BlockList();
+        byte[] id = new byte[BlockList.BLOCK_ID_SIZE];
+        for (int i = 0; i < 1000; i++) {
+            id[0] = (byte) i;
+            id[1] = (byte) (i >> 8);
+            blockList.add(BlockList.encodeBlockId(id), i % 2 == 0 ? BlockType.COMMITTED : BlockType.UNCOMMITTED);
+        }
+        assertEquals(1000, blockList.size());
+        id[0] = (byte) 999;
+        id[1] = (byte) (999 >> 8);
+        assertEquals(BlockList.encodeBlockId(id), blockList.getBlockId(999));
+        assertEquals(BlockType.UNCOMMITTED, blockList.getType(999));
+        assertEquals(blockList.getContentLength(), write(blockList).length());
+    }
+
+    @Test
+    public void writesAnEmptyList() throws IOException {
+        BlockList blockList = new BlockList();
+        assertEquals("<?xml version=\"1.0\" encoding=\"utf-8\"?><BlockList></BlockList>", write(blockList));
+        assertEquals(write(blockList).length(), blockList.getContentLength());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsIndexBeyondTheList() {
+        BlockList blockList = new BlockList();
+        blockList.add("QUFBQQ==", BlockType.COMMITTED);
+        blockList.getBlockId(1);
+    }
+
+    private static String write(BlockList blockList) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        blockList.writeTo(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.automic.azure.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.automic.azure.exception.AzureException;
+
+/**
+ * Checks the chunk boundaries of {@link ContentDefinedChunker}.
+ */
+public class ContentDefinedChunkerTest {
+
+    private static final int MIN_SIZE = 2048;
+    private static final int AVERAGE_SIZE = 8192;
+    private static final int MAX_SIZE = 32768;
+
+    private final ContentDefinedChunker chunker = new ContentDefinedChunker(MIN_SIZE, AVERAGE_SIZE, MAX_SIZE);
+
+    @Test
+    public void cutsContiguousChunksWithinTheSizeLimits() throws Exception {
+        // larger than the read buffer, so chunks span two reads
+        byte[] data = randomBytes(3 * 1024 * 1024 + 777, 1);
+        List<Chunk> chunks = scan(data);
+
+        long offset = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            assertEquals(offset, chunk.offset);
+            assertTrue(chunk.length <= MAX_SIZE);
+            assertTrue(chunk.length >= MIN_SIZE || i == chunks.size() - 1);
+            assertArrayEquals(sha256(data, chunk.offset, chunk.length), chunk.hash);
+            offset += chunk.length;
+        }
+        assertEquals(data.length, offset);
+        // content defined boundaries are mostly found before the maximum size
+        assertTrue(chunks.size() > data.length / MAX_SIZE * 2);
+    }
+
+    @Test
+    public void cutsAtTheMaximumSizeWithoutBoundary() throws Exception {
+        List<Chunk> chunks = scan(new byte[5 * MAX_SIZE + 10]);
+        assertEquals(6, chunks.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(MAX_SIZE, chunks.get(i).length);
+        }
+        assertEquals(10, chunks.get(5).length);
+    }
+
+    @Test
+    public void keepsTheChunksAfterAnInsertion() throws Exception {
+        byte[] data = randomBytes(1024 * 1024, 2);
+        byte[] changed = new byte[data.length + 100];
+        int insertAt = data.length / 2;
+        System.arraycopy(data, 0, changed, 0, insertAt);
+        System.arraycopy(randomBytes(100, 3), 0, changed, insertAt, 100);
+        System.arraycopy(data, insertAt, changed, insertAt + 100, data.length - insertAt);
+
+        Set<String> original = hashes(scan(data));
+        List<Chunk> chunks = scan(changed);
+        int changedBytes = 0;
+        for (Chunk chunk : chunks) {
+            if (!original.contains(Arrays.toString(chunk.hash))) {
+                changedBytes += chunk.length;
+            }
+        }
+        // only the chunks around the insertion differ
+        assertTrue("Changed bytes: " + changedBytes, changedBytes <= 3 * MAX_SIZE);
+    }
+
+    @Test
+    public void handsOnNothingForAnEmptyFile() throws Exception {
+        assertEquals(0, scan(new byte[0]).size());
+    }
+
+    @Test
+    public void growsTheChunksWithTheFile() {
+        ContentDefinedChunker small = ContentDefinedChunker.forFile(100L * 1024 * 1024, 4000L * 1024 * 1024);
+        assertEquals(1024 * 1024, small.getMinSize());
+        assertEquals(16 * 1024 * 1024, small.getMaxSize());
+
+        long fileSize = 4L * 1024 * 1024 * 1024 * 1024;
+        ContentDefinedChunker large = ContentDefinedChunker.forFile(fileSize, 4000L * 1024 * 1024);
+        assertTrue(fileSize / large.getMinSize() < BlockSizePolicy.MAX_BLOCKS);
+        assertTrue(large.getMaxSize() <= 4000L * 1024 * 1024);
+
+        ContentDefinedChunker capped = ContentDefinedChunker.forFile(100L * 1024 * 1024, 4L * 1024 * 1024);
+        assertEquals(4 * 1024 * 1024, capped.getMaxSize());
+        assertTrue(capped.getMinSize() <= capped.getMaxSize());
+    }
+
+    private List<Chunk> scan(byte[] data) throws IOException, AzureException {
+        final List<Chunk> chunks = new ArrayList<Chunk>();
+        int count = chunker.scan(new ByteArrayInputStream(data), new ContentDefinedChunker.ChunkHandler() {
+            @Override
+            public void handle(long offset, int length, byte[] hash) {
+                chunks.add(new Chunk(offset, length, hash));
+            }
+        });
+        assertEquals(chunks.size(), count);
+        return chunks;
+    }
+
+    private static Set<String> hashes(List<Chunk> chunks) {
+        Set<String> hashes = new HashSet<String>();
+        for (Chunk chunk : chunks) {
+            hashes.add(Arrays.toString(chunk.hash));
+        }
+        return hashes;
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] sha256(byte[] data, long offset, int length) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(data, (int) offset, length);
+        return digest.digest();
+    }
+
+    /**
+     * Chunk handed on by the chunker
+     */
+    private static final class Chunk {
+        private final long offset;
+        private final int length;
+        private final byte[] hash;
+
+        Chunk(long offset, int length, byte[] hash) {
+            this.offset = offset;
+            this.length = length;
+            this.hash = hash;
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.automic.azure.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.automic.azure.exception.AzureException;
+
+/**
+ * Checks the ranges {@link PageRangeScanner} finds in a file.
+ */
+public class PageRangeScannerTest {
+
+    private static final int PAGE = PageRangeScanner.PAGE_SIZE;
+
+    @Test
+    public void findsNoRangeInZeros() throws Exception {
+        List<long[]> ranges = new ArrayList<long[]>();
+        assertEquals(0, scan(new byte[4 * 1024 * 1024], ranges));
+        assertTrue(ranges.isEmpty());
+    }
+
+    @Test
+    public void mergesPagesSeparatedByFewZeros() throws Exception {
+        byte[] data = new byte[1024 * 1024];
+        data[PAGE + 1] = 1;
+        data[10 * PAGE] = 1;
+        List<long[]> ranges = new ArrayList<long[]>();
+        assertEquals(10 * PAGE, scan(data, ranges));
+        assertEquals(1, ranges.size());
+        assertRange(ranges.get(0), PAGE, 10 * PAGE);
+    }
+
+    @Test
+    public void splitsRangesAtLargeGaps() throws Exception {
+        byte[] data = new byte[2 * 1024 * 1024];
+        data[0] = 1;
+        data[1024 * 1024 + 3] = 1;
+        List<long[]> ranges = new ArrayList<long[]>();
+        assertEquals(2 * PAGE, scan(data, ranges));
+        assertEquals(2, ranges.size());
+        assertRange(ranges.get(0), 0, PAGE);
+        assertRange(ranges.get(1), 1024 * 1024, PAGE);
+    }
+
+    @Test
+    public void limitsRangesToTheLargestPutPage() throws Exception {
+        byte[] data = new byte[PageRangeScanner.MAX_RANGE_SIZE + 3 * PAGE];
+        for (int i = 0; i < data.length; i += PAGE) {
+            data[i + PAGE - 1] = 1;
+        }
+        List<long[]> ranges = new ArrayList<long[]>();
+        assertEquals(data.length, scan(data, ranges));
+        assertEquals(2, ranges.size());
+        assertRange(ranges.get(0), 0, PageRangeScanner.MAX_RANGE_SIZE);
+        assertRange(ranges.get(1), PageRangeScanner.MAX_RANGE_SIZE, 3 * PAGE);
+    }
+
+    @Test
+    public void endsTheLastRangeWithTheFile() throws Exception {
+        byte[] data = new byte[3 * PAGE + 100];
+        data[data.length - 1] = 1;
+        List<long[]> ranges = new ArrayList<long[]>();
+        assertEquals(100, scan(data, ranges));
+        assertRange(ranges.get(0), 3 * PAGE, 100);
+    }
+
+    @Test
+    public void checksRegionsForZeros() {
+        byte[] buffer = new byte[37];
+        assertTrue(PageRangeScanner.isZero(buffer, 0, buffer.length));
+        buffer[36] = 1;
+        assertFalse(PageRangeScanner.isZero(buffer, 0, buffer.length));
+        assertTrue(PageRangeScanner.isZero(buffer, 1, 35));
+        buffer[9] = 1;
+        assertFalse(PageRangeScanner.isZero(buffer, 1, 16));
+        assertTrue(PageRangeScanner.isZero(buffer, 10, 26));
+    }
+
+    private static long scan(byte[] data, final List<long[]> ranges) throws IOException, AzureException {
+        return new PageRangeScanner().scan(new ByteArrayInputStream(data), new PageRangeScanner.RangeHandler() {
+            @Override
+            public void handle(long offset, long length) {
+                ranges.add(new long[] { offset, length });
+            }
+        });
+    }
+
+    private static void assertRange(long[] range, long offset, long length) {
+        assertEquals(offset, range[0]);
+        assertEquals(length, range[1]);
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.automic.azure.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks which completed ranges {@link RangeCheckpoint} keeps for the next run of a download.
+ */
+public class RangeCheckpointTest {
+
+    private static final String DOWNLOAD_ID = "\"0x8D2C9C5B9E6A4F2\" 104857600 4194304";
+    private static final int RANGE_COUNT = 25;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File checkpointFile;
+    private RandomAccessFile targetFile;
+    private FileChannel target;
+
+    @Before
+    public void setUp() throws IOException {
+        checkpointFile = new File(folder.getRoot(), "download.checkpoint");
+        targetFile = new RandomAccessFile(folder.newFile("target"), "rw");
+        target = targetFile.getChannel();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        targetFile.close();
+    }
+
+    @Test
+    public void keepsSyncedRangesForTheSameDownload() throws IOException {
+        RangeCheckpoint checkpoint = RangeCheckpoint.open(checkpointFile, DOWNLOAD_ID, RANGE_COUNT);
+        assertEquals(0, checkpoint.size());
+        checkpoint.rangeCompleted(0, target);
+        checkpoint.rangeCompleted(9, target);
+        checkpoint.rangeCompleted(24, target);
+        checkpoint.sync(target);
+        checkpoint.close();
+
+        checkpoint = RangeCheckpoint.open(checkpointFile, DOWNLOAD_ID, RANGE_COUNT);
+        assertEquals(3, checkpoint.size());
+        assertTrue(checkpoint.isCompleted(0));
+        assertTrue(checkpoint.isCompleted(9));
+        assertTrue(checkpoint.isCompleted(24));
+        assertFalse(checkpoint.isCompleted(8));
+        checkpoint.close();
+    }
+
+    @Test
+    public void dropsRangesWhichHaveNotBeenSynced() throws IOException {
+        RangeCheckpoint checkpoint = RangeCheckpoint.open(checkpointFile, DOWNLOAD_ID, RANGE_COUNT);
+        checkpoint.rangeCompleted(1, target);
+        checkpoint.sync(target);
+        checkpoint.rangeCompleted(2, target);
+        checkpoint.close();
+
+        checkpoint = RangeCheckpoint.open(checkpointFile, DOWNLOAD_ID, RANGE_COUNT);
+        assertTrue(checkpoint.isCompleted(1));
+        assertFalse(checkpoint.isCompleted(2));
+        checkpoint.close();
+    }
+
+    @Test
+    public void recordsABatchOfRangesWithoutExplicitSync() throws IOException {
+        RangeCheckpoint checkpoint = RangeCheckpoint.open(checkpointFile, DOWNLOAD_ID, RANGE_COUNT);
+        for (int i = 0; i < 16; i++) {
+            checkpoint.rangeCompleted(i, target);
+        }
+        checkpoint.close();
+
+        checkpoint = RangeCheckpoint.open(checkpointFile, DOWNLOAD_ID, RANGE_COUNT);
+        assertEquals(16, checkpoint.size());
+        checkpoint.close();
+    }
+
+    @Test
+    public void discardsTheCheckpointOfAnotherDownload() throws IOException {
+        RangeCheckpoint checkpoint = RangeCheckpoint.open(checkpointFile, DOWNLOAD_ID, RANGE_COUNT);
+        checkpoint.rangeCompleted(3, target);
+        checkpoint.sync(target);
+        checkpoint.close();
+
+        // the blob has changed
+        checkpoint = RangeCheckpoint.open(checkpointFile, "\"0x8D2C9C5B9E6A4F3\" 104857600 4194304", RANGE_COUNT);
+        assertEquals(0, checkpoint.size());
+        checkpoint.close();
+
+        // another range size gives another number of ranges
+        checkpoint = RangeCheckpoint.open(checkpointFile, DOWNLOAD_ID, RANGE_COUNT);
+        checkpoint.rangeCompleted(3, target);
+        checkpoint.sync(target);
+        checkpoint.close();
+        checkpoint = RangeCheckpoint.open(checkpointFile, DOWNLOAD_ID, 100);
+        assertEquals(0, checkpoint.size());
+        checkpoint.close();
+    }
+
+    @Test
+    public void deletesTheCheckpoint() throws IOException {
+        RangeCheckpoint checkpoint = RangeCheckpoint.open(checkpointFile, DOWNLOAD_ID, RANGE_COUNT);
+        checkpoint.delete();
+        assertFalse(checkpointFile.exists());
+    }
+
+}
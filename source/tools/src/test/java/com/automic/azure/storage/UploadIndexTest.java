@@ -0,0 +1,133 @@
+package com.automic.azure.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that {@link UploadIndex} reads back what it has recorded, also after a crash cut its last line.
+ */
+public class UploadIndexTest {
+
+    private static final String MD5 = "1B2M2Y8AsgTpgAmY7PhCfg==";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsTheRecordedEntriesAgain() throws IOException {
+        File indexFile = folder.newFile("upload.index");
+        File localFile = createFile("a file.txt", "content");
+
+        UploadIndex index = UploadIndex.open(indexFile);
+        record(index, localFile, "account/container/blob a", "\"0x1\"");
+        record(index, localFile, "account/container/blob b", null);
+        index.close();
+
+        index = UploadIndex.open(indexFile);
+        UploadIndex.Entry entry = index.lookup(localFile, "account/container/blob a");
+        assertNotNull(entry);
+        assertEquals(MD5, entry.getContentMD5());
+        assertEquals("\"0x1\"", entry.getETag());
+        assertNull(index.lookup(localFile, "account/container/blob b").getETag());
+        assertNull(index.lookup(localFile, "account/container/blob c"));
+        index.close();
+    }
+
+    @Test
+    public void replacesEarlierEntries() throws IOException {
+        File indexFile = folder.newFile("upload.index");
+        File localFile = createFile("file", "content");
+
+        UploadIndex index = UploadIndex.open(indexFile);
+        record(index, localFile, "account/container/blob", "\"0x1\"");
+        record(index, localFile, "account/container/blob", "\"0x2\"");
+        index.close();
+
+        index = UploadIndex.open(indexFile);
+        assertEquals("\"0x2\"", index.lookup(localFile, "account/container/blob").getETag());
+        index.close();
+    }
+
+    @Test
+    public void ignoresAChangedFile() throws IOException {
+        File indexFile = folder.newFile("upload.index");
+        File localFile = createFile("file", "content");
+
+        UploadIndex index = UploadIndex.open(indexFile);
+        record(index, localFile, "account/container/blob", "\"0x1\"");
+        Files.write(localFile.toPath(), "changed content".getBytes(StandardCharsets.UTF_8));
+        assertNull(index.lookup(localFile, "account/container/blob"));
+        index.close();
+    }
+
+    @Test
+    public void reloadsAfterTruncation() throws IOException {
+        File indexFile = folder.newFile("upload.index");
+        File localFile = createFile("file", "content");
+
+        UploadIndex index = UploadIndex.open(indexFile);
+        record(index, localFile, "account/container/first", "\"0x1\"");
+        record(index, localFile, "account/container/second", "\"0x2\"");
+        index.close();
+
+        // a crash while the second line was written
+        RandomAccessFile out = new RandomAccessFile(indexFile, "rw");
+        try {
+            out.setLength(out.length() - 10);
+        } finally {
+            out.close();
+        }
+
+        index = UploadIndex.open(indexFile);
+        assertEquals("\"0x1\"", index.lookup(localFile, "account/container/first").getETag());
+        assertNull(index.lookup(localFile, "account/container/second"));
+        // the next entry starts on a line of its own
+        record(index, localFile, "account/container/third", "\"0x3\"");
+        index.close();
+
+        index = UploadIndex.open(indexFile);
+        assertEquals("\"0x1\"", index.lookup(localFile, "account/container/first").getETag());
+        assertNull(index.lookup(localFile, "account/container/second"));
+        assertEquals("\"0x3\"", index.lookup(localFile, "account/container/third").getETag());
+        index.close();
+    }
+
+    @Test
+    public void ignoresLinesWithAWrongChecksum() throws IOException {
+        File indexFile = folder.newFile("upload.index");
+        File localFile = createFile("file", "content");
+
+        UploadIndex index = UploadIndex.open(indexFile);
+        record(index, localFile, "account/container/blob", "\"0x1\"");
+        index.close();
+
+        String line = new String(Files.readAllBytes(indexFile.toPath()), StandardCharsets.UTF_8);
+        Files.write(indexFile.toPath(), line.replace("0x1", "0x9").getBytes(StandardCharsets.UTF_8));
+
+        index = UploadIndex.open(indexFile);
+        assertNull(index.lookup(localFile, "account/container/blob"));
+        index.close();
+    }
+
+    private File createFile(String name, String content) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static void record(UploadIndex index, File localFile, String blobKey, String eTag) throws IOException {
+        index.record(localFile, localFile.length(), localFile.lastModified(), blobKey, MD5, eTag);
+    }
+
+}